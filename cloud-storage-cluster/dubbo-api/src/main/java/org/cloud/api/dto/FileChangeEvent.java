@@ -0,0 +1,32 @@
+package org.cloud.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 文件元数据变更事件，文件系统服务在文件删除、移动、重命名等操作提交后经 Redis 发布，
+ * 其他服务据此使缓存的文件元数据失效
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileChangeEvent implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** 发布事件的 Redis 主题 */
+    public static final String TOPIC = "fs:file-change";
+
+    /** 文件所属用户 ID，为 null 时表示所有用户 */
+    private String userId;
+
+    /** 变更的文件 ID，为 null 时表示该用户的所有文件 */
+    private List<String> fileIds;
+}
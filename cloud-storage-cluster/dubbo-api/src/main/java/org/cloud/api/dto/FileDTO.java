@@ -21,10 +21,14 @@ public class FileDTO implements Serializable {
     private String userId;
     private String bucket;
     private String storageKey;
+    private Long packOffset; // 打包存储时文件在打包对象中的偏移，独立存储时为 null
     private String name;
     private String mimeType;
     private long size;
+    private String contentEncoding; // 存储编码，原样存储时为 null
+    private Long storedSize; // 编码后实际存储的字节数，原样存储时为 null
     private String md5;
+    private String crc32c;
     private Long deletedAt;
     private Long createdAt;
     private Long updatedAt;
@@ -22,11 +22,19 @@ public class FileInputDTO implements Serializable {
 
     private String storageKey;
 
+    private Long packOffset;
+
     private String name;
 
     private String mimeType;
 
     private Long size;
 
+    private String contentEncoding;
+
+    private Long storedSize;
+
     private String md5;
+
+    private String crc32c;
 }
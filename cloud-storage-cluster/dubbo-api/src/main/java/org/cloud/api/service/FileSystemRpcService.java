@@ -3,6 +3,7 @@ package org.cloud.api.service;
 import org.cloud.api.dto.*;
 
 import java.util.List;
+import java.util.Map;
 
 public interface FileSystemRpcService {
     /**
@@ -22,6 +23,15 @@ public interface FileSystemRpcService {
      */
     FileDTO addFile(String uid, FileInputDTO dto);
 
+    /**
+     * 批量创建文件，每个目录只校验一次归属，所有文件在同一事务中写入
+     *
+     * @param uid 用户 id
+     * @param dtos 文件的元数据列表
+     * @return 已创建的文件 DTO 列表，顺序与输入一致
+     */
+    List<FileDTO> addFiles(String uid, List<FileInputDTO> dtos);
+
     /**
      * 创建目录
      *
@@ -48,6 +58,58 @@ public interface FileSystemRpcService {
      */
     List<FileDTO> getFiles(String uid, GetFilesRequest request);
 
+    /**
+     * 在用户自己的文件中根据文件内容查找已存储的文件，用于秒传 <br/>
+     * 只查找该用户的文件，避免仅凭哈希即可引用其他用户的存储对象
+     *
+     * @param uid 用户 id
+     * @param md5 文件内容的 MD5
+     * @param crc32c 文件内容的 CRC32C（十六进制），可为 null；用于匹配分片上传后没有 MD5 的文件
+     * @param size 文件大小，单位：字节
+     * @return 内容相同的任一文件 DTO，不存在时返回 null
+     */
+    FileDTO findFileByContent(String uid, String md5, String crc32c, long size);
+
+    /**
+     * 统计引用同一存储对象的文件数量，包含回收站中的文件
+     *
+     * @param bucket 存储桶
+     * @param storageKey 存储键
+     * @return 引用数量
+     */
+    long countStorageReferences(String bucket, String storageKey);
+
+    /**
+     * 列出含有可回收空洞的打包对象，即存在删除时间早于指定时间的文件
+     *
+     * @param bucket 存储桶
+     * @param deletedBefore 删除时间早于该时间（毫秒时间戳）的文件视为空洞
+     * @param limit 数量上限
+     * @return 打包对象的存储键
+     */
+    List<String> listReclaimablePacks(String bucket, long deletedBefore, int limit);
+
+    /**
+     * 列出引用打包对象的所有文件，包含回收站中的文件
+     *
+     * @param bucket 存储桶
+     * @param storageKey 打包对象的存储键
+     * @return 文件 DTO 列表
+     */
+    List<FileDTO> listPackEntries(String bucket, String storageKey);
+
+    /**
+     * 打包对象重写后迁移文件引用：物理删除删除时间早于指定时间的文件，其余文件按偏移映射指向新的打包对象
+     *
+     * @param bucket 存储桶
+     * @param storageKey 原打包对象的存储键
+     * @param newStorageKey 新打包对象的存储键，没有存活数据时为 null
+     * @param offsets 原偏移到新偏移的映射
+     * @param deletedBefore 删除时间早于该时间（毫秒时间戳）的文件被物理删除
+     * @return 迁移后仍引用原打包对象的文件数量
+     */
+    long relocatePackEntries(String bucket, String storageKey, String newStorageKey, Map<Long, Long> offsets, long deletedBefore);
+
     /**
      * 获取目录
      *
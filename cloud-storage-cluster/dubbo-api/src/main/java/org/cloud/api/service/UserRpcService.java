@@ -7,4 +7,9 @@ public interface UserRpcService {
     String getRootDirectoryId(String userId);
 
     String getUsernameById(String userId);
+
+    /**
+     * 获取用户的存储容量配额，单位：字节，用于划分用户等级
+     */
+    Long getStorageCapacity(String userId);
 }
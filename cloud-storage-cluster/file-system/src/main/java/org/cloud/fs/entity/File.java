@@ -3,6 +3,7 @@ package org.cloud.fs.entity;
 import org.babyfish.jimmer.sql.*;
 import org.babyfish.jimmer.sql.meta.LogicalDeletedLongGenerator;
 import org.babyfish.jimmer.sql.meta.UUIDIdGenerator;
+import org.jspecify.annotations.Nullable;
 
 import java.util.UUID;
 
@@ -21,14 +22,36 @@ public interface File {
 
     String storageKey();
 
+    /**
+     * 打包存储时文件在打包对象中的偏移，独立存储时为 null
+     */
+    @Nullable
+    Long packOffset();
+
     String name();
 
     String mimeType();
 
     long size();
 
+    /**
+     * 存储编码，如 gzip，原样存储时为 null
+     */
+    @Nullable
+    String contentEncoding();
+
+    /**
+     * 编码后实际存储的字节数，原样存储时为 null
+     */
+    @Nullable
+    Long storedSize();
+
+    @Nullable
     String md5();
 
+    @Nullable
+    String crc32c();
+
     @LogicalDeleted(generatorType = LogicalDeletedLongGenerator.class)
     Long deletedAt();
 
@@ -15,6 +15,7 @@ import org.cloud.fs.service.DirectoryService;
 import org.cloud.fs.service.FileService;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -44,6 +45,23 @@ public class FileSystemRpcServiceImpl implements FileSystemRpcService {
         }
     }
 
+    @Override
+    public List<FileDTO> addFiles(String uid, List<FileInputDTO> dtos) {
+        try {
+            List<FileInput> inputs = dtos.stream()
+                    .map(FileDtoMapper.INSTANCE::toInput)
+                    .toList();
+            List<File> files = fileService.createFiles(inputs, UUID.fromString(uid));
+            log.info("[addFiles] userId={}, fileCount={}", uid, files.size());
+            return files.stream()
+                    .map(FileDtoMapper.INSTANCE::entityToDto)
+                    .toList();
+        } catch (Exception e) {
+            log.error("[addFiles] userId={}, fileCount={}", uid, dtos.size(), e);
+            throw e;
+        }
+    }
+
     public DirectoryDTO addDirectory(String uid, DirectoryCreationInputDTO dto) {
         try {
             DirectoryInput input = DirectoryDtoMapper.INSTANCE.toInput(dto);
@@ -72,6 +90,43 @@ public class FileSystemRpcServiceImpl implements FileSystemRpcService {
         .toList();
     }
 
+    @Override
+    public FileDTO findFileByContent(String uid, String md5, String crc32c, long size) {
+        return fileService.findFileRpcViewByContent(md5, crc32c, size, UUID.fromString(uid))
+                .map(FileDtoMapper.INSTANCE::viewToDto)
+                .orElse(null);
+    }
+
+    @Override
+    public long countStorageReferences(String bucket, String storageKey) {
+        return fileService.countStorageReferences(bucket, storageKey);
+    }
+
+    @Override
+    public List<String> listReclaimablePacks(String bucket, long deletedBefore, int limit) {
+        return fileService.listReclaimablePacks(bucket, deletedBefore, limit);
+    }
+
+    @Override
+    public List<FileDTO> listPackEntries(String bucket, String storageKey) {
+        return fileService.listPackEntries(bucket, storageKey).stream()
+                .map(FileDtoMapper.INSTANCE::viewToDto)
+                .toList();
+    }
+
+    @Override
+    public long relocatePackEntries(String bucket, String storageKey, String newStorageKey, Map<Long, Long> offsets, long deletedBefore) {
+        try {
+            long remaining = fileService.relocatePackEntries(bucket, storageKey, newStorageKey, offsets, deletedBefore);
+            log.info("[relocatePackEntries] bucket={}, storageKey={}, newStorageKey={}, relocated={}, remaining={}",
+                    bucket, storageKey, newStorageKey, offsets.size(), remaining);
+            return remaining;
+        } catch (Exception e) {
+            log.error("[relocatePackEntries] bucket={}, storageKey={}, newStorageKey={}", bucket, storageKey, newStorageKey, e);
+            throw e;
+        }
+    }
+
     public DirectoryDTO getDirectory(String uid, String directoryId) {
         return directoryService.getDirectoryById(UUID.fromString(directoryId), UUID.fromString(uid))
                 .map(DirectoryDtoMapper.INSTANCE::entityToDto)
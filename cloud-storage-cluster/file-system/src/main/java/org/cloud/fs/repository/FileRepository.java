@@ -3,6 +3,8 @@ package org.cloud.fs.repository;
 import org.babyfish.jimmer.Page;
 import org.babyfish.jimmer.spring.repo.support.AbstractJavaRepository;
 import org.babyfish.jimmer.sql.JSqlClient;
+import org.babyfish.jimmer.sql.ast.Predicate;
+import org.babyfish.jimmer.sql.ast.mutation.DeleteMode;
 import org.babyfish.jimmer.sql.ast.mutation.SaveMode;
 import org.babyfish.jimmer.sql.ast.query.MutableRootQuery;
 import org.babyfish.jimmer.sql.runtime.LogicalDeletedBehavior;
@@ -45,28 +47,48 @@ public class FileRepository extends AbstractJavaRepository<File, UUID> {
     }
 
     public File createFile(FileInput input, UUID userId) {
+        File file = newFile(input, userId, System.currentTimeMillis());
+
+        return sql.saveCommand(file)
+                .setMode(SaveMode.INSERT_ONLY)
+                .execute()
+                .getModifiedEntity();
+    }
+
+    public List<File> createFiles(List<FileInput> inputs, UUID userId) {
         long now = System.currentTimeMillis();
-        File file = FileDraft.$.produce(
+        List<File> files = inputs.stream()
+                .map(input -> newFile(input, userId, now))
+                .toList();
+
+        sql.saveEntitiesCommand(files)
+                .setMode(SaveMode.INSERT_ONLY)
+                .execute();
+
+        return files;
+    }
+
+    private File newFile(FileInput input, UUID userId, long now) {
+        return FileDraft.$.produce(
                 draft -> {
                     draft.setId(UUID.randomUUID());
                     draft.setUserId(userId);
                     draft.setDirectoryId(input.getDirectoryId());
                     draft.setBucket(input.getBucket());
                     draft.setStorageKey(input.getStorageKey());
+                    draft.setPackOffset(input.getPackOffset());
                     draft.setName(input.getName());
                     draft.setMimeType(input.getMimeType());
                     draft.setSize(input.getSize());
+                    draft.setContentEncoding(input.getContentEncoding());
+                    draft.setStoredSize(input.getStoredSize());
                     draft.setMd5(input.getMd5());
+                    draft.setCrc32c(input.getCrc32c());
                     draft.setDeletedAt(null);
                     draft.setCreatedAt(now);
                     draft.setUpdatedAt(now);
                 }
         );
-
-        return sql.saveCommand(file)
-                .setMode(SaveMode.INSERT_ONLY)
-                .execute()
-                .getModifiedEntity();
     }
 
     public int renameFile(UUID fileId, String name, UUID userId) {
@@ -214,6 +236,73 @@ public class FileRepository extends AbstractJavaRepository<File, UUID> {
                 .execute();
     }
 
+    public FileRpcView findFileRpcViewByContent(String md5, String crc32c, long size, UUID userId) {
+        Predicate content = table.md5().eq(md5);
+        if (crc32c != null) { // 没有 MD5 的文件按 CRC32C 匹配
+            content = Predicate.or(content, Predicate.and(table.md5().isNull(), table.crc32c().eq(crc32c)));
+        }
+
+        return sql.createQuery(table)
+                .where(content)
+                .where(table.size().eq(size))
+                .where(table.userId().eq(userId))
+                .select(table.fetch(FileRpcView.class))
+                .limit(1)
+                .fetchOneOrNull();
+    }
+
+    public long countByStorageKey(String bucket, String storageKey) {
+        return sql.filters(cfg -> cfg.setBehavior(LogicalDeletedBehavior.IGNORED)) // 回收站中的文件同样引用存储对象
+                .createQuery(table)
+                .where(table.bucket().eq(bucket))
+                .where(table.storageKey().eq(storageKey))
+                .selectCount()
+                .fetchOne();
+    }
+
+    public List<String> listReclaimablePackKeys(String bucket, long deletedBefore, int limit) {
+        return sql.filters(cfg -> cfg.setBehavior(LogicalDeletedBehavior.IGNORED)) // 只查询回收站中的文件
+                .createQuery(table)
+                .where(table.bucket().eq(bucket))
+                .where(table.packOffset().isNotNull())
+                .where(table.deletedAt().lt(deletedBefore))
+                .select(table.storageKey())
+                .distinct()
+                .limit(limit)
+                .execute();
+    }
+
+    public List<FileRpcView> listPackEntries(String bucket, String storageKey) {
+        return sql.filters(cfg -> cfg.setBehavior(LogicalDeletedBehavior.IGNORED)) // 回收站中的文件同样引用打包对象
+                .createQuery(table)
+                .where(table.bucket().eq(bucket))
+                .where(table.storageKey().eq(storageKey))
+                .where(table.packOffset().isNotNull())
+                .select(table.fetch(FileRpcView.class))
+                .execute();
+    }
+
+    public int relocatePackEntry(String bucket, String storageKey, long packOffset, String newStorageKey, long newPackOffset) {
+        return sql.filters(cfg -> cfg.setBehavior(LogicalDeletedBehavior.IGNORED)) // 回收站中的文件一并迁移
+                .createUpdate(table)
+                .set(table.storageKey(), newStorageKey)
+                .set(table.packOffset(), newPackOffset)
+                .where(table.bucket().eq(bucket))
+                .where(table.storageKey().eq(storageKey))
+                .where(table.packOffset().eq(packOffset))
+                .execute();
+    }
+
+    public int purgeDeletedPackEntries(String bucket, String storageKey, long deletedBefore) {
+        return sql.filters(cfg -> cfg.setBehavior(LogicalDeletedBehavior.IGNORED))
+                .createDelete(table)
+                .setMode(DeleteMode.PHYSICAL) // 数据已从打包对象中丢弃，不能再恢复
+                .where(table.bucket().eq(bucket))
+                .where(table.storageKey().eq(storageKey))
+                .where(table.deletedAt().lt(deletedBefore))
+                .execute();
+    }
+
     public List<FileView> listFileView(List<UUID> fileIds, UUID userId) {
         return sql.createQuery(table)
                 .where(table.id().in(fileIds))
@@ -10,6 +10,7 @@ import org.cloud.fs.entity.File;
 import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -20,6 +21,11 @@ public interface FileService {
      */
     File createFile(FileInput fileInput, UUID userId);
 
+    /**
+     * 批量创建文件
+     */
+    List<File> createFiles(List<FileInput> fileInputs, UUID userId);
+
     /**
      * 重命名文件
      */
@@ -60,6 +66,31 @@ public interface FileService {
      */
     List<FileRpcView> listFileRpcView(List<UUID> fileIds, UUID userId);
 
+    /**
+     * 根据内容哈希和大小查找用户文件的RPC视图
+     */
+    Optional<FileRpcView> findFileRpcViewByContent(String md5, String crc32c, long size, UUID userId);
+
+    /**
+     * 统计引用同一存储对象的文件数量
+     */
+    long countStorageReferences(String bucket, String storageKey);
+
+    /**
+     * 列出含有可回收空洞的打包对象
+     */
+    List<String> listReclaimablePacks(String bucket, long deletedBefore, int limit);
+
+    /**
+     * 列出引用打包对象的所有文件
+     */
+    List<FileRpcView> listPackEntries(String bucket, String storageKey);
+
+    /**
+     * 打包对象重写后迁移文件引用
+     */
+    long relocatePackEntries(String bucket, String storageKey, String newStorageKey, Map<Long, Long> offsets, long deletedBefore);
+
     /**
      * 获取用户已使用的存储空间
      */
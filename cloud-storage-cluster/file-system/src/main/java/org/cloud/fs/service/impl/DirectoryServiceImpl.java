@@ -28,6 +28,7 @@ public class DirectoryServiceImpl implements DirectoryService {
 
     private final DirectoryRepository directoryRepository;
     private final FileRepository fileRepository;
+    private final FileChangePublisher fileChangePublisher;
 
     private static final long DIRECTORY_SIZE_CACHE_HOURS = 6;
 
@@ -199,6 +200,7 @@ public class DirectoryServiceImpl implements DirectoryService {
 
         // 删除所有后代目录的文件
         fileRepository.deleteFilesByDirectoryIds(subDirectoryIds);
+        fileChangePublisher.userFilesChanged(userId);
 
         // 删除目录列表
         int affectedRowCount = directoryRepository.deleteDirectories(directoryIds);
@@ -234,6 +236,7 @@ public class DirectoryServiceImpl implements DirectoryService {
 
         // 恢复所有后代目录的文件
         fileRepository.recoverFilesByDirectoryIds(subDirectoryIds);
+        fileChangePublisher.userFilesChanged(userId);
 
         // 恢复目录列表
         int affectedRowCount = directoryRepository.recoverDirectories(directoryIds);
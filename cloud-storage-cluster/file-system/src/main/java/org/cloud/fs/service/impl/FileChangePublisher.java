@@ -0,0 +1,66 @@
+package org.cloud.fs.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.api.dto.FileChangeEvent;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.TypedJsonJacksonCodec;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 发布文件元数据变更事件 <br/>
+ * 在事务提交后发布，订阅方收到事件时重新查询即可读到新数据；发布失败只记录日志，订阅方的缓存仍会按有效期过期
+ */
+@Slf4j
+@Component
+public class FileChangePublisher {
+    private final RTopic topic;
+
+    public FileChangePublisher(RedissonClient redissonClient) {
+        this.topic = redissonClient.getTopic(FileChangeEvent.TOPIC, new TypedJsonJacksonCodec(FileChangeEvent.class));
+    }
+
+    /**
+     * 用户的部分文件发生变更
+     */
+    public void filesChanged(List<UUID> fileIds, UUID userId) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        publish(new FileChangeEvent(userId.toString(), fileIds.stream().map(UUID::toString).toList()));
+    }
+
+    /**
+     * 用户的文件批量变更，例如删除目录时删除其下所有文件
+     */
+    public void userFilesChanged(UUID userId) {
+        publish(new FileChangeEvent(userId.toString(), null));
+    }
+
+    private void publish(FileChangeEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    private void send(FileChangeEvent event) {
+        topic.publishAsync(event).whenComplete((receivers, e) -> {
+            if (e != null) {
+                log.warn("[FileChangePublisher] Failed to publish, userId={}, fileIds={}, error={}",
+                        event.getUserId(), event.getFileIds(), e.getMessage());
+            }
+        });
+    }
+}
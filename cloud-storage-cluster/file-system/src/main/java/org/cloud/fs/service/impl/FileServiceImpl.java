@@ -19,8 +19,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -28,6 +30,7 @@ import java.util.UUID;
 public class FileServiceImpl implements FileService {
     private final DirectoryRepository directoryRepository;
     private final FileRepository fileRepository;
+    private final FileChangePublisher fileChangePublisher;
 
     /**
      * 创建新文件
@@ -58,6 +61,46 @@ public class FileServiceImpl implements FileService {
         return newFile;
     }
 
+    /**
+     * 批量创建新文件，每个目录只校验一次归属
+     *
+     * @param fileInputs 文件元数据列表
+     * @param userId     当前操作用户 ID
+     * @return 创建的文件对象列表，顺序与输入一致
+     */
+    @Override
+    @Transactional
+    public List<File> createFiles(List<FileInput> fileInputs, UUID userId) throws AccessDeniedException {
+        if(fileInputs.isEmpty())
+            return List.of();
+
+        // 权限校验
+        List<UUID> directoryIds = fileInputs.stream()
+                .map(FileInput::getDirectoryId)
+                .distinct()
+                .toList();
+        for (UUID directoryId : directoryIds) {
+            if(directoryRepository.notOwns(userId, directoryId)) {
+                throw new AccessDeniedException();
+            }
+        }
+
+        // 检查文件名称是否合法
+        for (FileInput fileInput : fileInputs) {
+            String name = fileInput.getName().trim();
+            fileInput.setName(name);
+            if(name.isBlank()) {
+                throw new InvalidFileNameException();
+            }
+        }
+
+        List<File> newFiles = fileRepository.createFiles(fileInputs, userId);
+
+        log.info("[createFiles] directoryIds={}, fileCount={}, userId={}", directoryIds, newFiles.size(), userId);
+
+        return newFiles;
+    }
+
     /**
      * 重命名文件
      *
@@ -75,6 +118,7 @@ public class FileServiceImpl implements FileService {
         }
 
         int affectedRowCount = fileRepository.renameFile(fileId, newName, userId);
+        fileChangePublisher.filesChanged(List.of(fileId), userId);
         log.info("[renameFile] fileId={}, newName={}, userId={}", fileId, newName, userId);
 
         return affectedRowCount == 1;
@@ -94,6 +138,7 @@ public class FileServiceImpl implements FileService {
             return 0;
 
         int affectedRowCount = fileRepository.deleteFiles(fileIds, userId);
+        fileChangePublisher.filesChanged(fileIds, userId);
         log.info("[deleteFiles] fileIds={}, userId={}", fileIds, userId);
 
         return affectedRowCount;
@@ -120,6 +165,7 @@ public class FileServiceImpl implements FileService {
         }
 
         int affectedRowCount = fileRepository.recoverFiles(fileIds, targetDirectoryId, userId);
+        fileChangePublisher.filesChanged(fileIds, userId);
         log.info("[recoverFiles] fileIds={}, targetDirectoryId={}, userId={}", fileIds, targetDirectoryId, userId);
 
         return affectedRowCount;
@@ -176,6 +222,7 @@ public class FileServiceImpl implements FileService {
         fileRepository.validateFileNames(fileIds, targetDirectoryId);
 
         int affectedRowCount = fileRepository.moveFiles(fileIds, targetDirectoryId, userId);
+        fileChangePublisher.filesChanged(fileIds, userId);
         log.info("[moveFiles] fileIds={}, newDirectoryId={}, userId={}", fileIds, targetDirectoryId, userId);
 
         return affectedRowCount;
@@ -217,6 +264,90 @@ public class FileServiceImpl implements FileService {
         return fileRepository.listFileRpcView(fileIds, userId);
     }
 
+    /**
+     * 根据内容哈希和大小查找用户文件的RPC视图，多个文件共享同一存储对象时返回任意一个 <br/>
+     * 客户端分片上传的文件没有 MD5，提供 CRC32C 时这类文件按 CRC32C 匹配
+     *
+     * @param md5 文件内容的 MD5
+     * @param crc32c 文件内容的 CRC32C（十六进制），可为 null
+     * @param size 文件大小，单位：字节
+     * @param userId 文件所属用户的 ID
+     * @return 文件的RPC视图
+     */
+    @Override
+    public Optional<FileRpcView> findFileRpcViewByContent(String md5, String crc32c, long size, UUID userId) {
+        if(md5 == null || md5.isBlank()) {
+            return Optional.empty();
+        }
+        String normalizedCrc32c = crc32c == null || crc32c.isBlank() ? null : crc32c.toLowerCase();
+        return Optional.ofNullable(fileRepository.findFileRpcViewByContent(md5.toLowerCase(), normalizedCrc32c, size, userId));
+    }
+
+    /**
+     * 统计引用同一存储对象的文件数量，回收站中的文件仍持有引用
+     *
+     * @param bucket 存储桶
+     * @param storageKey 存储键
+     * @return 引用数量
+     */
+    @Override
+    public long countStorageReferences(String bucket, String storageKey) {
+        return fileRepository.countByStorageKey(bucket, storageKey);
+    }
+
+    /**
+     * 列出含有可回收空洞的打包对象，即存在删除时间早于指定时间的文件
+     *
+     * @param bucket 存储桶
+     * @param deletedBefore 删除时间早于该时间（毫秒时间戳）的文件视为空洞
+     * @param limit 数量上限
+     * @return 打包对象的存储键
+     */
+    @Override
+    public List<String> listReclaimablePacks(String bucket, long deletedBefore, int limit) {
+        return fileRepository.listReclaimablePackKeys(bucket, deletedBefore, limit);
+    }
+
+    /**
+     * 列出引用打包对象的所有文件，包含回收站中的文件
+     *
+     * @param bucket 存储桶
+     * @param storageKey 打包对象的存储键
+     * @return 文件的RPC视图列表
+     */
+    @Override
+    public List<FileRpcView> listPackEntries(String bucket, String storageKey) {
+        return fileRepository.listPackEntries(bucket, storageKey);
+    }
+
+    /**
+     * 打包对象重写后迁移文件引用，物理删除已成为空洞的文件，其余文件指向新的打包对象；
+     * 只为存储位置改变的文件发布变更事件，物理删除的文件已在回收站中，不会被下载
+     *
+     * @param bucket 存储桶
+     * @param storageKey 原打包对象的存储键
+     * @param newStorageKey 新打包对象的存储键
+     * @param offsets 原偏移到新偏移的映射
+     * @param deletedBefore 删除时间早于该时间的文件被物理删除
+     * @return 迁移后仍引用原打包对象的文件数量
+     */
+    @Override
+    @Transactional
+    public long relocatePackEntries(String bucket, String storageKey, String newStorageKey, Map<Long, Long> offsets, long deletedBefore) {
+        List<FileRpcView> entries = offsets.isEmpty() ? List.of() : fileRepository.listPackEntries(bucket, storageKey);
+        fileRepository.purgeDeletedPackEntries(bucket, storageKey, deletedBefore);
+        offsets.forEach((offset, newOffset) ->
+                fileRepository.relocatePackEntry(bucket, storageKey, offset, newStorageKey, newOffset));
+
+        entries.stream() // 打包对象中的文件属于多个用户，按用户分别发布
+                .filter(entry -> offsets.containsKey(entry.getPackOffset()))
+                .filter(entry -> entry.getDeletedAt() == null || entry.getDeletedAt() >= deletedBefore)
+                .collect(Collectors.groupingBy(FileRpcView::getUserId,
+                        Collectors.mapping(FileRpcView::getId, Collectors.toList())))
+                .forEach((userId, fileIds) -> fileChangePublisher.filesChanged(fileIds, userId));
+        return fileRepository.countByStorageKey(bucket, storageKey);
+    }
+
     /**
      * 获取用户已使用的存储空间
      *
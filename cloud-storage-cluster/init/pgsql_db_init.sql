@@ -82,10 +82,14 @@ CREATE TABLE file (
     user_id      UUID REFERENCES users(id),
     bucket       VARCHAR(32)  NOT NULL,
     storage_key  VARCHAR(1024) NOT NULL,
+    pack_offset  BIGINT DEFAULT NULL,
     name         VARCHAR(1024) NOT NULL,
     mime_type    VARCHAR(127),
     size         BIGINT NOT NULL,
+    content_encoding VARCHAR(16) DEFAULT NULL,
+    stored_size  BIGINT DEFAULT NULL,
     md5          VARCHAR(32),
+    crc32c       VARCHAR(8),
     deleted_at   BIGINT DEFAULT NULL,
     created_at   BIGINT NOT NULL DEFAULT TRUNC(EXTRACT(EPOCH FROM NOW()) * 1000),
     updated_at   BIGINT NOT NULL DEFAULT TRUNC(EXTRACT(EPOCH FROM NOW()) * 1000),
@@ -97,10 +101,14 @@ COMMENT ON COLUMN file.directory_id IS '文件所在目录的 ID';
 COMMENT ON COLUMN file.user_id      IS '文件所属用户的ID';
 COMMENT ON COLUMN file.bucket       IS '存储该文件的 Minio 存储桶';
 COMMENT ON COLUMN file.storage_key  IS '文件在 Minio 的固定扁平存储键，在首次创建文件时按特定规则分配';
+COMMENT ON COLUMN file.pack_offset  IS '打包存储时文件在打包对象中的字节偏移，独立存储时为 NULL';
 COMMENT ON COLUMN file.name         IS '文件名称，包括文件扩展名';
 COMMENT ON COLUMN file.mime_type    IS '文件类型';
 COMMENT ON COLUMN file.size         IS '文件大小，单位: 字节';
+COMMENT ON COLUMN file.content_encoding IS '存储编码，如 gzip，原样存储时为 NULL';
+COMMENT ON COLUMN file.stored_size  IS '编码后实际存储的字节数，原样存储时为 NULL';
 COMMENT ON COLUMN file.md5          IS '文件的MD5哈希值';
+COMMENT ON COLUMN file.crc32c       IS '文件的CRC32C校验和，十六进制';
 COMMENT ON COLUMN file.deleted_at   IS '文件删除时间';
 COMMENT ON COLUMN file.created_at   IS '文件的创建时间';
 COMMENT ON COLUMN file.updated_at   IS '文件的修改时间';
@@ -110,6 +118,8 @@ CREATE INDEX idx_file_directory_id ON file(directory_id);
 CREATE INDEX idx_file_user_id      ON file(user_id);
 CREATE INDEX idx_file_storage_key  ON file(storage_key);
 CREATE INDEX idx_file_filename     ON file(name);
+CREATE INDEX idx_file_user_md5_size ON file(user_id, md5, size);
+CREATE INDEX idx_file_pack_deleted ON file(deleted_at) WHERE pack_offset IS NOT NULL;
 
 -- 文件表触发器
 CREATE TRIGGER update_file_updated_at
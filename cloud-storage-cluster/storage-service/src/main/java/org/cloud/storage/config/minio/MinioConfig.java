@@ -6,6 +6,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
 
 @Data
 @Configuration
@@ -13,6 +15,7 @@ import org.springframework.context.annotation.Configuration;
 public class MinioConfig {
 
     @Bean
+    @Primary
     public MinioClient minioClient(MinioProperties props) {
         return MinioClient.builder()
                 .endpoint(props.getEndpoint())
@@ -20,6 +23,18 @@ public class MinioConfig {
                 .build();
     }
 
+    /**
+     * 生成预签名 URL 的客户端，签名包含 Host，必须使用客户端可访问的地址；只在本地计算签名，不发起请求
+     */
+    @Bean
+    public MinioClient presignMinioClient(MinioProperties props) {
+        return MinioClient.builder()
+                .endpoint(StringUtils.hasText(props.getPublicEndpoint()) ? props.getPublicEndpoint() : props.getEndpoint())
+                .region(props.getRegion())
+                .credentials(props.getAccessKey(), props.getSecretKey())
+                .build();
+    }
+
     @Bean
     public MinioAsyncClient minioAsyncClient(MinioProperties props) {
         return MinioAsyncClient.builder()
@@ -7,6 +7,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "minio")
 public class MinioProperties {
     private String endpoint = "http://127.0.0.1:9000";
+    private String publicEndpoint; // 客户端访问对象存储的地址，用于生成预签名 URL，为空时使用 endpoint
+    private String region = "us-east-1"; // 预签名时使用的区域，避免查询存储桶所在区域
     private String accessKey;
     private String secretKey;
     private String storageBucket = "default-storage";
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "transfer")
@@ -11,12 +14,36 @@ public class FileTransferConfig {
     /** 多文件上传配置 */
     private MultiFileUploadConfig multiFileConfig = new MultiFileUploadConfig();
 
+    /** 大文件并行分片上传配置 */
+    private ParallelUploadConfig parallelUploadConfig = new ParallelUploadConfig();
+
     /** 分块上传配置 */
     private ChunkedUploadConfig chunkedUploadConfig = new ChunkedUploadConfig();
 
+    /** 上传内存额度配置 */
+    private UploadMemoryConfig uploadMemoryConfig = new UploadMemoryConfig();
+
     /** 文件下载配置 */
     private DownloadConfig downloadConfig = new DownloadConfig();
 
+    /** 用户带宽限速配置 */
+    private BandwidthConfig bandwidthConfig = new BandwidthConfig();
+
+    /** 孤立分片上传清理配置 */
+    private MultipartReaperConfig multipartReaperConfig = new MultipartReaperConfig();
+
+    /** 小文件打包存储配置 */
+    private PackConfig packConfig = new PackConfig();
+
+    /** 存储端压缩配置 */
+    private CompressionConfig compressionConfig = new CompressionConfig();
+
+    /** 热点对象本地磁盘缓存配置 */
+    private DiskCacheConfig diskCacheConfig = new DiskCacheConfig();
+
+    /** 上传完成后是否查询 MinIO 校验对象大小，关闭时直接使用上传过程中统计的大小 */
+    private boolean verifyObjectSize = false;
+
     @Data
     public static class MultiFileUploadConfig {
         /**
@@ -29,11 +56,6 @@ public class FileTransferConfig {
          */
         private int streamThreshold = 100 * 1024 * 1024;
 
-        /**
-         * 流式上传的缓冲区大小
-         */
-        private int streamBufferSize = 16 * 1024;
-
         /**
          * 多文件上传时，最大并发处理文件数
          */
@@ -55,10 +77,21 @@ public class FileTransferConfig {
         private long batchTimeoutMinutes = 10;
 
         /**
-         * 流式上传预取数量，背压机制下的预取缓冲区数量，平衡吞吐量和内存占用
+         * 流式上传预取数量，单个文件同时上传中的分片数，平衡吞吐量和内存占用 <br/>
+         * 单个文件最多驻留 (streamPrefetch + 1) * memoryThreshold 字节
          */
         private int streamPrefetch = 4;
 
+        /**
+         * 文件元数据批量写入的最大文件数，凑满即通过一次 RPC 写入
+         */
+        private int metadataBatchSize = 50;
+
+        /**
+         * 文件元数据批量写入的最长等待时间（毫秒），未凑满时到期也会写入
+         */
+        private long metadataBatchWindowMillis = 200;
+
         /**
          * 缓冲区溢出策略, 背压缓冲区满时的处理策略：<br/>
          * - DROP_OLDEST: 丢弃最旧的任务（优先保证新任务）<br/>
@@ -67,6 +100,25 @@ public class FileTransferConfig {
         private String overflowStrategy = "DROP_OLDEST";
     }
 
+    @Data
+    public static class ParallelUploadConfig {
+        /**
+         * 多文件上传中，超过流式上传阈值的大文件在服务端切分的分片大小（字节），不小于 5MB
+         */
+        private int partSizeBytes = 16 * 1024 * 1024;
+
+        /**
+         * 单个文件同时上传到 MinIO 的最大分片数
+         */
+        private int partConcurrency = 4;
+
+        /**
+         * 单个文件驻留内存的分片总大小上限（字节），包含正在切分的分片，会进一步限制分片并发数；
+         * 不能小于分片大小的两倍，否则启动失败
+         */
+        private long maxInFlightBytes = 128 * 1024 * 1024;
+    }
+
     @Data
     public static class ChunkedUploadConfig {
         /**
@@ -75,9 +127,57 @@ public class FileTransferConfig {
         private int maxChunkSizeBytes = 100 * 1024 * 1024;
 
         /**
-         * 单分片上传超时（分钟）
+         * 单分片上传到 MinIO 的超时（分钟），不包含接收客户端数据的时间
          */
         private long chunkTimeoutMinutes = 1;
+
+        /**
+         * 分片落盘阈值（字节），超过该大小或上传内存额度不足时，分片写入临时文件，不在堆内驻留
+         */
+        private long memorySpillThresholdBytes = 8 * 1024 * 1024;
+
+        /**
+         * 本地缓存的分片上传任务元数据条数上限
+         */
+        private long sessionCacheSize = 10_000;
+
+        /**
+         * 分片上传任务元数据在本地缓存的闲置过期时间（分钟）
+         */
+        private long sessionCacheMinutes = 30;
+
+        /**
+         * 分片直传计划的最小分片大小（字节），不能小于对象存储要求的 5MB
+         */
+        private long presignedMinPartSizeBytes = 16 * 1024 * 1024;
+
+        /**
+         * 分片直传计划的最大分片数量，对象存储限制为 10000
+         */
+        private int presignedMaxPartCount = 10_000;
+
+        /**
+         * 预签名上传地址的有效时长（分钟），过期后可重新获取上传计划
+         */
+        private int presignedUrlExpiryMinutes = 360;
+    }
+
+    @Data
+    public static class UploadMemoryConfig {
+        /**
+         * 所有上传中数据驻留内存的总上限（字节），包括内存直传、流式分片、头像和分片上传
+         */
+        private long capacityBytes = 256 * 1024 * 1024;
+
+        /**
+         * 额度不足时的最长排队时间（毫秒），超时返回 503
+         */
+        private long maxWaitMillis = 3000;
+
+        /**
+         * 返回 503 时建议客户端的重试间隔（秒），写入 Retry-After 响应头
+         */
+        private long retryAfterSeconds = 5;
     }
 
     @Data
@@ -98,8 +198,312 @@ public class FileTransferConfig {
         private long maxZipBatchSizeBytes = 1024 * 1024 * 1024;
 
         /**
-         * ZIP打包超时（分钟）
+         * ZIP打包超时（分钟），仅用于先写临时文件的打包方式
          */
         private long zipPackagingTimeoutMinutes = 10;
+
+        /**
+         * 是否边读取文件边输出 ZIP，不写临时文件；关闭时先打包到临时文件再下载
+         */
+        private boolean zipStreamingEnabled = true;
+
+        /**
+         * 流式 ZIP 中压缩条目的 deflate 级别（1-9），已压缩格式的文件不压缩直接存储
+         */
+        private int zipDeflateLevel = 6;
+
+        /**
+         * 流式 ZIP 同时读取和压缩的文件数，后续文件提前并行读取，仍按顺序写入 ZIP
+         */
+        private int zipReadAheadEntries = 8;
+
+        /**
+         * 流式 ZIP 单个文件预读的字节上限，不超过该大小的文件整体读入内存，更大的文件轮到写入时才开始读取；
+         * 单个下载最多驻留约 zipReadAheadEntries * zipReadAheadBytes 字节
+         */
+        private int zipReadAheadBytes = 4 * 1024 * 1024;
+
+        /**
+         * ZIP 归档缓存目录，重启后继续使用其中的归档；启动时会清理目录中的临时文件，需为归档缓存专用，无法创建时启动失败
+         */
+        private String zipCacheDir = "tmp";
+
+        /**
+         * ZIP 归档缓存的磁盘额度（字节），超出时淘汰最久未访问的归档
+         */
+        private long zipCacheCapacityBytes = 10L * 1024 * 1024 * 1024;
+
+        /**
+         * ZIP 归档闲置超过该时间（分钟）后删除
+         */
+        private long zipCacheMaxIdleMinutes = 30;
+
+        /**
+         * 是否经 WebClient 非阻塞读取对象，关闭时使用 MinIO SDK 的阻塞 InputStream，每个下载占用一个线程
+         */
+        private boolean asyncReadEnabled = true;
+
+        /**
+         * 非阻塞读取对象的最大连接数，超出的请求排队等待连接
+         */
+        private int objectReadMaxConnections = 1000;
+
+        /**
+         * 非阻塞读取对象时等待首个数据块的超时（秒），也是等待空闲连接的最长时间；不限制之后的传输
+         */
+        private long objectReadResponseTimeoutSeconds = 30;
+
+        /**
+         * 非阻塞读取对象时连接上没有数据读入的最长时间（分钟），客户端下载慢时暂停读取也计入，
+         * 只用于回收 MinIO 无响应的连接，需远大于客户端正常的停顿
+         */
+        private long objectReadIdleTimeoutMinutes = 10;
+
+        /**
+         * 是否合并同一文件的并发完整读取，共享一个 MinIO 请求
+         */
+        private boolean coalesceEnabled = true;
+
+        /**
+         * 合并读取的窗口（数据块数），对象读取的数据块通常为数 KB 到数十 KB；
+         * 共享读取发出的数据块超过该数量后，新的请求不再加入；订阅者积压超过该数量时改为单独读取剩余部分
+         */
+        private int coalesceReplayChunks = 64;
+
+        /**
+         * 是否缓存下载使用的文件元数据，文件变更时由文件系统服务的事件使缓存失效
+         */
+        private boolean metadataCacheEnabled = true;
+
+        /**
+         * 文件元数据缓存的有效期（秒），用于兜底丢失的变更事件
+         */
+        private long metadataCacheTtlSeconds = 60;
+
+        /**
+         * 文件元数据缓存的最大条目数
+         */
+        private long metadataCacheMaxEntries = 100_000;
+
+        /**
+         * 是否允许大文件重定向到预签名地址下载，由客户端直连 MinIO，服务只查询元数据；只对下载不限速的用户等级生效
+         */
+        private boolean redirectEnabled = false;
+
+        /**
+         * 重定向下载的文件大小阈值（字节），不小于该大小的文件才重定向
+         */
+        private long redirectThresholdBytes = 64 * 1024 * 1024;
+
+        /**
+         * 预签名下载地址的有效时长（秒）
+         */
+        private int redirectUrlExpirySeconds = 300;
+    }
+
+    @Data
+    public static class BandwidthConfig {
+        /**
+         * 是否启用用户带宽限速
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每条数据流单次从 Redis 领取的令牌数（字节），越大 Redis 往返越少，限速越粗糙
+         */
+        private long leaseBytes = 256 * 1024;
+
+        /**
+         * 用户等级的本地缓存时间（分钟）
+         */
+        private long tierCacheMinutes = 10;
+
+        /**
+         * 用户等级列表，按存储容量配额匹配满足 minStorageCapacityBytes 的最高等级
+         */
+        private List<BandwidthTier> tiers = new ArrayList<>();
+    }
+
+    @Data
+    public static class BandwidthTier {
+        /**
+         * 等级名称
+         */
+        private String name;
+
+        /**
+         * 该等级要求的最小存储容量配额（字节）
+         */
+        private long minStorageCapacityBytes;
+
+        /**
+         * 上传限速（字节/秒），不大于 0 表示不限速
+         */
+        private long uploadBytesPerSecond;
+
+        /**
+         * 下载限速（字节/秒），不大于 0 表示不限速
+         */
+        private long downloadBytesPerSecond;
+    }
+
+    @Data
+    public static class MultipartReaperConfig {
+        /**
+         * 是否启用孤立分片上传清理
+         */
+        private boolean enabled = true;
+
+        /**
+         * 清理间隔（分钟）
+         */
+        private long intervalMinutes = 60;
+
+        /**
+         * 最小存活时间（分钟），创建时间更晚的分片上传不清理，需大于服务端流式上传的最长耗时
+         */
+        private long minAgeMinutes = 60;
+
+        /**
+         * 每页列出的分片上传数量
+         */
+        private int pageSize = 1000;
+
+        /**
+         * 同时终止的分片上传数量
+         */
+        private int concurrency = 4;
+
+        /**
+         * 每秒最多终止的分片上传数量
+         */
+        private int abortsPerSecond = 20;
+
+        /**
+         * 分布式锁的租期（分钟），也是单次清理的最长耗时
+         */
+        private long lockLeaseMinutes = 30;
+    }
+
+    @Data
+    public static class PackConfig {
+        /**
+         * 是否将小文件打包写入聚合对象
+         */
+        private boolean enabled = false;
+
+        /**
+         * 打包存储的文件大小上限（字节），不超过该大小的文件写入打包对象
+         */
+        private long maxFileSizeBytes = 64 * 1024;
+
+        /**
+         * 打包对象的目标大小（字节），达到该大小立即写入
+         */
+        private long targetPackSizeBytes = 8 * 1024 * 1024;
+
+        /**
+         * 打包对象的最长等待时间（毫秒），未达到目标大小时到期写入
+         */
+        private long flushDelayMillis = 200;
+
+        /**
+         * 是否启用打包对象压实
+         */
+        private boolean compactionEnabled = true;
+
+        /**
+         * 压实间隔（分钟）
+         */
+        private long compactionIntervalMinutes = 60;
+
+        /**
+         * 删除超过该天数的文件视为空洞，其数据在压实时丢弃且无法再从回收站恢复
+         */
+        private long reclaimDeletedAfterDays = 30;
+
+        /**
+         * 存活数据占比低于该值的打包对象会被重写
+         */
+        private double maxLiveRatio = 0.5;
+
+        /**
+         * 单次压实处理的打包对象数量上限
+         */
+        private int compactionBatchSize = 100;
+
+        /**
+         * 分布式锁的租期（分钟），也是单次压实的最长耗时
+         */
+        private long lockLeaseMinutes = 30;
+    }
+
+    @Data
+    public static class CompressionConfig {
+        /**
+         * 是否在存储端压缩可压缩类型的文件
+         */
+        private boolean enabled = false;
+
+        /**
+         * gzip 压缩级别（1-9），级别越高压缩率越高、CPU 开销越大
+         */
+        private int level = 6;
+
+        /**
+         * 小于该大小（字节）的文件不压缩
+         */
+        private long minSizeBytes = 1024;
+
+        /**
+         * 可压缩的 MIME 类型，以 / 结尾的项按前缀匹配
+         */
+        private List<String> mimeTypes = new ArrayList<>(List.of(
+                "text/",
+                "application/json",
+                "application/x-ndjson",
+                "application/xml",
+                "application/javascript",
+                "application/csv",
+                "image/svg+xml"
+        ));
+    }
+
+    @Data
+    public static class DiskCacheConfig {
+        /**
+         * 是否把热点对象缓存到本节点磁盘
+         */
+        private boolean enabled = false;
+
+        /**
+         * 缓存目录，启动时清空，建议放在本地 SSD 上
+         */
+        private String dir = "cache/objects";
+
+        /**
+         * 缓存总大小上限（字节），超过时按访问顺序淘汰
+         */
+        private long capacityBytes = 50L * 1024 * 1024 * 1024;
+
+        /**
+         * 小于该大小（字节）的对象不缓存，小对象从 MinIO 读取的开销主要在请求本身
+         */
+        private long minObjectSizeBytes = 1024 * 1024;
+
+        /**
+         * 大于该大小（字节）的对象不缓存，避免单个对象挤占大部分缓存
+         */
+        private long maxObjectSizeBytes = 4L * 1024 * 1024 * 1024;
+
+        /**
+         * 预计跟踪访问频率的对象数量，决定频率统计占用的内存（每个对象约 4 字节）
+         */
+        private int expectedObjects = 100_000;
+
+        /**
+         * 准入所需的最低访问次数，只下载一次的对象不写入缓存
+         */
+        private int admissionMinFrequency = 2;
     }
 }
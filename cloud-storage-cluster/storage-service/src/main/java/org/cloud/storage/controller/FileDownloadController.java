@@ -8,12 +8,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.cloud.storage.service.FileDownloadService;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -29,16 +27,18 @@ public class FileDownloadController {
 
     @GetMapping("/{fileId}")
     @Operation(summary = "单文件流式下载", description = "支持大文件的流式传输，文件内容不会一次性加载到内存")
-    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadFile(
+    public Mono<ResponseEntity<?>> downloadFile(
             @Parameter(description = "文件ID") @PathVariable UUID fileId,
-            @Parameter(description = "用户 ID", required = true) @RequestHeader(value = "UID") UUID uid
+            @Parameter(description = "用户 ID", required = true) @RequestHeader(value = "UID") UUID uid,
+            @Parameter(description = "客户端接受的内容编码") @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @Parameter(hidden = true) @RequestHeader HttpHeaders headers
     ) {
-        return fileDownloadService.downloadFile(fileId, uid);
+        return fileDownloadService.downloadFile(fileId, uid, acceptEncoding, headers);
     }
 
     @GetMapping("/{fileId}/part")
     @Operation(summary = "文件分片下载（支持断点续传）", description = "支持 HTTP Range 请求，实现断点续传和随机访问")
-    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadPart(
+    public Mono<ResponseEntity<?>> downloadPart(
             @Parameter(description = "文件ID") @PathVariable UUID fileId,
             @Parameter(description = "用户 ID", required = true) @RequestHeader(value = "UID") UUID uid,
             @Parameter(
@@ -60,14 +60,15 @@ public class FileDownloadController {
                                     value = "bytes=-1048576"
                             ),
                     }
-            ) @RequestHeader(value = "Range", required = false) String range
+            ) @RequestHeader(value = "Range", required = false) String range,
+            @Parameter(hidden = true) @RequestHeader HttpHeaders headers
     ) {
-        return fileDownloadService.downloadPart(fileId, uid, range);
+        return fileDownloadService.downloadPart(fileId, uid, range, headers);
     }
 
     @GetMapping("/zip")
     @Operation(summary = "多文件打包ZIP下载", description = "将多个文件打包成 ZIP 格式流式下载, 文件数量建议不超过 100, zip过大会拒绝，文件名为 download_(hash).zip")
-    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadFilesAsZip(
+    public Mono<ResponseEntity<?>> downloadFilesAsZip(
             @Parameter(description = "文件ID列表") @RequestParam List<UUID> fileIds,
             @Parameter(description = "用户 ID", required = true) @RequestHeader(value = "UID") UUID uid
     ) {
@@ -10,7 +10,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.cloud.api.dto.FileInputDTO;
 import org.cloud.storage.dto.*;
 import org.cloud.storage.service.FileUploadService;
 import org.springframework.core.io.buffer.DataBuffer;
@@ -27,7 +26,7 @@ import java.util.UUID;
 @RestController
 @RequestMapping("/api/v1/storage/upload")
 @RequiredArgsConstructor
-@Tag(name = "文件上传 API", description = "支持多文件上传(<100MB)、大文件分片上传(>100MB)")
+@Tag(name = "文件上传 API", description = "支持多文件上传、大文件分片上传(>100MB)")
 public class FileUploadController {
     private final FileUploadService fileUploadService;
 
@@ -35,12 +34,12 @@ public class FileUploadController {
             value = "/files",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE
     )
-    @Operation(summary = "多文件上传", description = "支持多个中小型文件的上传，根据文件大小自动选择最优上传策略, 文件大小不能超过100MB")
+    @Operation(summary = "多文件上传", description = "支持多个文件的上传，根据文件大小自动选择最优上传策略, 超过100MB的文件在服务端切分为分片并行上传")
     public Mono<ApiResponse<List<FileUploadResult>>> uploadFiles(
         @Parameter(
                 description = "文件列表",
                 array = @ArraySchema(
-                        schema = @Schema(type = "string", format = "binary", description = "单个文件，最大100MB")
+                        schema = @Schema(type = "string", format = "binary", description = "单个文件")
                 ),
                 explode = Explode.TRUE,
                 required = true
@@ -53,6 +52,16 @@ public class FileUploadController {
                 .defaultIfEmpty(ApiResponse.failure(400, "未上传文件，请选择要上传的文件"));
     }
 
+    @PostMapping("/instant")
+    @Operation(summary = "秒传探测", description = "上传前提交完整文件的MD5、CRC32C（可选）和大小，命中本用户已存储的内容时直接创建文件，未命中时需正常上传")
+    public Mono<ApiResponse<InstantUploadResult>> instantUpload(
+        @Valid @RequestBody InstantUploadRequest request,
+        @Parameter(description = "用户 ID") @RequestHeader(value = "UID") UUID uid
+    ) {
+        return fileUploadService.instantUpload(request, uid)
+                .map(ApiResponse::success);
+    }
+
     @PostMapping("/multipart/init")
     @Operation(summary = "初始化分片上传", description = "分片上传初始化，返回上传ID")
     public Mono<ApiResponse<String>> initMultipartUpload(
@@ -80,16 +89,61 @@ public class FileUploadController {
                 .map(ApiResponse::success);
     }
 
+    @GetMapping("/multipart/{uploadId}/parts")
+    @Operation(summary = "查询已上传分片", description = "返回按编号升序排列的已上传分片，断点续传时只需补传缺失的分片")
+    public Mono<ApiResponse<List<PartUploadResult>>> listUploadedParts(
+            @Parameter(description = "上传ID") @PathVariable("uploadId") String uploadId,
+            @Parameter(description = "用户 ID") @RequestHeader(value = "UID") UUID uid) {
+        return fileUploadService.listUploadedParts(uploadId, uid)
+                .map(ApiResponse::success);
+    }
+
     @PostMapping("/multipart/complete")
     @Operation(summary = "完成分片上传", description = "合并分片并完成分片上传")
     public Mono<ApiResponse<String>> completeMultipartUpload(
             @Parameter(description = "上传ID") @RequestParam("uploadId") String uploadId,
             @Parameter(description = "用户 ID") @RequestHeader(value = "UID") UUID uid) {
         return fileUploadService.completeMultipartUpload(uploadId, uid)
-                .map(FileInputDTO::getMd5)
+                .map(file -> ApiResponse.success(file.getMd5())); // 多分片文件没有 MD5
+    }
+
+    @PostMapping("/multipart/plan")
+    @Operation(summary = "获取分片直传计划", description = "按文件大小确定分片大小，返回各分片的预签名上传地址，客户端直接上传到对象存储")
+    public Mono<ApiResponse<MultipartUploadPlan>> planMultipartUpload(
+        @Valid @RequestBody InitMultipartUploadRequest request,
+        @Parameter(description = "用户 ID") @RequestHeader(value = "UID") UUID uid
+    ) {
+        return fileUploadService.planMultipartUpload(request, uid)
+                .map(ApiResponse::success);
+    }
+
+    @GetMapping("/multipart/{uploadId}/plan")
+    @Operation(summary = "刷新分片直传计划", description = "上传地址过期后重新获取各分片的预签名上传地址")
+    public Mono<ApiResponse<MultipartUploadPlan>> getMultipartUploadPlan(
+            @Parameter(description = "上传ID") @PathVariable("uploadId") String uploadId,
+            @Parameter(description = "用户 ID") @RequestHeader(value = "UID") UUID uid) {
+        return fileUploadService.getMultipartUploadPlan(uploadId, uid)
                 .map(ApiResponse::success);
     }
 
+    @PostMapping("/multipart/plan/complete")
+    @Operation(summary = "完成分片直传", description = "校验客户端提交的分片 ETag 后合并分片")
+    public Mono<ApiResponse<String>> completePresignedUpload(
+            @Valid @RequestBody CompleteMultipartUploadRequest request,
+            @Parameter(description = "用户 ID") @RequestHeader(value = "UID") UUID uid) {
+        return fileUploadService.completePresignedUpload(request, uid)
+                .map(file -> ApiResponse.success(file.getMd5())); // 多分片文件没有 MD5
+    }
+
+    @DeleteMapping("/multipart/{uploadId}")
+    @Operation(summary = "终止分片上传", description = "终止分片上传并丢弃已上传的分片")
+    public Mono<ApiResponse<Void>> abortMultipartUpload(
+            @Parameter(description = "上传ID") @PathVariable("uploadId") String uploadId,
+            @Parameter(description = "用户 ID") @RequestHeader(value = "UID") UUID uid) {
+        return fileUploadService.abortMultipartUpload(uploadId, uid)
+                .then(Mono.fromSupplier(ApiResponse::success));
+    }
+
     @PostMapping(value = "/avatar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "上传用户头像", description = "上传用户头像图片，支持 JPG、PNG、GIF 格式，文件大小限制 1MB")
     public Mono<String> uploadAvatar(
@@ -6,8 +6,13 @@ import org.cloud.storage.dto.ApiResponse;
 import org.cloud.storage.exception.AvatarUploadException;
 import org.cloud.storage.exception.BatchZipDownloadException;
 import org.cloud.storage.exception.FileRangeDownloadException;
+import org.cloud.storage.exception.InstantUploadException;
 import org.cloud.storage.exception.MultipartUploadException;
+import org.cloud.storage.exception.UploadOverloadedException;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -48,6 +53,22 @@ public class GlobalExceptionHandler {
         return Mono.just(ApiResponse.failure(500, e.getMessage()));
     }
 
+    @ExceptionHandler(InstantUploadException.class)
+    @ResponseBody
+    public Mono<ApiResponse<Void>> handleInstantUploadException(InstantUploadException e) {
+        return Mono.just(ApiResponse.failure(500, e.getMessage()));
+    }
+
+    @ExceptionHandler(UploadOverloadedException.class)
+    @ResponseBody
+    public Mono<ResponseEntity<ApiResponse<Void>>> handleUploadOverloadedException(UploadOverloadedException e) {
+        return Mono.just(
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                        .body(ApiResponse.failure(503, e.getMessage()))
+        );
+    }
+
     // 参数校验异常
     @ExceptionHandler({MethodArgumentNotValidException.class})
     @ResponseBody
@@ -0,0 +1,27 @@
+package org.cloud.storage.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "完成分片直传的请求参数")
+public class CompleteMultipartUploadRequest implements Serializable {
+    @NotBlank(message = "上传ID不能为空")
+    @Schema(description = "上传ID")
+    private String uploadId;
+
+    @NotEmpty(message = "分片列表不能为空")
+    @Schema(description = "客户端上传各分片时对象存储返回的 ETag")
+    private List<PartUploadResult> parts;
+}
@@ -0,0 +1,48 @@
+package org.cloud.storage.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "秒传探测的请求参数")
+public class InstantUploadRequest implements Serializable {
+    @NotNull(message = "目录ID不能为空")
+    @Schema(description = "目录ID")
+    private UUID directoryId;
+
+    @NotBlank(message = "文件名称不能为空")
+    @Schema(description = "文件名称")
+    private String filename;
+
+    @NotNull(message = "文件大小不能为空")
+    @Min(value = 1, message = "文件大小不能小于1字节")
+    @Schema(description = "文件大小，单位：字节")
+    private Long size;
+
+    @NotBlank(message = "文件哈希不能为空")
+    @Pattern(regexp = "^[0-9a-fA-F]{32}$", message = "文件哈希必须为32位十六进制MD5")
+    @Schema(description = "完整文件内容的MD5哈希值")
+    private String md5;
+
+    @Pattern(regexp = "^[0-9a-fA-F]{8}$", message = "文件校验和必须为8位十六进制CRC32C")
+    @Schema(description = "完整文件内容的CRC32C（十六进制），提供时也能命中分片上传、没有MD5的文件")
+    private String crc32c;
+
+    @Size(max = 64, message = "内容类型长度不能超过64个字符")
+    @Schema(description = "文件的MIME类型，不提供时沿用已存储文件的类型")
+    private String contentType;
+}
@@ -0,0 +1,35 @@
+package org.cloud.storage.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "秒传探测结果")
+public class InstantUploadResult implements Serializable {
+    @Schema(description = "是否命中已存储的内容，命中时文件已创建，无需上传")
+    private Boolean hit;
+
+    @Schema(description = "命中时新建文件的ID")
+    private String fileId;
+
+    public static InstantUploadResult hit(String fileId) {
+        return InstantUploadResult.builder()
+                .hit(true)
+                .fileId(fileId)
+                .build();
+    }
+
+    public static InstantUploadResult miss() {
+        return InstantUploadResult.builder()
+                .hit(false)
+                .build();
+    }
+}
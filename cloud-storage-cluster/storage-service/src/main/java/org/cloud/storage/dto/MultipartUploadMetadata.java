@@ -17,5 +17,6 @@ public class MultipartUploadMetadata implements Serializable {
     private String filename;
     private String contentType;
     private Long fileSize;
+    private Long partSize; // 分片直传计划的分片大小，服务端中转上传时为空
     private Long createdAt;
 }
@@ -0,0 +1,32 @@
+package org.cloud.storage.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "分片直传计划，客户端按计划将各分片直接 PUT 到对象存储")
+public class MultipartUploadPlan implements Serializable {
+    @Schema(description = "上传ID")
+    private String uploadId;
+
+    @Schema(description = "分片大小（字节），最后一个分片可以小于该值")
+    private Long partSize;
+
+    @Schema(description = "分片数量")
+    private Integer partCount;
+
+    @Schema(description = "上传地址的过期时间（毫秒时间戳）")
+    private Long expiresAt;
+
+    @Schema(description = "各分片的预签名上传地址")
+    private List<PresignedPart> parts;
+}
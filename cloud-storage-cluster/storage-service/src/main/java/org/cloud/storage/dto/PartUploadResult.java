@@ -17,4 +17,10 @@ public class PartUploadResult {
 
     @Schema(description = "文件分片的MD5哈希值")
     private String etag;
+
+    @Schema(description = "文件分片大小（字节）")
+    private Long size;
+
+    @Schema(description = "文件分片内容的CRC32C（十六进制）")
+    private String crc32c;
 }
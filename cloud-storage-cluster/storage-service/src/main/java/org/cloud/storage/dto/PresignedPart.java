@@ -0,0 +1,22 @@
+package org.cloud.storage.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "分片的预签名上传地址")
+public class PresignedPart implements Serializable {
+    @Schema(description = "文件分片编号, 编号从 1 开始")
+    private Integer partNumber;
+
+    @Schema(description = "预签名 PUT 地址，响应头 ETag 即分片的 ETag")
+    private String url;
+}
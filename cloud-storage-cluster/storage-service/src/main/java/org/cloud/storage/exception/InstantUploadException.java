@@ -0,0 +1,7 @@
+package org.cloud.storage.exception;
+
+public class InstantUploadException extends RuntimeException {
+    public InstantUploadException(String message) {
+        super(message);
+    }
+}
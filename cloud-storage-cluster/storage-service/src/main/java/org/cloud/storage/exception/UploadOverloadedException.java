@@ -0,0 +1,16 @@
+package org.cloud.storage.exception;
+
+import lombok.Getter;
+
+/**
+ * 上传内存额度耗尽，客户端应在 retryAfterSeconds 秒后重试
+ */
+@Getter
+public class UploadOverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public UploadOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,193 @@
+package org.cloud.storage.schedule;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.ListMultipartUploadsResult;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+import io.minio.messages.Upload;
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.storage.config.minio.MinioProperties;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.service.impl.MultipartSessionCache;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 孤立分片上传清理 <br/>
+ * 分页列出存储桶中未完成的分片上传，Redis 中已没有对应分片上传任务、且创建时间早于最小存活时间的视为孤立上传，
+ * 限速并行地终止，释放已上传分片占用的磁盘空间；通过分布式锁保证同一时刻只有一个节点执行
+ */
+@Slf4j
+@Component
+public class MultipartUploadReaper {
+    private final FileTransferConfig.MultipartReaperConfig cfg;
+    private final MinioProperties minioProperties;
+    private final MinioAsyncClient minioAsyncClient;
+    private final RedissonClient redissonClient;
+    private final Counter abortedCounter;
+    private final Counter reclaimedBytesCounter;
+
+    private static final String REAPER_LOCK_KEY = "multipart:reaper:lock";
+    private final AtomicBoolean processing = new AtomicBoolean(false);
+
+    public MultipartUploadReaper(FileTransferConfig transferConfig,
+                                 MinioProperties minioProperties,
+                                 MinioAsyncClient minioAsyncClient,
+                                 RedissonClient redissonClient,
+                                 MeterRegistry meterRegistry) {
+        this.cfg = transferConfig.getMultipartReaperConfig();
+        this.minioProperties = minioProperties;
+        this.minioAsyncClient = minioAsyncClient;
+        this.redissonClient = redissonClient;
+        this.abortedCounter = Counter.builder("storage.multipart.reaper.aborted")
+                .description("已终止的孤立分片上传数量")
+                .register(meterRegistry);
+        this.reclaimedBytesCounter = Counter.builder("storage.multipart.reaper.reclaimed")
+                .description("终止孤立分片上传释放的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelay = 5, fixedDelayString = "${transfer.multipart-reaper-config.interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void reapOrphanedUploads() {
+        if (!cfg.isEnabled() || !processing.compareAndSet(false, true)) {
+            return;
+        }
+
+        RLock lock = redissonClient.getLock(REAPER_LOCK_KEY);
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(0, cfg.getLockLeaseMinutes(), TimeUnit.MINUTES);
+            if (!locked) {
+                return;
+            }
+
+            long startTime = System.currentTimeMillis();
+            String bucket = minioProperties.getStorageBucket();
+            ZonedDateTime staleBefore = ZonedDateTime.now().minusMinutes(cfg.getMinAgeMinutes());
+            AtomicLong scanned = new AtomicLong();
+            AtomicLong aborted = new AtomicLong();
+
+            Long reclaimedBytes = listIncompleteUploads(bucket)
+                    .doOnNext(upload -> scanned.incrementAndGet())
+                    .filter(upload -> upload.initiated() != null && upload.initiated().isBefore(staleBefore))
+                    .filterWhen(upload -> hasLiveSession(upload).map(live -> !live))
+                    .delayElements(Duration.ofMillis(Math.max(1, 1000 / cfg.getAbortsPerSecond()))) // 限制终止速率
+                    .flatMap(upload -> abortUpload(bucket, upload)
+                                    .doOnNext(bytes -> aborted.incrementAndGet()),
+                            cfg.getConcurrency())
+                    .reduce(0L, Long::sum)
+                    .block(Duration.ofMinutes(cfg.getLockLeaseMinutes()));
+
+            log.info("[reapOrphanedUploads] bucket={}, scanned={}, aborted={}, reclaimed={} MB, elapsed={} ms",
+                    bucket, scanned.get(), aborted.get(), reclaimedBytes == null ? 0 : reclaimedBytes / 1024 / 1024,
+                    System.currentTimeMillis() - startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("[reapOrphanedUploads] error={}", e.getMessage(), e);
+        } finally {
+            if (locked && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+            processing.set(false);
+        }
+    }
+
+    /**
+     * 分页列出存储桶中所有未完成的分片上传，直到结果不再截断 <br/>
+     * 部分 S3 实现截断时不返回下一页的标记，此时以本页最后一个上传作为下一页的起点
+     */
+    Flux<Upload> listIncompleteUploads(String bucket) {
+        return listUploadsPage(bucket, null, null)
+                .expand(page -> {
+                    if (!page.isTruncated() || page.uploads().isEmpty()) {
+                        return Mono.empty();
+                    }
+                    Upload last = page.uploads().get(page.uploads().size() - 1);
+                    String keyMarker = page.nextKeyMarker() != null ? page.nextKeyMarker() : last.objectName();
+                    String uploadIdMarker = page.nextUploadIdMarker() != null ? page.nextUploadIdMarker() : last.uploadId();
+                    return listUploadsPage(bucket, keyMarker, uploadIdMarker);
+                })
+                .concatMapIterable(ListMultipartUploadsResult::uploads);
+    }
+
+    private Mono<ListMultipartUploadsResult> listUploadsPage(String bucket, String keyMarker, String uploadIdMarker) {
+        return Mono.fromCallable(() -> minioAsyncClient.listMultipartUploadsAsync(
+                        bucket, null, null, null, keyMarker, cfg.getPageSize(), "", uploadIdMarker, null, null)) // 空前缀列出整个存储桶
+                .flatMap(Mono::fromFuture)
+                .map(response -> response.result());
+    }
+
+    /**
+     * Redis 中是否仍有对应的分片上传任务，存储键格式为 {hashPrefix}/{userId}/{fileKey}
+     */
+    private Mono<Boolean> hasLiveSession(Upload upload) {
+        String[] segments = upload.objectName().split("/");
+        if (segments.length < 3) {
+            return Mono.just(false);
+        }
+
+        UUID userId;
+        try {
+            userId = UUID.fromString(segments[1]);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(false);
+        }
+
+        String metadataKey = MultipartSessionCache.metadataKey(upload.uploadId(), userId);
+        return Mono.fromCompletionStage(redissonClient.getBucket(metadataKey).isExistsAsync());
+    }
+
+    /**
+     * 统计已上传分片的大小后终止分片上传
+     * @return 释放的字节数，终止失败时为空
+     */
+    private Mono<Long> abortUpload(String bucket, Upload upload) {
+        return sumPartSizes(bucket, upload)
+                .flatMap(bytes -> Mono.fromCallable(() -> minioAsyncClient.abortMultipartUploadAsync(
+                                bucket, null, upload.objectName(), upload.uploadId(), null, null))
+                        .flatMap(Mono::fromFuture)
+                        .thenReturn(bytes))
+                .doOnNext(bytes -> {
+                    abortedCounter.increment();
+                    reclaimedBytesCounter.increment(bytes);
+                    log.info("[abortUpload] storageKey={}, uploadId={}, initiated={}, reclaimed={} bytes",
+                            upload.objectName(), upload.uploadId(), upload.initiated(), bytes);
+                })
+                .onErrorResume(e -> {
+                    log.error("[abortUpload] storageKey={}, uploadId={}, error={}", upload.objectName(), upload.uploadId(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Long> sumPartSizes(String bucket, Upload upload) {
+        return listPartsPage(bucket, upload, null)
+                .expand(page -> page.isTruncated()
+                        ? listPartsPage(bucket, upload, page.nextPartNumberMarker())
+                        : Mono.empty())
+                .concatMapIterable(ListPartsResult::partList)
+                .map(Part::partSize)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<ListPartsResult> listPartsPage(String bucket, Upload upload, Integer partNumberMarker) {
+        return Mono.fromCallable(() -> minioAsyncClient.listPartsAsync(
+                        bucket, null, upload.objectName(), null, partNumberMarker, upload.uploadId(), null, null))
+                .flatMap(Mono::fromFuture)
+                .map(response -> response.result());
+    }
+}
@@ -0,0 +1,223 @@
+package org.cloud.storage.schedule;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.cloud.api.dto.FileDTO;
+import org.cloud.api.service.FileSystemRpcService;
+import org.cloud.storage.config.minio.MinioProperties;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.service.impl.PackStore;
+import org.cloud.storage.util.StorageKeyGenerator;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 打包对象压实 <br/>
+ * 回收站中超过保留期的文件在打包对象中留下空洞，存活数据占比低于阈值的打包对象被重写为只含存活数据的新对象，
+ * 文件引用迁移到新对象后删除原对象；通过分布式锁保证同一时刻只有一个节点执行
+ */
+@Slf4j
+@Component
+public class PackCompactor {
+    @DubboReference(check = false, timeout = 10000, retries = 0, lazy = true)
+    private FileSystemRpcService fileSystemRpcService;
+
+    private final FileTransferConfig.PackConfig cfg;
+    private final MinioProperties minioProperties;
+    private final MinioClient minioClient;
+    private final RedissonClient redissonClient;
+    private final Counter compactedCounter;
+    private final Counter reclaimedBytesCounter;
+
+    private static final String COMPACTOR_LOCK_KEY = "pack:compactor:lock";
+    private final AtomicBoolean processing = new AtomicBoolean(false);
+
+    public PackCompactor(FileTransferConfig transferConfig,
+                         MinioProperties minioProperties,
+                         MinioClient minioClient,
+                         RedissonClient redissonClient,
+                         MeterRegistry meterRegistry) {
+        this.cfg = transferConfig.getPackConfig();
+        this.minioProperties = minioProperties;
+        this.minioClient = minioClient;
+        this.redissonClient = redissonClient;
+        this.compactedCounter = Counter.builder("storage.pack.compacted")
+                .description("已压实的打包对象数量")
+                .register(meterRegistry);
+        this.reclaimedBytesCounter = Counter.builder("storage.pack.reclaimed")
+                .description("压实打包对象释放的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelay = 10, fixedDelayString = "${transfer.pack-config.compaction-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void compactPacks() {
+        if (!cfg.isEnabled() || !cfg.isCompactionEnabled() || !processing.compareAndSet(false, true)) {
+            return;
+        }
+
+        RLock lock = redissonClient.getLock(COMPACTOR_LOCK_KEY);
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(0, cfg.getLockLeaseMinutes(), TimeUnit.MINUTES);
+            if (!locked) {
+                return;
+            }
+
+            long startTime = System.currentTimeMillis();
+            String bucket = minioProperties.getStorageBucket();
+            long deletedBefore = startTime - Duration.ofDays(cfg.getReclaimDeletedAfterDays()).toMillis();
+
+            List<String> packKeys = fileSystemRpcService.listReclaimablePacks(bucket, deletedBefore, cfg.getCompactionBatchSize());
+            long reclaimed = 0;
+            for (String packKey : packKeys) {
+                try {
+                    reclaimed += compactPack(bucket, packKey, deletedBefore);
+                } catch (Exception e) {
+                    log.error("[compactPack] bucket={}, storageKey={}, error={}", bucket, packKey, e.getMessage());
+                }
+            }
+
+            log.info("[compactPacks] bucket={}, candidates={}, reclaimed={} KB, elapsed={} ms",
+                    bucket, packKeys.size(), reclaimed / 1024, System.currentTimeMillis() - startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("[compactPacks] error={}", e.getMessage(), e);
+        } finally {
+            if (locked && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+            processing.set(false);
+        }
+    }
+
+    /**
+     * 压实单个打包对象
+     * @return 释放的字节数
+     */
+    private long compactPack(String bucket, String packKey, long deletedBefore) throws Exception {
+        List<FileDTO> entries = fileSystemRpcService.listPackEntries(bucket, packKey);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        // 同一区间可能被秒传或复制的多个文件共享，任一文件存活则区间存活
+        TreeMap<Long, Long> liveRanges = new TreeMap<>();
+        for (FileDTO entry : entries) {
+            if (entry.getDeletedAt() == null || entry.getDeletedAt() >= deletedBefore) {
+                // 压缩存储的文件在打包对象中占用的是压缩后的大小
+                liveRanges.put(entry.getPackOffset(), entry.getStoredSize() != null ? entry.getStoredSize() : entry.getSize());
+            }
+        }
+        long liveBytes = liveRanges.values().stream().mapToLong(Long::longValue).sum();
+
+        // 以对象实际大小计算占比，已清除的文件和未保存元数据的写入同样计为空洞
+        long span = minioClient.statObject(
+                StatObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(packKey)
+                        .build()
+        ).size();
+
+        if (liveBytes > 0 && (double) liveBytes / span > cfg.getMaxLiveRatio()) {
+            // 空洞不足，暂不重写；清除过期文件的记录，避免该对象反复成为候选
+            fileSystemRpcService.relocatePackEntries(bucket, packKey, packKey, new HashMap<>(), deletedBefore);
+            return 0;
+        }
+
+        String newPackKey = null;
+        Map<Long, Long> offsets = new HashMap<>();
+        if (liveBytes > 0) {
+            newPackKey = StorageKeyGenerator.generateKey(UUID.fromString(entries.getFirst().getUserId())) + PackStore.PACK_KEY_SUFFIX;
+            writeCompactedPack(bucket, packKey, newPackKey, liveRanges, offsets);
+        }
+
+        long remaining;
+        try {
+            remaining = fileSystemRpcService.relocatePackEntries(bucket, packKey, newPackKey, offsets, deletedBefore);
+        } catch (Exception e) {
+            if (newPackKey != null) {
+                removeObject(bucket, newPackKey); // 迁移失败时新对象未被引用
+            }
+            throw e;
+        }
+
+        if (remaining > 0) {
+            log.warn("[compactPack] Pack still referenced after relocation, storageKey={}, references={}", packKey, remaining);
+            return 0;
+        }
+
+        removeObject(bucket, packKey);
+        compactedCounter.increment();
+        reclaimedBytesCounter.increment(span - liveBytes);
+        log.info("[compactPack] storageKey={}, newStorageKey={}, liveRanges={}, size={} -> {} bytes",
+                packKey, newPackKey, liveRanges.size(), span, liveBytes);
+        return span - liveBytes;
+    }
+
+    /**
+     * 读取原打包对象，按偏移顺序拼接存活区间写入新打包对象
+     * @param offsets 输出原偏移到新偏移的映射
+     */
+    private void writeCompactedPack(String bucket, String packKey, String newPackKey,
+                                    TreeMap<Long, Long> liveRanges, Map<Long, Long> offsets) throws Exception {
+        byte[] pack;
+        try (GetObjectResponse stream = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(packKey)
+                        .build())) {
+            pack = stream.readAllBytes(); // 打包对象不超过目标大小加单个小文件
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        liveRanges.forEach((offset, size) -> {
+            offsets.put(offset, (long) content.size());
+            content.write(pack, Math.toIntExact(offset), Math.toIntExact(size));
+        });
+
+        minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(newPackKey)
+                        .stream(new ByteArrayInputStream(content.toByteArray()), content.size(), -1)
+                        .contentType("application/octet-stream")
+                        .build()
+        );
+    }
+
+    private void removeObject(String bucket, String storageKey) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(storageKey)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("[compactPack] Failed to remove object, bucket={}, storageKey={}, error={}", bucket, storageKey, e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package org.cloud.storage.service;
 
-import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -10,17 +9,18 @@ import java.util.UUID;
 
 public interface FileDownloadService {
     /**
-     * 下载单文件
+     * 下载单文件，客户端接受 gzip 时压缩存储的文件原样发送；支持 If-None-Match、If-Modified-Since 条件请求；
+     * 本地磁盘缓存命中时以文件资源响应（零拷贝），否则为数据流
      */
-    Mono<ResponseEntity<Flux<DataBuffer>>> downloadFile(UUID fileId, UUID userId);
+    Mono<ResponseEntity<?>> downloadFile(UUID fileId, UUID userId, String acceptEncoding, HttpHeaders requestHeaders);
 
     /**
-     * 下载文件分片
+     * 下载文件分片，支持条件请求，If-Range 与当前文件不符时返回整个文件；本地磁盘缓存命中时以文件资源响应（零拷贝）
      */
-    Mono<ResponseEntity<Flux<DataBuffer>>> downloadPart(UUID fileId, UUID userId, String rangeHeader);
+    Mono<ResponseEntity<?>> downloadPart(UUID fileId, UUID userId, String rangeHeader, HttpHeaders requestHeaders);
 
     /**
-     * zip 下载多个文件
+     * zip 下载多个文件，缓存的归档以文件资源响应（零拷贝、支持 Range），否则为数据流
      */
-    Mono<ResponseEntity<Flux<DataBuffer>>> downloadFilesAsZipArchive(List<UUID> fileIds, UUID userId);
+    Mono<ResponseEntity<?>> downloadFilesAsZipArchive(List<UUID> fileIds, UUID userId);
 }
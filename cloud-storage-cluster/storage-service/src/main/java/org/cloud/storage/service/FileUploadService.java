@@ -1,8 +1,12 @@
 package org.cloud.storage.service;
 
 import org.cloud.api.dto.FileInputDTO;
+import org.cloud.storage.dto.CompleteMultipartUploadRequest;
 import org.cloud.storage.dto.FileUploadResult;
 import org.cloud.storage.dto.InitMultipartUploadRequest;
+import org.cloud.storage.dto.InstantUploadRequest;
+import org.cloud.storage.dto.InstantUploadResult;
+import org.cloud.storage.dto.MultipartUploadPlan;
 import org.cloud.storage.dto.PartUploadResult;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.codec.multipart.FilePart;
@@ -23,6 +27,11 @@ public interface FileUploadService {
             UUID userId
     );
 
+    /**
+     * 秒传探测
+     */
+    Mono<InstantUploadResult> instantUpload(InstantUploadRequest request, UUID userId);
+
     /**
      * 初始化分片上传
      */
@@ -33,11 +42,36 @@ public interface FileUploadService {
      */
     Mono<PartUploadResult> uploadPart(String uploadId, int partNumber, Flux<DataBuffer> filePart, UUID userId);
 
+    /**
+     * 查询已上传的分片
+     */
+    Mono<List<PartUploadResult>> listUploadedParts(String uploadId, UUID userId);
+
     /**
      * 合并分片完成分片上传
      */
     Mono<FileInputDTO> completeMultipartUpload(String uploadId, UUID userId);
 
+    /**
+     * 生成分片直传计划
+     */
+    Mono<MultipartUploadPlan> planMultipartUpload(InitMultipartUploadRequest request, UUID userId);
+
+    /**
+     * 重新获取分片直传计划
+     */
+    Mono<MultipartUploadPlan> getMultipartUploadPlan(String uploadId, UUID userId);
+
+    /**
+     * 校验客户端提交的分片后完成分片直传
+     */
+    Mono<FileInputDTO> completePresignedUpload(CompleteMultipartUploadRequest request, UUID userId);
+
+    /**
+     * 终止分片上传
+     */
+    Mono<Void> abortMultipartUpload(String uploadId, UUID userId);
+
     /**
      * 上传头像
      */
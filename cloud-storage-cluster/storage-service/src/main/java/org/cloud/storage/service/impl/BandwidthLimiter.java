@@ -0,0 +1,192 @@
+package org.cloud.storage.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.cloud.api.service.UserRpcService;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateType;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户带宽限速器 <br/>
+ * 每个用户、每个方向一个 Redis 令牌桶（1 令牌 = 1 字节），多个实例共享同一额度；
+ * 每条数据流按租约批量领取令牌，减少 Redis 往返。令牌不足时暂停向上游请求数据，
+ * 依靠背压限速，不额外缓冲数据
+ */
+@Slf4j
+@Component
+public class BandwidthLimiter {
+    @DubboReference(check = false, timeout = 3000, retries = 1, lazy = true)
+    private UserRpcService userRpcService;
+
+    private final FileTransferConfig.BandwidthConfig cfg;
+    private final RedissonClient redissonClient;
+    private final ThreadPoolTaskExecutor taskExecutor;
+    private final Cache<UUID, FileTransferConfig.BandwidthTier> tierCache;
+
+    private static final String BANDWIDTH_LIMITER_PREFIX = "bandwidth:";
+    private static final Duration LIMITER_KEEP_ALIVE = Duration.ofHours(1); // 闲置的令牌桶自动过期
+
+    public enum Direction {
+        UPLOAD, DOWNLOAD
+    }
+
+    public BandwidthLimiter(FileTransferConfig transferConfig,
+                            RedissonClient redissonClient,
+                            @Qualifier("sharedTaskExecutor") ThreadPoolTaskExecutor taskExecutor) {
+        this.cfg = transferConfig.getBandwidthConfig();
+        this.redissonClient = redissonClient;
+        this.taskExecutor = taskExecutor;
+        this.tierCache = CacheBuilder.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(cfg.getTierCacheMinutes(), TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * 对数据流限速
+     * @param content 数据流
+     * @param userId 用户 ID
+     * @param direction 传输方向
+     * @return 限速后的数据流
+     */
+    public Flux<DataBuffer> throttle(Flux<DataBuffer> content, UUID userId, Direction direction) {
+        if (!cfg.isEnabled()) {
+            return content;
+        }
+
+        return resolveTier(userId)
+            .flatMap(tier -> {
+                long rate = direction == Direction.UPLOAD ? tier.getUploadBytesPerSecond() : tier.getDownloadBytesPerSecond();
+                if (rate <= 0) {
+                    return Mono.empty(); // 该等级不限速
+                }
+
+                String key = BANDWIDTH_LIMITER_PREFIX + direction.name().toLowerCase() + ":" + tier.getName() + ":" + userId;
+                RRateLimiter limiter = redissonClient.getRateLimiter(key);
+                return applyRate(limiter, rate)
+                        .thenReturn(new TokenLease(limiter, rate, cfg.getLeaseBytes()));
+            })
+            .onErrorResume(e -> {
+                log.warn("[BandwidthLimiter] Failed to resolve limiter, userId={}, direction={}, error={}", userId, direction, e.getMessage());
+                return Mono.empty(); // 限速器不可用时不阻断传输
+            })
+            .map(lease -> content
+                    .concatMap(buffer -> lease.acquire(buffer.readableByteCount())
+                            .doOnCancel(() -> DataBufferUtils.release(buffer))
+                            .doOnError(e -> DataBufferUtils.release(buffer))
+                            .thenReturn(buffer), 1)
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release))
+            .defaultIfEmpty(content)
+            .flatMapMany(flux -> flux);
+    }
+
+    /**
+     * 设置令牌桶速率；令牌桶已存在时 trySetRate 不会修改，配置的速率调整后需要覆盖 Redis 中的旧速率
+     */
+    private Mono<Void> applyRate(RRateLimiter limiter, long rate) {
+        Duration interval = Duration.ofSeconds(1);
+        return Mono.fromCompletionStage(limiter.trySetRateAsync(RateType.OVERALL, rate, interval, LIMITER_KEEP_ALIVE))
+                .filter(created -> !created)
+                .flatMap(created -> Mono.fromCompletionStage(limiter.getConfigAsync()))
+                .filter(config -> !Long.valueOf(rate).equals(config.getRate())
+                        || !Long.valueOf(interval.toMillis()).equals(config.getRateInterval())
+                        || config.getRateType() != RateType.OVERALL)
+                .flatMap(config -> {
+                    log.info("[BandwidthLimiter] Rate changed, key={}, oldRate={}, newRate={}", limiter.getName(), config.getRate(), rate);
+                    return Mono.fromCompletionStage(limiter.setRateAsync(RateType.OVERALL, rate, interval, LIMITER_KEEP_ALIVE));
+                });
+    }
+
+    /**
+     * 用户该方向的传输是否限速，无法确定时按限速处理
+     */
+    public Mono<Boolean> isThrottled(UUID userId, Direction direction) {
+        if (!cfg.isEnabled()) {
+            return Mono.just(false);
+        }
+
+        return resolveTier(userId)
+            .map(tier -> (direction == Direction.UPLOAD ? tier.getUploadBytesPerSecond() : tier.getDownloadBytesPerSecond()) > 0)
+            .defaultIfEmpty(false) // 未配置等级时不限速
+            .onErrorReturn(true);
+    }
+
+    /**
+     * 按存储容量配额匹配用户等级，查询失败时使用最低等级
+     */
+    private Mono<FileTransferConfig.BandwidthTier> resolveTier(UUID userId) {
+        FileTransferConfig.BandwidthTier cached = tierCache.getIfPresent(userId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        List<FileTransferConfig.BandwidthTier> tiers = cfg.getTiers().stream()
+                .sorted(Comparator.comparingLong(FileTransferConfig.BandwidthTier::getMinStorageCapacityBytes))
+                .toList();
+        if (tiers.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return Mono.fromCallable(() -> userRpcService.getStorageCapacity(userId.toString()))
+            .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+            .map(capacity -> tiers.stream()
+                    .filter(tier -> tier.getMinStorageCapacityBytes() <= capacity)
+                    .reduce((lower, higher) -> higher)
+                    .orElse(tiers.getFirst()))
+            .onErrorResume(e -> {
+                log.warn("[BandwidthLimiter] Failed to get storage capacity, userId={}, error={}", userId, e.getMessage());
+                return Mono.empty();
+            })
+            .defaultIfEmpty(tiers.getFirst())
+            .doOnNext(tier -> tierCache.put(userId, tier));
+    }
+
+    /**
+     * 单条数据流的令牌租约，每次从 Redis 领取一批令牌在本地消费
+     * @implNote 由 concatMap 串行调用，无需同步
+     */
+    private static final class TokenLease {
+        private final RRateLimiter limiter;
+        private final long maxPermits;
+        private final long leaseBytes;
+        private long credit;
+
+        TokenLease(RRateLimiter limiter, long rate, long leaseBytes) {
+            this.limiter = limiter;
+            this.maxPermits = rate; // 单次领取不能超过令牌桶容量
+            this.leaseBytes = leaseBytes;
+        }
+
+        Mono<Void> acquire(long bytes) {
+            if (credit >= bytes) {
+                credit -= bytes;
+                return Mono.empty();
+            }
+
+            long permits = Math.min(Math.max(bytes - credit, leaseBytes), maxPermits);
+            return Mono.fromCompletionStage(limiter.acquireAsync(permits))
+                    .then(Mono.defer(() -> {
+                        credit += permits;
+                        return acquire(bytes);
+                    }));
+        }
+    }
+}
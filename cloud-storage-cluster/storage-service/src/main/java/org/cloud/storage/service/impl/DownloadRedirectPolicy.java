@@ -0,0 +1,43 @@
+package org.cloud.storage.service.impl;
+
+import org.cloud.api.dto.FileDTO;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.util.GzipCodec;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * 重定向下载策略 <br/>
+ * 决定文件由服务代理传输还是重定向到预签名地址由客户端直连 MinIO：
+ * 只有超过大小阈值、独立存储且未压缩的文件才可重定向；重定向下载不经过本服务、无法限速，
+ * 因此只对下载不限速的用户等级重定向，限速等级的下载始终由服务代理
+ */
+@Component
+public class DownloadRedirectPolicy {
+    private final FileTransferConfig.DownloadConfig cfg;
+    private final BandwidthLimiter bandwidthLimiter;
+
+    public DownloadRedirectPolicy(FileTransferConfig transferConfig, BandwidthLimiter bandwidthLimiter) {
+        this.cfg = transferConfig.getDownloadConfig();
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    /**
+     * 文件是否以重定向方式下载
+     * @param file 文件元数据
+     * @param userId 用户 ID
+     * @return 是否重定向，无法确定用户等级时不重定向
+     */
+    public Mono<Boolean> shouldRedirect(FileDTO file, UUID userId) {
+        if (!cfg.isRedirectEnabled()
+                || file.getSize() < cfg.getRedirectThresholdBytes()
+                || file.getPackOffset() != null // 打包存储的文件只占对象的一段
+                || GzipCodec.ENCODING.equals(file.getContentEncoding())) { // 压缩存储的文件需要服务端解压
+            return Mono.just(false);
+        }
+        return bandwidthLimiter.isThrottled(userId, BandwidthLimiter.Direction.DOWNLOAD)
+                .map(throttled -> !throttled);
+    }
+}
@@ -1,9 +1,12 @@
 package org.cloud.storage.service.impl;
 
 import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 import io.minio.GetObjectArgs;
 import io.minio.GetObjectResponse;
+import io.minio.GetPresignedObjectUrlArgs;
 import io.minio.MinioClient;
+import io.minio.http.Method;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboReference;
 import org.cloud.api.dto.FileDTO;
@@ -13,7 +16,10 @@ import org.cloud.storage.config.transfer.FileTransferConfig;
 import org.cloud.storage.exception.BatchZipDownloadException;
 import org.cloud.storage.exception.FileRangeDownloadException;
 import org.cloud.storage.service.FileDownloadService;
+import org.cloud.storage.util.GzipCodec;
+import org.cloud.storage.util.ZipStreamWriter;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
@@ -26,14 +32,20 @@ import reactor.core.scheduler.Schedulers;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
@@ -47,10 +59,16 @@ public class FileDownloadServiceImpl implements FileDownloadService {
 
     private final FileTransferConfig transferConfig;
     private final MinioClient minioClient;
+    private final MinioClient presignMinioClient;
     private final ThreadPoolTaskExecutor taskExecutor;
     private final TempFileCache tempFileCache;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final DownloadRedirectPolicy redirectPolicy;
+    private final ObjectStreamReader objectStreamReader;
+    private final ObjectDiskCache objectDiskCache;
+    private final ObjectReadCoalescer readCoalescer;
+    private final FileMetadataCache fileMetadataCache;
 
-    private static Path TEMP_DOWNLOAD_DIR = Paths.get("tmp");
     public static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
             // 压缩格式
             "zip", "gz", "bz2", "xz", "7z", "rar", "tar", "tgz", "tbz",
@@ -65,64 +83,115 @@ public class FileDownloadServiceImpl implements FileDownloadService {
             "exe", "dll", "so", "dmg", "pkg", "deb", "rpm"
     );
 
-    static {
-        try {
-            Files.createDirectories(TEMP_DOWNLOAD_DIR);
-        } catch (IOException e) {
-            // 创建失败，使用系统默认临时目录
-            TEMP_DOWNLOAD_DIR = Paths.get(System.getProperty("java.io.tmpdir"));
-        }
-    }
-
     public FileDownloadServiceImpl(
             FileTransferConfig transferConfig,
             MinioClient minioClient,
-            @Qualifier("sharedTaskExecutor") ThreadPoolTaskExecutor taskExecutor, TempFileCache tempFileCache) {
+            @Qualifier("presignMinioClient") MinioClient presignMinioClient,
+            @Qualifier("sharedTaskExecutor") ThreadPoolTaskExecutor taskExecutor, TempFileCache tempFileCache,
+            BandwidthLimiter bandwidthLimiter,
+            DownloadRedirectPolicy redirectPolicy,
+            ObjectStreamReader objectStreamReader,
+            ObjectDiskCache objectDiskCache,
+            ObjectReadCoalescer readCoalescer,
+            FileMetadataCache fileMetadataCache) {
         this.transferConfig = transferConfig;
         this.minioClient = minioClient;
+        this.presignMinioClient = presignMinioClient;
         this.taskExecutor = taskExecutor;
         this.tempFileCache = tempFileCache;
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.redirectPolicy = redirectPolicy;
+        this.objectStreamReader = objectStreamReader;
+        this.objectDiskCache = objectDiskCache;
+        this.readCoalescer = readCoalescer;
+        this.fileMetadataCache = fileMetadataCache;
     }
 
     /**
      * 下载单文件
      * @param fileId 文件 ID
      * @param userId 用户 ID
-     * @return (文件资源, http响应头)
+     * @param requestHeaders 请求头，用于 If-None-Match、If-Modified-Since 条件请求
+     * @return (文件资源, http响应头)，本地磁盘缓存命中时为文件资源，重定向下载时为 302 和预签名地址，文件未变更时为 304
      */
     @Override
-    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadFile(UUID fileId, UUID userId) {
-        FileTransferConfig.DownloadConfig cfg = transferConfig.getDownloadConfig();
-
-        return Mono.fromCallable(() -> fileSystemRpcService.getFile(userId.toString(), fileId.toString()))
-            .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+    public Mono<ResponseEntity<?>> downloadFile(UUID fileId, UUID userId, String acceptEncoding, HttpHeaders requestHeaders) {
+        return fileMetadataCache.getFile(userId, fileId)
             .switchIfEmpty(Mono.error(new FileRangeDownloadException("文件不存在或已被删除")))
-            .map(file -> {
-                long startTime = System.currentTimeMillis();
-
-                Flux<DataBuffer> flux = DataBufferUtils.readInputStream(
-                        () -> minioClient.getObject(
-                                GetObjectArgs.builder()
-                                        .bucket(file.getBucket())
-                                        .object(file.getStorageKey())
-                                        .build()
-                        ),
-                        new DefaultDataBufferFactory(),
-                        cfg.getStreamBufferSizeBytes()
-                ).doFinally(signal ->
-                        log.info("[downloadFile] fileId={}, filename={}, size={} bytes, elapsed={} ms",
-                                fileId, file.getName(), file.getSize(), System.currentTimeMillis() - startTime)
-                );
+            .flatMap(file -> {
+                boolean encoded = isGzipEncoded(file);
+                HttpHeaders validators = validators(file, encoded && acceptsGzip(acceptEncoding));
+                if (encoded) {
+                    validators.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+                }
+                if (isNotModified(requestHeaders, validators)) {
+                    log.info("[downloadFile] Not modified, fileId={}, etag={}", file.getId(), validators.getETag());
+                    return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(validators).build());
+                }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(file.getMimeType()));
-            headers.setContentDisposition(ContentDisposition.attachment().filename(file.getName(), StandardCharsets.UTF_8).build()); // 弹出下载
+                return redirectPolicy.shouldRedirect(file, userId)
+                        .flatMap(redirect -> redirect
+                                ? redirectToObject(file)
+                                : bandwidthLimiter.isThrottled(userId, BandwidthLimiter.Direction.DOWNLOAD).map(throttled -> {
+                                    ObjectDiskCache.CachedObject cached = lookupCached(file, file.getSize(), true);
+                                    if (cached != null && !throttled) {
+                                        return sendCachedObject(file, cached, fileHeaders(file, validators));
+                                    }
+                                    return proxyFile(file, userId, acceptEncoding, validators, cached);
+                                }));
+            });
+    }
+
+    /**
+     * 由服务读取对象并转发文件内容，分片下载的 If-Range 不符时也由此返回整个文件
+     * @param cached 本地磁盘缓存的对象，未命中时为 null
+     */
+    private ResponseEntity<Flux<DataBuffer>> proxyFile(FileDTO file, UUID userId, String acceptEncoding, HttpHeaders validators,
+                                                       ObjectDiskCache.CachedObject cached) {
+        long startTime = System.currentTimeMillis();
+        boolean encoded = isGzipEncoded(file);
+        boolean passthrough = encoded && acceptsGzip(acceptEncoding); // 客户端支持时直接发送压缩数据
+
+        Flux<DataBuffer> content = cached != null ? readCached(cached, 0, file.getSize()) : readFromStore(file, 0, null, !passthrough);
+        Flux<DataBuffer> flux = content.doFinally(signal ->
+                log.info("[downloadFile] fileId={}, filename={}, size={} bytes, elapsed={} ms",
+                        file.getId(), file.getName(), file.getSize(), System.currentTimeMillis() - startTime)
+        );
+
+        HttpHeaders headers = fileHeaders(file, validators);
+        if (passthrough) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GzipCodec.ENCODING);
+            headers.setContentLength(storedSize(file));
+        } else {
             headers.setContentLength(file.getSize());
+        }
 
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(flux);
-        });
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(bandwidthLimiter.throttle(flux, userId, BandwidthLimiter.Direction.DOWNLOAD));
+    }
+
+    /**
+     * 完整文件的响应头：校验器、文件类型和下载文件名
+     */
+    private static HttpHeaders fileHeaders(FileDTO file, HttpHeaders validators) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(validators);
+        headers.setContentType(MediaType.parseMediaType(file.getMimeType()));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(file.getName(), StandardCharsets.UTF_8).build()); // 弹出下载
+        return headers;
+    }
+
+    /**
+     * 以 FileSystemResource 发送本地磁盘缓存的对象，Reactor Netty 通过 sendfile 零拷贝发送，
+     * 请求中的 Range 由框架按文件区间处理，调用方需确认请求的 Range 即要发送的区间；
+     * 限速的用户需要逐块领取令牌，不使用此方式
+     * @param headers 除内容长度和区间外的响应头
+     */
+    private ResponseEntity<?> sendCachedObject(FileDTO file, ObjectDiskCache.CachedObject cached, HttpHeaders headers) {
+        log.info("[sendCachedObject] fileId={}, filename={}, size={} bytes", file.getId(), file.getName(), cached.size());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(cached.path()));
     }
 
     /**
@@ -130,61 +199,124 @@ public class FileDownloadServiceImpl implements FileDownloadService {
      * @param fileId 文件 ID
      * @param userId 用户 ID
      * @param rangeHeader Range 请求头，格式为 bytes=start-end
-     * @return (文件数据, http响应头)
+     * @param requestHeaders 请求头，用于条件请求；If-Range 与当前文件不符时忽略 Range，返回整个文件
+     * @return (文件数据, http响应头)，本地磁盘缓存命中时为文件资源，重定向下载时为 302 和预签名地址，客户端携带 Range 请求 MinIO；文件未变更时为 304
      */
     @Override
-    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadPart(UUID fileId, UUID userId, String rangeHeader) {
-        FileTransferConfig.DownloadConfig cfg = transferConfig.getDownloadConfig();
-
-        return Mono.fromCallable(() -> fileSystemRpcService.getFile(userId.toString(), fileId.toString()))
-            .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+    public Mono<ResponseEntity<?>> downloadPart(UUID fileId, UUID userId, String rangeHeader, HttpHeaders requestHeaders) {
+        return fileMetadataCache.getFile(userId, fileId)
             .switchIfEmpty(Mono.error(new FileRangeDownloadException("文件不存在或已被删除")))
-            .handle((file, sink) -> {
-                // 解析Range头
-                ByteRange range = parseRangeHeader(rangeHeader, file.getSize());
-                long length = range.end - range.start + 1;
-
-                if (length > cfg.getMaxChunkSizeBytes()) {
-                    sink.error(new FileRangeDownloadException(
-                            String.format("分片大小[%d bytes]超出最大限制[%d MB]",
-                                    length, cfg.getMaxChunkSizeBytes() / 1024 / 1024)
-                    ));
-                    return;
+            .flatMap(file -> {
+                HttpHeaders validators = validators(file, false);
+                if (isNotModified(requestHeaders, validators)) {
+                    log.info("[downloadPart] Not modified, fileId={}, etag={}", file.getId(), validators.getETag());
+                    return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(validators).build());
                 }
 
-                Flux<DataBuffer> flux = DataBufferUtils.readInputStream(
-                        () -> minioClient.getObject(
-                                GetObjectArgs.builder()
-                                        .bucket(file.getBucket())
-                                        .object(file.getStorageKey())
-                                        .offset(range.start)
-                                        .length(length)
-                                        .build()
-                        ),
-                        new DefaultDataBufferFactory(),
-                        cfg.getStreamBufferSizeBytes()
+                String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+                if (rangeHeader != null && ifRange != null && !ifRangeMatches(ifRange, validators)) {
+                    log.info("[downloadPart] File changed since If-Range, fileId={}, ifRange={}", file.getId(), ifRange);
+                    // 续传的文件已变更，返回整个文件，不受分片大小限制；重定向和文件资源都会按请求中的 Range 发送，因此由服务转发
+                    return Mono.fromSupplier(() -> proxyFile(file, userId, null, validators, lookupCached(file, file.getSize(), true)));
+                }
+
+                return redirectPolicy.shouldRedirect(file, userId)
+                        .flatMap(redirect -> redirect
+                                ? redirectToObject(file)
+                                : servePart(file, userId, rangeHeader, validators));
+            });
+    }
+
+    /**
+     * 校验分片区间后发送，本地磁盘缓存命中时零拷贝发送缓存文件，否则由服务读取对象并转发
+     */
+    private Mono<ResponseEntity<?>> servePart(FileDTO file, UUID userId, String rangeHeader, HttpHeaders validators) {
+        return Mono.defer(() -> {
+            FileTransferConfig.DownloadConfig cfg = transferConfig.getDownloadConfig();
+
+            // 解析Range头
+            ByteRange range = parseRangeHeader(rangeHeader, file.getSize());
+            long length = range.end - range.start + 1;
+
+            if (length > cfg.getMaxChunkSizeBytes()) {
+                throw new FileRangeDownloadException(
+                        String.format("分片大小[%d bytes]超出最大限制[%d MB]",
+                                length, cfg.getMaxChunkSizeBytes() / 1024 / 1024)
                 );
+            }
 
-                HttpStatus status = range.isPartial() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK;
-                HttpHeaders headers = new HttpHeaders();
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(validators);
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (range.isPartial()) {
+                String partName = file.getName() + ".part";
                 headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-                headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
-                headers.setContentLength(length);
-
-                if (range.isPartial()) {
-                    String partName = file.getName() + ".part";
-                    headers.set(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", range.start(), range.end(), file.getSize()));
-                    headers.setContentDisposition(ContentDisposition.attachment().filename(partName, StandardCharsets.UTF_8).build());
-                } else {
-                    headers.setContentType(MediaType.parseMediaType(file.getMimeType()));
-                    headers.setContentDisposition(ContentDisposition.attachment().filename(file.getName(), StandardCharsets.UTF_8).build());
-                }
+                headers.setContentDisposition(ContentDisposition.attachment().filename(partName, StandardCharsets.UTF_8).build());
+            } else {
+                headers.setContentType(MediaType.parseMediaType(file.getMimeType()));
+                headers.setContentDisposition(ContentDisposition.attachment().filename(file.getName(), StandardCharsets.UTF_8).build());
+            }
 
-                log.info("[downloadPart] fileId={}, filename={}, range={}-{}",
-                        file.getId(), file.getName(), range.start(), range.end());
+            log.info("[downloadPart] fileId={}, filename={}, range={}-{}",
+                    file.getId(), file.getName(), range.start(), range.end());
 
-                sink.next(ResponseEntity.status(status).headers(headers).body(flux));
+            return bandwidthLimiter.isThrottled(userId, BandwidthLimiter.Direction.DOWNLOAD).map(throttled -> {
+                // 分片下载的每个分片都会到这里，只有从开头读取的分片计为一次访问，避免一次下载就达到准入频率
+                ObjectDiskCache.CachedObject cached = lookupCached(file, length, range.start() == 0);
+                if (cached != null && !throttled) {
+                    return sendCachedObject(file, cached, headers);
+                }
+                return proxyPart(file, userId, range, headers, cached);
             });
+        });
+    }
+
+    /**
+     * 由服务读取对象并转发文件分片
+     * @param headers 除内容长度和区间外的响应头
+     * @param cached 本地磁盘缓存的对象，未命中时为 null
+     */
+    private ResponseEntity<Flux<DataBuffer>> proxyPart(FileDTO file, UUID userId, ByteRange range, HttpHeaders headers,
+                                                       ObjectDiskCache.CachedObject cached) {
+        long length = range.end - range.start + 1;
+        Flux<DataBuffer> flux = cached != null ? readCached(cached, range.start, length) : readFromStore(file, range.start, length, true);
+
+        headers.setContentLength(length);
+        if (range.isPartial()) {
+            headers.set(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", range.start(), range.end(), file.getSize()));
+        }
+
+        HttpStatus status = range.isPartial() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK;
+        return ResponseEntity.status(status).headers(headers).body(bandwidthLimiter.throttle(flux, userId, BandwidthLimiter.Direction.DOWNLOAD));
+    }
+
+    /**
+     * 重定向到对象的预签名下载地址，通过响应参数让 MinIO 返回文件名和类型，签名只在本地计算
+     */
+    private Mono<ResponseEntity<?>> redirectToObject(FileDTO file) {
+        int expirySeconds = transferConfig.getDownloadConfig().getRedirectUrlExpirySeconds();
+
+        return Mono.fromCallable(() -> {
+            String url = presignMinioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.GET)
+                            .bucket(file.getBucket())
+                            .object(file.getStorageKey())
+                            .expiry(expirySeconds, TimeUnit.SECONDS)
+                            .extraQueryParams(Map.of(
+                                    "response-content-disposition",
+                                    ContentDisposition.attachment().filename(file.getName(), StandardCharsets.UTF_8).build().toString(),
+                                    "response-content-type", file.getMimeType()))
+                            .build()
+            );
+
+            log.info("[redirectToObject] fileId={}, filename={}, size={} bytes", file.getId(), file.getName(), file.getSize());
+
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(url))
+                    .cacheControl(CacheControl.noStore()) // 预签名地址有时效，不缓存重定向
+                    .body(Flux.<DataBuffer>empty());
+        });
     }
 
     /**
@@ -193,100 +325,393 @@ public class FileDownloadServiceImpl implements FileDownloadService {
      * @param userId  用户 ID
      * @return (ZIP资源, http 响应头)
      */
-    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadFilesAsZipArchive(List<UUID> fileIds, UUID userId) {
+    public Mono<ResponseEntity<?>> downloadFilesAsZipArchive(List<UUID> fileIds, UUID userId) {
         FileTransferConfig.DownloadConfig cfg = transferConfig.getDownloadConfig();
-        String fileKey = generateFileKey(fileIds); // fileIds 的哈希结果
-        String zipName = fileKey + ".zip";
-        Path zipPath = TEMP_DOWNLOAD_DIR.resolve(zipName);
-
-        return Mono.fromCallable(() -> {
-            // 如果文件已存在，直接返回（支持断点续传/重新下载）
-            if (Files.exists(zipPath)) {
-                return zipPath;
-            }
+        String zipName = generateFileKey(fileIds) + ".zip"; // fileIds 的哈希结果
 
-            // 获取文件信息
-            List<FileDTO> files = fileSystemRpcService.getFiles(
+        return Mono.fromCallable(() -> fileSystemRpcService.getFiles(
                     userId.toString(),
                     new GetFilesRequest(fileIds.stream().map(UUID::toString).toList())
-            );
+            ))
+            .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+            .flatMap(files -> {
+                // 总文件大小校验
+                long totalSize = files.stream().map(FileDTO::getSize).reduce(0L, Long::sum);
+                if (totalSize > cfg.getMaxZipBatchSizeBytes()) {
+                    return Mono.error(new BatchZipDownloadException("批量打包的文件总大小超过最大限制"));
+                }
 
-            // 总文件大小校验
-            long totalSize = files.stream().map(FileDTO::getSize).reduce(0L, Long::sum);
-            if(totalSize > cfg.getMaxZipBatchSizeBytes()) {
-                throw new BatchZipDownloadException("批量打包的文件总大小超过最大限制");
-            }
+                String archiveKey = generateArchiveKey(userId, files);
+                if (cfg.isZipStreamingEnabled()) {
+                    // 同一归档正在边发送边写入缓存时等待写入完成，写入被放弃时由本请求重新生成
+                    return tempFileCache.getOrAwaitFill(archiveKey)
+                            .flatMap(archive -> cachedZipResponse(archive, zipName, files.size(), userId))
+                            .switchIfEmpty(Mono.<ResponseEntity<?>>fromSupplier(() -> streamZipArchive(files, userId, zipName, archiveKey)));
+                }
+
+                return tempFileCache.getOrBuild(archiveKey, path -> Mono.fromCallable(() -> writeZipArchive(files, path))
+                                .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+                                .timeout(Duration.ofMinutes(cfg.getZipPackagingTimeoutMinutes()))
+                                .then())
+                        .flatMap(archive -> cachedZipResponse(archive, zipName, files.size(), userId))
+                        .onErrorMap(IOException.class, e -> {
+                            log.error("[downloadFilesAsZipArchive] Failed to build archive, userId={}, error={}", userId, e.getMessage());
+                            return new BatchZipDownloadException("创建ZIP下载资源失败");
+                        });
+            });
+    }
+
+    /**
+     * 将文件打包到 zip 临时文件，单个文件读取失败时跳过该文件
+     */
+    private Path writeZipArchive(List<FileDTO> files, Path zipPath) throws IOException {
+        try(ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(zipPath)))) {
+            for(FileDTO file: files) {
+                try {
+                    ZipEntry entry = new ZipEntry(file.getName());
+                    String filename = file.getName();
+
+                    // 压缩文件
+                    zos.setMethod(ZipOutputStream.DEFLATED);
+                    if (isCompressed(filename)) { // 已压缩文件
+                        zos.setLevel(Deflater.BEST_SPEED);
+                    } else {
+                        zos.setLevel(Deflater.BEST_COMPRESSION);
+                    }
+                    zos.putNextEntry(entry);
 
-            // 将文件打包到 zip 临时文件
-            try(ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(zipPath)))) {
-                for(FileDTO file: files) {
-                    try {
-                        ZipEntry entry = new ZipEntry(file.getName());
-                        String filename = file.getName();
-
-                        // 压缩文件
-                        zos.setMethod(ZipOutputStream.DEFLATED);
-                        if (isCompressed(filename)) { // 已压缩文件
-                            zos.setLevel(Deflater.BEST_SPEED);
-                        } else {
-                            zos.setLevel(Deflater.BEST_COMPRESSION);
-                        }
-                        zos.putNextEntry(entry);
-
-                        // 从 minio 流式读取写入 ZIP
-                        try (GetObjectResponse stream = minioClient.getObject(
-                                GetObjectArgs.builder()
-                                        .bucket(file.getBucket())
-                                        .object(file.getStorageKey())
-                                        .build())) {
-                            stream.transferTo(zos);
-                        }
-
-                        zos.closeEntry();
-                    } catch (Exception e) {
-                        log.error("[downloadFilesAsZipArchive] Failed to archive file, fileId={}, filename={}, bucket={}, storageKey={}, error={}",
-                                file.getId(), file.getName(), file.getBucket(), file.getStorageKey(), e.getMessage());
+                    // 从 minio 流式读取写入 ZIP
+                    try (InputStream stream = openContent(file, 0, null)) {
+                        stream.transferTo(zos);
                     }
+
+                    zos.closeEntry();
+                } catch (Exception e) {
+                    log.error("[downloadFilesAsZipArchive] Failed to archive file, fileId={}, filename={}, bucket={}, storageKey={}, error={}",
+                            file.getId(), file.getName(), file.getBucket(), file.getStorageKey(), e.getMessage());
                 }
             }
+        }
+        return zipPath;
+    }
 
-            // 注册缓存
-            tempFileCache.register(zipPath);
+    /**
+     * 发送缓存中的 ZIP，大小已知，支持 Range
+     */
+    private Mono<ResponseEntity<?>> cachedZipResponse(TempFileCache.CachedArchive archive, String zipName, int fileCount, UUID userId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(zipName, StandardCharsets.UTF_8).build()); // 弹出下载
+        headers.setCacheControl(CacheControl.noCache()); // 禁用缓存
 
-            return zipPath;
-        }).subscribeOn(Schedulers.fromExecutor(taskExecutor))
-        .timeout(Duration.ofMinutes(cfg.getZipPackagingTimeoutMinutes()))
-        .flatMap(path -> {
-            try {
-                long size = Files.size(path);
+        log.info("[downloadFilesAsZip] zipName={}, fileCount={}, size={}", zipName, fileCount, archive.size());
+
+        return serveFromDisk(archive.path(), archive.size(), headers, userId);
+    }
+
+    /**
+     * 发送磁盘上的文件 <br/>
+     * 不限速的用户以 FileSystemResource 响应，Reactor Netty 通过 sendfile 零拷贝发送，Range 请求由框架按文件区间处理；
+     * 限速的用户需要逐块领取令牌，仍读入缓冲区发送完整文件
+     * @param headers 除内容长度外的响应头
+     */
+    private Mono<ResponseEntity<?>> serveFromDisk(Path path, long size, HttpHeaders headers, UUID userId) {
+        return bandwidthLimiter.isThrottled(userId, BandwidthLimiter.Direction.DOWNLOAD)
+            .map(throttled -> {
+                if (!throttled) {
+                    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+                    return ResponseEntity.ok().headers(headers).body(new FileSystemResource(path));
+                }
 
                 Flux<DataBuffer> flux = DataBufferUtils.read(
                         path,
                         new DefaultDataBufferFactory(),
-                        cfg.getStreamBufferSizeBytes()
+                        transferConfig.getDownloadConfig().getStreamBufferSizeBytes()
                 );
-
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.parseMediaType("application/zip"));
-                headers.setContentDisposition(ContentDisposition.attachment().filename(zipName, StandardCharsets.UTF_8).build()); // 弹出下载
                 headers.setContentLength(size);
-                headers.setCacheControl(CacheControl.noCache()); // 禁用缓存
-
-                log.info("[downloadFilesAsZip] zipFile={}, fileCount={}, size={}", path.getFileName(), fileIds.size(), size);
-
-                return Mono.just(ResponseEntity.ok()
+                return ResponseEntity.ok()
                         .headers(headers)
-                        .body(flux));
-            } catch (IOException e) {
-                log.error("[downloadFilesAsZipArchive] Failed to read temp file, path={}, error={}", path, e.getMessage());
-                return Mono.error(new BatchZipDownloadException("创建ZIP下载资源失败"));
+                        .body(bandwidthLimiter.throttle(flux, userId, BandwidthLimiter.Direction.DOWNLOAD));
+            });
+    }
+
+    /**
+     * 边读取文件边输出 ZIP，不写临时文件，客户端在读取第一个文件时即开始收到数据 <br/>
+     * 已压缩格式的文件直接存储，其余文件 deflate 压缩；后续文件提前并行读取和压缩，避免逐个请求 MinIO 的往返延迟；
+     * 总大小未知，以分块编码传输；完整发送的 ZIP 同时写入缓存
+     */
+    private ResponseEntity<Flux<DataBuffer>> streamZipArchive(List<FileDTO> files, UUID userId, String zipName, String archiveKey) {
+        FileTransferConfig.DownloadConfig cfg = transferConfig.getDownloadConfig();
+        long totalSize = files.stream().map(FileDTO::getSize).reduce(0L, Long::sum);
+
+        List<ZipStreamWriter.Entry> entries = files.stream()
+                .map(file -> new ZipStreamWriter.Entry(
+                        file.getName(),
+                        file.getSize(),
+                        file.getUpdatedAt() != null ? file.getUpdatedAt() : System.currentTimeMillis(),
+                        isCompressed(file.getName()),
+                        // 需要解压的文件以阻塞方式读取，不能占用预读它的 IO 线程
+                        () -> readContent(file, 0, null, true).subscribeOn(Schedulers.fromExecutor(taskExecutor))
+                ))
+                .toList();
+
+        ZipStreamWriter.Options options = new ZipStreamWriter.Options(
+                cfg.getZipDeflateLevel(),
+                cfg.getZipReadAheadEntries(),
+                cfg.getZipReadAheadBytes(),
+                Schedulers.fromExecutor(taskExecutor)
+        );
+
+        Flux<DataBuffer> flux = Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            Flux<DataBuffer> zip = ZipStreamWriter.write(entries, options)
+                    .doOnError(e -> log.error("[streamZipArchive] Failed to stream zip, userId={}, fileCount={}, error={}",
+                            userId, files.size(), e.getMessage()))
+                    .doOnComplete(() -> log.info("[streamZipArchive] zipName={}, fileCount={}, totalSize={}, elapsed={} ms",
+                            zipName, files.size(), totalSize, System.currentTimeMillis() - startTime));
+
+            TempFileCache.ArchiveFill fill = tempFileCache.beginFill(archiveKey);
+            if (fill == null) {
+                return zip; // 同一归档正在写入缓存
             }
+            return zip.concatMap(buffer -> fill.write(buffer)
+                            .doOnCancel(() -> DataBufferUtils.release(buffer))
+                            .thenReturn(buffer), 1)
+                    .concatWith(Mono.defer(fill::complete).then(Mono.empty()))
+                    .doOnError(e -> fill.abort())
+                    .doOnCancel(fill::abort);
         });
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(zipName, StandardCharsets.UTF_8).build()); // 弹出下载
+        headers.setCacheControl(CacheControl.noCache()); // 禁用缓存
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(bandwidthLimiter.throttle(flux, userId, BandwidthLimiter.Direction.DOWNLOAD));
+    }
+
+    /**
+     * 读取文件内容，本地磁盘缓存命中时从缓存文件读取对应区间，不访问 MinIO
+     * @param offset 起始偏移，decode 时为原始内容中的偏移，否则为对象数据中的偏移
+     * @param length 读取长度，为 null 时读到文件末尾
+     * @param decode 压缩存储的文件是否解压
+     */
+    private Flux<DataBuffer> readContent(FileDTO file, long offset, Long length, boolean decode) {
+        long readLength = length != null ? length : file.getSize() - offset;
+        ObjectDiskCache.CachedObject cached = lookupCached(file, readLength, offset == 0);
+        return cached != null ? readCached(cached, offset, readLength) : readFromStore(file, offset, length, decode);
+    }
+
+    /**
+     * 查找本地磁盘缓存，每个请求只查找一次；可缓存的文件未压缩，缓存文件的偏移即原始内容中的偏移
+     * @param length 本次读取的字节数，命中时计入节省的字节数
+     * @param countAccess 是否计为一次访问
+     * @return 缓存的对象，不可缓存或未命中时为 null
+     */
+    private ObjectDiskCache.CachedObject lookupCached(FileDTO file, long length, boolean countAccess) {
+        if (!objectDiskCache.cacheable(file)) {
+            return null;
+        }
+        return objectDiskCache.lookup(file, length, countAccess);
+    }
+
+    /**
+     * 读入缓冲区发送缓存文件的区间，用于需要逐块领取令牌的限速下载和 ZIP 条目
+     */
+    private Flux<DataBuffer> readCached(ObjectDiskCache.CachedObject cached, long offset, long length) {
+        return DataBufferUtils.takeUntilByteCount(
+                DataBufferUtils.readAsynchronousFileChannel(
+                        () -> AsynchronousFileChannel.open(cached.path(), StandardOpenOption.READ),
+                        offset,
+                        new DefaultDataBufferFactory(),
+                        transferConfig.getDownloadConfig().getStreamBufferSizeBytes()
+                ),
+                length
+        );
     }
 
-    private record ByteRange(long start, long end, boolean isPartial) {}
+    /**
+     * 从 MinIO 读取文件内容，对象数据经 ObjectStreamReader 非阻塞读取，同一文件的并发完整读取合并为一个请求；
+     * 需要解压的文件仍通过输入流边读边解压
+     * @param offset 起始偏移，decode 时为原始内容中的偏移，否则为对象数据中的偏移
+     * @param length 读取长度，为 null 时读到文件末尾
+     * @param decode 压缩存储的文件是否解压
+     */
+    private Flux<DataBuffer> readFromStore(FileDTO file, long offset, Long length, boolean decode) {
+        FileTransferConfig.DownloadConfig cfg = transferConfig.getDownloadConfig();
+        boolean decoding = decode && isGzipEncoded(file);
 
-    private ByteRange parseRangeHeader(String rangeHeader, long fileSize) {
+        if (cfg.isAsyncReadEnabled() && !decoding) {
+            long base = file.getPackOffset() != null ? file.getPackOffset() : 0;
+            long readLength = length != null ? length : storedSize(file) - offset;
+            if (cfg.isCoalesceEnabled() && offset == 0 && length == null) {
+                return readCoalescer.read(file.getBucket(), file.getStorageKey(), base, readLength);
+            }
+            return objectStreamReader.read(file.getBucket(), file.getStorageKey(), base + offset, readLength);
+        }
+
+        return DataBufferUtils.readInputStream(
+                () -> decoding
+                        ? openContent(file, offset, length)
+                        : minioClient.getObject(objectArgs(file, offset, length)),
+                new DefaultDataBufferFactory(),
+                cfg.getStreamBufferSizeBytes()
+        );
+    }
+
+    /**
+     * 打开文件原始内容的输入流，压缩存储的文件边读边解压，从文件开头解压后跳过 offset
+     * @param offset 原始内容中的起始偏移
+     * @param length 读取长度，为 null 时读到文件末尾
+     */
+    private InputStream openContent(FileDTO file, long offset, Long length) throws Exception {
+        if (!isGzipEncoded(file)) {
+            return minioClient.getObject(objectArgs(file, offset, length));
+        }
+
+        InputStream stream = GzipCodec.decompress(minioClient.getObject(objectArgs(file, 0, null)));
+        try {
+            stream.skipNBytes(offset);
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        return length != null ? ByteStreams.limit(stream, length) : stream;
+    }
+
+    private static boolean isGzipEncoded(FileDTO file) {
+        return GzipCodec.ENCODING.equals(file.getContentEncoding());
+    }
+
+    /**
+     * 对象中实际存储的字节数
+     */
+    private static long storedSize(FileDTO file) {
+        return file.getStoredSize() != null ? file.getStoredSize() : file.getSize();
+    }
+
+    /**
+     * Accept-Encoding 是否接受 gzip，q=0 表示拒绝
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase(GzipCodec.ENCODING) && !coding.equals("*")) {
+                continue;
+            }
+            boolean rejected = parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            if (!rejected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 构造读取对象中文件数据的请求，打包存储的文件换算为打包对象中的区间
+     * @param offset 对象数据中的起始偏移
+     * @param length 读取长度，为 null 时读到文件末尾
+     */
+    private GetObjectArgs objectArgs(FileDTO file, long offset, Long length) {
+        GetObjectArgs.Builder builder = GetObjectArgs.builder()
+                .bucket(file.getBucket())
+                .object(file.getStorageKey());
+
+        if (file.getPackOffset() != null) {
+            return builder
+                    .offset(file.getPackOffset() + offset)
+                    .length(length != null ? length : storedSize(file) - offset)
+                    .build();
+        }
+        if (offset > 0) {
+            builder.offset(offset);
+        }
+        if (length != null) {
+            builder.length(length);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 文件的校验头：强 ETag 取自内容的 MD5（缺失时依次为 CRC32C、对象位置），Last-Modified 取自更新时间；
+     * 用户文件只允许浏览器缓存，每次使用前须重新验证
+     * @param gzip 是否以 gzip 编码发送，编码后的表示使用不同的 ETag
+     */
+    private static HttpHeaders validators(FileDTO file, boolean gzip) {
+        String version;
+        if (file.getMd5() != null) {
+            version = file.getMd5();
+        } else if (file.getCrc32c() != null) {
+            version = file.getCrc32c();
+        } else {
+            version = Hashing.sha256()
+                    .hashString(file.getBucket() + "/" + file.getStorageKey() + ":" + file.getPackOffset() + ":" + file.getSize(), StandardCharsets.UTF_8)
+                    .toString()
+                    .substring(0, 32);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"" + version + (gzip ? "-" + GzipCodec.ENCODING : "") + "\"");
+        Long lastModified = file.getUpdatedAt() != null ? file.getUpdatedAt() : file.getCreatedAt();
+        if (lastModified != null) {
+            headers.setLastModified(lastModified);
+        }
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        return headers;
+    }
+
+    /**
+     * 按 If-None-Match（弱比较）判断文件是否未变更，没有 If-None-Match 时按 If-Modified-Since 判断；
+     * 格式错误的条件头按不存在处理
+     */
+    static boolean isNotModified(HttpHeaders requestHeaders, HttpHeaders validators) {
+        try {
+            List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+            if (!ifNoneMatch.isEmpty()) {
+                String etag = stripWeak(validators.getETag());
+                return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || stripWeak(tag).equals(etag));
+            }
+
+            long ifModifiedSince = requestHeaders.getIfModifiedSince();
+            long lastModified = validators.getLastModified();
+            return ifModifiedSince != -1 && lastModified != -1 && lastModified / 1000 <= ifModifiedSince / 1000; // HTTP 日期精确到秒
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * If-Range 是否与当前文件一致：ETag 按强比较，日期须与 Last-Modified 相同
+     */
+    static boolean ifRangeMatches(String ifRange, HttpHeaders validators) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(validators.getETag()); // 弱 ETag 不能用于 If-Range
+        }
+
+        HttpHeaders parsed = new HttpHeaders();
+        parsed.set(HttpHeaders.IF_RANGE, ifRange);
+        try {
+            long date = parsed.getFirstDate(HttpHeaders.IF_RANGE);
+            long lastModified = validators.getLastModified();
+            return lastModified != -1 && date / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    record ByteRange(long start, long end, boolean isPartial) {}
+
+    static ByteRange parseRangeHeader(String rangeHeader, long fileSize) {
         if (rangeHeader == null) {
             return new ByteRange(0, fileSize - 1, false);
         }
@@ -343,6 +768,21 @@ public class FileDownloadServiceImpl implements FileDownloadService {
                 .substring(0, 16);
     }
 
+    /**
+     * 归档缓存键，包含用户以及每个文件的 ID 和版本，文件修改后生成新的归档
+     */
+    private String generateArchiveKey(UUID userId, List<FileDTO> files) {
+        String versions = files.stream()
+                .sorted(Comparator.comparing(FileDTO::getId))
+                .map(file -> String.join(":", file.getId(), String.valueOf(file.getSize()),
+                        String.valueOf(file.getUpdatedAt()), String.valueOf(file.getMd5())))
+                .collect(Collectors.joining(","));
+
+        return Hashing.sha256()
+                .hashString(userId + "|" + versions, StandardCharsets.UTF_8)
+                .toString();
+    }
+
     public static boolean isCompressed(String filename) {
         int lastDotIndex = filename.lastIndexOf('.');
         if (lastDotIndex == -1) {
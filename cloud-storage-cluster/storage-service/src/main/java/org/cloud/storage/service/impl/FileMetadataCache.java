@@ -0,0 +1,125 @@
+package org.cloud.storage.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.cloud.api.dto.FileChangeEvent;
+import org.cloud.api.dto.FileDTO;
+import org.cloud.api.service.FileSystemRpcService;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.TypedJsonJacksonCodec;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 下载使用的文件元数据缓存 <br/>
+ * 以 (用户 ID, 文件 ID) 为键缓存 getFile 的结果，分片下载同一文件时只有第一个请求调用 RPC；
+ * 文件系统服务在文件删除、移动、重命名后经 Redis 主题发布 FileChangeEvent，收到后使对应缓存失效，
+ * 有效期兜底订阅断开期间丢失的事件。文件不存在时不缓存
+ */
+@Slf4j
+@Component
+public class FileMetadataCache {
+    @DubboReference(check = false, timeout = 3000, retries = 1, lazy = true)
+    private FileSystemRpcService fileSystemRpcService;
+
+    private final FileTransferConfig.DownloadConfig cfg;
+    private final ThreadPoolTaskExecutor taskExecutor;
+    private final Cache<String, FileDTO> cache;
+
+    /** 失效次数，查询期间发生过失效时不缓存查询结果，避免覆盖为旧数据 */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public FileMetadataCache(FileTransferConfig transferConfig,
+                             @Qualifier("sharedTaskExecutor") ThreadPoolTaskExecutor taskExecutor,
+                             RedissonClient redissonClient,
+                             MeterRegistry meterRegistry) {
+        this.cfg = transferConfig.getDownloadConfig();
+        this.taskExecutor = taskExecutor;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(cfg.getMetadataCacheMaxEntries())
+                .expireAfterWrite(cfg.getMetadataCacheTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+
+        if (cfg.isMetadataCacheEnabled()) {
+            RTopic topic = redissonClient.getTopic(FileChangeEvent.TOPIC, new TypedJsonJacksonCodec(FileChangeEvent.class));
+            topic.addListener(FileChangeEvent.class, (channel, event) -> invalidate(event));
+        }
+    }
+
+    /**
+     * 获取文件元数据，未缓存时经 RPC 查询
+     * @param userId 用户 ID
+     * @param fileId 文件 ID
+     * @return 文件元数据，文件不存在或已删除时为空
+     */
+    public Mono<FileDTO> getFile(UUID userId, UUID fileId) {
+        if (!cfg.isMetadataCacheEnabled()) {
+            return load(userId, fileId);
+        }
+
+        String key = cacheKey(userId.toString(), fileId.toString());
+        FileDTO cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hitCounter.increment();
+            return Mono.just(cached);
+        }
+
+        missCounter.increment();
+        long version = invalidations.get();
+        return load(userId, fileId)
+                .doOnNext(file -> {
+                    if (invalidations.get() == version) {
+                        cache.put(key, file);
+                    }
+                });
+    }
+
+    private Mono<FileDTO> load(UUID userId, UUID fileId) {
+        return Mono.fromCallable(() -> fileSystemRpcService.getFile(userId.toString(), fileId.toString()))
+                .subscribeOn(Schedulers.fromExecutor(taskExecutor));
+    }
+
+    private void invalidate(FileChangeEvent event) {
+        invalidations.incrementAndGet();
+
+        if (event.getUserId() == null) {
+            cache.invalidateAll();
+        } else if (event.getFileIds() == null) {
+            String prefix = cacheKey(event.getUserId(), "");
+            cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        } else {
+            event.getFileIds().forEach(fileId -> cache.invalidate(cacheKey(event.getUserId(), fileId)));
+        }
+
+        log.debug("[FileMetadataCache] Invalidated, userId={}, fileIds={}", event.getUserId(), event.getFileIds());
+    }
+
+    private static String cacheKey(String userId, String fileId) {
+        return userId + ":" + fileId;
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.metadata.cache.requests")
+                .description("下载文件元数据缓存请求数，按命中、未命中区分")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
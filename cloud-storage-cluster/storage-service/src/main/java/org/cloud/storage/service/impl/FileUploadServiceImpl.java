@@ -1,14 +1,15 @@
 package org.cloud.storage.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import io.minio.*;
+import io.minio.http.Method;
+import io.minio.messages.ListPartsResult;
 import io.minio.messages.Part;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboReference;
+import org.cloud.api.dto.FileDTO;
 import org.cloud.api.dto.FileInputDTO;
 import org.cloud.api.service.FileSystemRpcService;
 import org.cloud.storage.config.minio.MinioProperties;
@@ -16,15 +17,19 @@ import org.cloud.storage.config.transfer.FileTransferConfig;
 import org.cloud.storage.dto.*;
 import org.cloud.storage.dto.enums.TaskType;
 import org.cloud.storage.exception.AvatarUploadException;
+import org.cloud.storage.exception.InstantUploadException;
 import org.cloud.storage.exception.MultipartUploadException;
+import org.cloud.storage.exception.UploadOverloadedException;
 import org.cloud.storage.repository.FileProcessingTaskRepository;
 import org.cloud.storage.service.FileUploadService;
+import org.cloud.storage.util.ContentHasher;
+import org.cloud.storage.util.GzipCodec;
 import org.cloud.storage.util.StorageKeyGenerator;
-import org.redisson.api.RBucket;
-import org.redisson.api.RList;
+import org.redisson.api.RMap;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -35,7 +40,8 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -52,19 +58,27 @@ public class FileUploadServiceImpl implements FileUploadService {
     private final FileTransferConfig transferConfig;
     private final MinioProperties minioProperties;
     private final MinioClient minioClient;
+    private final MinioClient presignMinioClient;
     private final MinioAsyncClient minioAsyncClient;
     private final RedissonClient redissonClient;
     private final ThreadPoolTaskExecutor taskExecutor;
-    private final ObjectMapper objectMapper;
     private final FileProcessingTaskRepository fileProcessingTaskRepository;
+    private final StreamingPartUploader streamingPartUploader;
+    private final UploadMemoryBudget uploadMemoryBudget;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final MultipartSessionCache multipartSessionCache;
+    private final PackStore packStore;
 
     private static long MEMORY_THRESHOLD = 5 * 1024 * 1024; // 16 MB
     private static long STREAM_THRESHOLD = 100 * 1024 * 1024; // 100 MB
     private static Path TEMP_UPLOAD_DIR = Paths.get("tmp");
-    private static final String MULTIPART_UPLOAD_METADATA_PREFIX = "multipart:metadata:";
-    private static final String MULTIPART_UPLOAD_PARTS_PREFIX = "multipart:parts:";
-    private static final long MULTIPART_UPLOAD_EXPIRE_HOURS = 24L;
+    private static final String MULTIPART_UPLOAD_PARTS_PREFIX = "multipart:part-etags:"; // Hash: 分片编号 -> ETag
+    private static final String MULTIPART_UPLOAD_PART_SIZES_PREFIX = "multipart:part-sizes:"; // Hash: 分片编号 -> 分片大小
+    private static final String MULTIPART_UPLOAD_PART_CRC32C_PREFIX = "multipart:part-crc32c:"; // Hash: 分片编号 -> 分片 CRC32C
     private static final long MAX_AVATAR_SIZE = 1024 * 1024;
+    private static final long MB = 1024 * 1024;
+    private static final long MIN_PART_SIZE = 5 * MB; // 对象存储要求除最后一个分片外不小于 5MB
+    private static final long MAX_PART_SIZE = 5L * 1024 * MB; // 单个分片不超过 5GB
 
     static {
         try {
@@ -78,25 +92,50 @@ public class FileUploadServiceImpl implements FileUploadService {
     public FileUploadServiceImpl(FileTransferConfig transferConfig,
                                  MinioProperties minioProperties,
                                  MinioClient minioClient,
+                                 @Qualifier("presignMinioClient") MinioClient presignMinioClient,
                                  MinioAsyncClient minioAsyncClient,
                                  RedissonClient redissonClient,
                                  @Qualifier("sharedTaskExecutor") ThreadPoolTaskExecutor taskExecutor,
-                                 ObjectMapper objectMapper,
-                                 FileProcessingTaskRepository fileProcessingTaskRepository) {
+                                 FileProcessingTaskRepository fileProcessingTaskRepository,
+                                 StreamingPartUploader streamingPartUploader,
+                                 UploadMemoryBudget uploadMemoryBudget,
+                                 BandwidthLimiter bandwidthLimiter,
+                                 MultipartSessionCache multipartSessionCache,
+                                 PackStore packStore) {
         this.transferConfig = transferConfig;
         this.minioProperties = minioProperties;
         this.minioClient = minioClient;
+        this.presignMinioClient = presignMinioClient;
         this.minioAsyncClient = minioAsyncClient;
         this.redissonClient = redissonClient;
         this.taskExecutor = taskExecutor;
-        this.objectMapper = objectMapper;
         MEMORY_THRESHOLD = transferConfig.getMultiFileConfig().getMemoryThreshold();
         STREAM_THRESHOLD = transferConfig.getMultiFileConfig().getStreamThreshold();
         this.fileProcessingTaskRepository = fileProcessingTaskRepository;
+        this.streamingPartUploader = streamingPartUploader;
+        this.uploadMemoryBudget = uploadMemoryBudget;
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.multipartSessionCache = multipartSessionCache;
+        this.packStore = packStore;
+
+        validateParallelUploadConfig(transferConfig.getParallelUploadConfig());
     }
 
     /**
-     * 上传中小型文件
+     * 校验并行分片上传配置，内存上限至少容纳一个正在切分的分片和一个上传中的分片，
+     * 否则按分片大小预留的内存会超过 maxInFlightBytes
+     */
+    private static void validateParallelUploadConfig(FileTransferConfig.ParallelUploadConfig cfg) {
+        long partSize = Math.max(cfg.getPartSizeBytes(), StreamingPartUploader.MIN_PART_SIZE);
+        if (cfg.getMaxInFlightBytes() < 2 * partSize) {
+            throw new IllegalStateException(String.format(
+                    "transfer.parallel-upload-config.max-in-flight-bytes (%d) must be at least twice the part size (%d)",
+                    cfg.getMaxInFlightBytes(), partSize));
+        }
+    }
+
+    /**
+     * 多文件上传，按文件大小分别走内存直传、流式分片上传或并行分片上传
      * @param files 文件列表
      * @param fileSizes 文件大小列表
      * @param directoryId 目录 ID
@@ -116,24 +155,73 @@ public class FileUploadServiceImpl implements FileUploadService {
                         Long fileSize = tuple.getT2();
 
                         return routeUploadBySize(filePart, fileSize, directoryId, userId)
-                            .flatMap(dto -> persistFileMetadata(dto, userId)
-                                .map(result -> {
-                                        if(result) {
-                                            return FileUploadResult.success(filePart.filename());
-                                        } else {
-                                            return FileUploadResult.failure(filePart.filename(), "保存文件元数据失败");
-                                        }
-                                    }
-                                )
-                            ).switchIfEmpty(Mono.just(FileUploadResult.failure(filePart.filename(), "文件上传失败")));
+                            .map(dto -> new UploadedFile(filePart.filename(), dto, null))
+                            .onErrorResume(UploadOverloadedException.class,
+                                    e -> Mono.just(new UploadedFile(filePart.filename(), null, e.getMessage())))
+                            .defaultIfEmpty(new UploadedFile(filePart.filename(), null, "文件上传失败"));
                     },
                     cfg.getMaxConcurrency() // 并发度
                 )
                 .timeout(Duration.ofMinutes(cfg.getFileTimeoutMinutes()))
+                .bufferTimeout(cfg.getMetadataBatchSize(), Duration.ofMillis(cfg.getMetadataBatchWindowMillis())) // 按数量或时间攒批
+                .concatMap(batch -> persistFileMetadataBatch(batch, userId))
                 .collectList()
                 .timeout(Duration.ofMinutes(cfg.getBatchTimeoutMinutes()));
     }
 
+    /**
+     * 多文件上传中已写入存储的文件
+     * @param filename 文件名称
+     * @param file 文件元数据，上传失败时为 null
+     * @param errorMsg 上传失败的原因
+     */
+    private record UploadedFile(String filename, FileInputDTO file, String errorMsg) {}
+
+    /**
+     * 秒传探测，用户自己已存在内容相同的存储对象时直接引用该对象创建文件，不传输数据 <br/>
+     * 只匹配该用户的文件：仅凭 MD5 和大小即可引用他人的对象会泄露其他用户的文件内容
+     * @param request 秒传探测请求
+     * @param userId 用户 ID
+     * @return 探测结果
+     */
+    @Override
+    public Mono<InstantUploadResult> instantUpload(InstantUploadRequest request, UUID userId) {
+        String md5 = request.getMd5().toLowerCase();
+
+        return Mono.fromCallable(() -> fileSystemRpcService.findFileByContent(userId.toString(), md5, request.getCrc32c(), request.getSize()))
+            .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+            .flatMap(existing -> {
+                String contentType = Optional.ofNullable(request.getContentType())
+                        .filter(type -> !type.isBlank())
+                        .orElse(existing.getMimeType());
+
+                FileInputDTO file = FileInputDTO.builder()
+                        .directoryId(request.getDirectoryId().toString())
+                        .bucket(existing.getBucket())
+                        .storageKey(existing.getStorageKey())
+                        .packOffset(existing.getPackOffset())
+                        .contentEncoding(existing.getContentEncoding())
+                        .storedSize(existing.getStoredSize())
+                        .name(request.getFilename())
+                        .mimeType(contentType)
+                        .size(existing.getSize())
+                        .md5(existing.getMd5()) // 按 CRC32C 命中时，已存储的对象没有经过校验的 MD5
+                        .crc32c(existing.getCrc32c())
+                        .build();
+
+                return createFileRecord(file, userId)
+                        .doOnSuccess(dto -> log.info("[instantUpload] fileId={}, storageKey={}, filename={}, userId={}, size={} bytes",
+                                dto.getId(), dto.getStorageKey(), dto.getName(), userId, dto.getSize()))
+                        .map(dto -> InstantUploadResult.hit(dto.getId()))
+                        .onErrorMap(e -> {
+                            log.error("[instantUpload] filename={}, directoryId={}, userId={}, error={}",
+                                    request.getFilename(), request.getDirectoryId(), userId, e.getMessage());
+                            return new InstantUploadException("秒传创建文件失败，请检查目录或文件名称");
+                        });
+            })
+            .defaultIfEmpty(InstantUploadResult.miss());
+    }
+
     /**
      * 初始化分片上传
      * @param request 初始化分片上传请求
@@ -170,152 +258,454 @@ public class FileUploadServiceImpl implements FileUploadService {
      */
     @Override
     public Mono<PartUploadResult> uploadPart(String uploadId, int partNumber, Flux<DataBuffer> filePart, UUID userId) {
+        return loadMultipartMetadata(uploadId, userId, "uploadPart", "读取分片上传的元数据失败，上传任务可能已过期或不存在")
+            .flatMap(metadata -> uploadPart(uploadId, partNumber, filePart, userId, metadata));
+    }
+
+    private Mono<PartUploadResult> uploadPart(String uploadId, int partNumber, Flux<DataBuffer> filePart, UUID userId, MultipartUploadMetadata metadata) {
         FileTransferConfig.ChunkedUploadConfig cfg = transferConfig.getChunkedUploadConfig();
-        String metadataKey = MULTIPART_UPLOAD_METADATA_PREFIX + userId + ":" + uploadId;
-        RBucket<String> metadataBucket = redissonClient.getBucket(metadataKey);
+        ContentHasher hasher = new ContentHasher();
+
+        return Mono.usingWhen(
+                Mono.fromSupplier(() -> new PartSpool(TEMP_UPLOAD_DIR, cfg.getMaxChunkSizeBytes(), cfg.getMemorySpillThresholdBytes(), uploadMemoryBudget)),
+                spool -> bandwidthLimiter.throttle(filePart, userId, BandwidthLimiter.Direction.UPLOAD)
+                    .publishOn(Schedulers.fromExecutor(taskExecutor)) // 落盘写入为阻塞 IO
+                    .doOnNext(buffer -> {
+                        hasher.update(buffer); // 写入暂存区前计算分片摘要
+                        spool.write(buffer);   // 边接收边校验大小，超限立即失败
+                    })
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .then(Mono.defer(() -> uploadSpooledPart(spool, uploadId, partNumber, metadata)
+                            .timeout(Duration.ofMinutes(cfg.getChunkTimeoutMinutes())) // 只限制上传到 MinIO 的耗时，接收速度取决于客户端
+                            .map(response -> new PartUploadResult(partNumber, response.etag(), spool.size(),
+                                    ContentHasher.crc32cHex(hasher.crc32c()))))),
+                spool -> Mono.fromRunnable(spool::close)
+            )
+            .onErrorMap(e -> {
+                log.error("[uploadPart] userId={}, uploadId={}, partNumber={}, filename={}, error={}",
+                        userId, uploadId, partNumber, metadata.getFilename(), e.getMessage());
+                if (e instanceof MultipartUploadException) {
+                    return e;
+                }
+                return new MultipartUploadException(String.format("文件 '%s' 的分片%s上传失败，请稍后重试", metadata.getFilename(), partNumber));
+            })
+            .flatMap(result -> {
+                // 缓存分片信息，同一分片重传时覆盖旧的 ETag 和大小
+                RMap<Integer, String> partsMap = redissonClient.getMap(MULTIPART_UPLOAD_PARTS_PREFIX + userId + ":" + uploadId);
+                RMap<Integer, Long> partSizesMap = redissonClient.getMap(MULTIPART_UPLOAD_PART_SIZES_PREFIX + userId + ":" + uploadId);
+                RMap<Integer, Long> partCrc32cMap = redissonClient.getMap(MULTIPART_UPLOAD_PART_CRC32C_PREFIX + userId + ":" + uploadId);
+                Duration expire = MultipartSessionCache.SESSION_TTL;
+
+                return Mono.when(
+                            Mono.fromCompletionStage(partsMap.fastPutAsync(partNumber, result.getEtag())),
+                            Mono.fromCompletionStage(partSizesMap.fastPutAsync(partNumber, result.getSize())),
+                            Mono.fromCompletionStage(partCrc32cMap.fastPutAsync(partNumber, Long.parseLong(result.getCrc32c(), 16)))
+                        )
+                        .then(Mono.when(
+                            Mono.fromCompletionStage(partsMap.expireAsync(expire)),
+                            Mono.fromCompletionStage(partSizesMap.expireAsync(expire)),
+                            Mono.fromCompletionStage(partCrc32cMap.expireAsync(expire))
+                        ))
+                        .thenReturn(result);
+            });
+    }
 
-        MultipartUploadMetadata metadata;
-        try {
-             metadata = objectMapper.readValue(metadataBucket.get(), MultipartUploadMetadata.class);
-        } catch (Exception e) {
-            log.error("[uploadPart] Failed to read multipart upload metadata, userId={}, uploadId={}, error={}", userId, uploadId, e.getMessage());
-            return Mono.error(new MultipartUploadException("读取分片上传的元数据失败，上传任务可能已过期或不存在"));
-        }
+    /**
+     * 查询已上传的分片，断点续传时客户端只需补传缺失的分片
+     * @param uploadId 上传任务ID
+     * @param userId 用户ID
+     * @return 按分片编号升序排列的已上传分片
+     */
+    @Override
+    public Mono<List<PartUploadResult>> listUploadedParts(String uploadId, UUID userId) {
+        RMap<Integer, String> partsMap = redissonClient.getMap(MULTIPART_UPLOAD_PARTS_PREFIX + userId + ":" + uploadId);
+        RMap<Integer, Long> partSizesMap = redissonClient.getMap(MULTIPART_UPLOAD_PART_SIZES_PREFIX + userId + ":" + uploadId);
+        RMap<Integer, Long> partCrc32cMap = redissonClient.getMap(MULTIPART_UPLOAD_PART_CRC32C_PREFIX + userId + ":" + uploadId);
+
+        return loadMultipartMetadata(uploadId, userId, "listUploadedParts", "上传任务已过期或不存在，请重新上传")
+            .flatMap(metadata -> Mono.zip(
+                    Mono.fromCompletionStage(partsMap.readAllMapAsync()),
+                    Mono.fromCompletionStage(partSizesMap.readAllMapAsync()),
+                    Mono.fromCompletionStage(partCrc32cMap.readAllMapAsync())
+            ))
+            .map(tuple -> tuple.getT1().entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .map(entry -> new PartUploadResult(
+                            entry.getKey(),
+                            entry.getValue(),
+                            tuple.getT2().get(entry.getKey()),
+                            Optional.ofNullable(tuple.getT3().get(entry.getKey())).map(ContentHasher::crc32cHex).orElse(null)
+                    ))
+                    .toList())
+            .onErrorMap(e -> {
+                if (e instanceof MultipartUploadException) {
+                    return e;
+                }
+                log.error("[listUploadedParts] userId={}, uploadId={}, error={}", userId, uploadId, e.getMessage());
+                return new MultipartUploadException("查询已上传分片失败，请稍后重试");
+            });
+    }
 
-        return DataBufferUtils.join(filePart)
-            .flatMap(buffer -> {
-                long size = buffer.readableByteCount();
+    /**
+     * 上传暂存区中的分片，内存分片直接读取接收的 DataBuffer，落盘分片由 MinIO 客户端直接读取文件
+     */
+    private Mono<UploadPartResponse> uploadSpooledPart(PartSpool spool, String uploadId, int partNumber, MultipartUploadMetadata metadata) {
+        long startTime = System.currentTimeMillis();
+        long size = spool.size();
+        boolean spilled = spool.isSpilled();
 
-                // 读取分片到内存中
-                byte[] bytes = new byte[(int) size];
-                buffer.read(bytes);
-                DataBufferUtils.release(buffer);
+        // 构造请求头
+        Multimap<String, String> headers = HashMultimap.create();
+        headers.put("Content-Type", metadata.getContentType());
 
-                if(size > cfg.getMaxChunkSizeBytes()) {
-                    return Mono.error(new MultipartUploadException("文件分片大小超过最大限制"));
-                }
+        return Mono.fromCallable(() -> minioAsyncClient.uploadPartAsync(
+                        minioProperties.getStorageBucket(),
+                        null,
+                        metadata.getStorageKey(),
+                        spilled ? spool.openFile() : spool.toByteArray(),
+                        size,
+                        uploadId,
+                        partNumber,
+                        headers,
+                        null
+                ))
+                .subscribeOn(Schedulers.fromExecutor(taskExecutor)) // 文件分片在提交时计算摘要会读取文件
+                .flatMap(Mono::fromFuture)
+                .doOnSuccess(response -> log.info("[uploadPart] uploadId={}, filename={}, etag={}, size={}MB, spilled={}, elapsed={} ms",
+                        uploadId, metadata.getFilename(), response.etag(), size / 1024 / 1024, spilled, System.currentTimeMillis() - startTime));
+    }
 
-                return Mono.fromCallable(() -> {
-                    long startTime = System.currentTimeMillis();
-
-                    // 构造请求头
-                    Multimap<String, String> headers = HashMultimap.create();
-                    headers.put("Content-Type", metadata.getContentType());
-
-                    try(InputStream is = new ByteArrayInputStream(bytes)) {
-                        UploadPartResponse response = minioAsyncClient.uploadPartAsync(
-                                minioProperties.getStorageBucket(),
-                                null,
-                                metadata.getStorageKey(),
-                                is,
-                                size,
-                                uploadId,
-                                partNumber,
-                                headers,
-                                null
-                        ).get(30, TimeUnit.SECONDS);
+    /**
+     * 合并分片完成分片上传
+     * @param uploadId 上传任务ID
+     * @param userId 用户ID
+     * @return 文件元数据输入对象
+     */
+    @Override
+    public Mono<FileInputDTO> completeMultipartUpload(String uploadId, UUID userId) {
+        String bucket = minioProperties.getStorageBucket();
+        RMap<Integer, String> partsMap = redissonClient.getMap(MULTIPART_UPLOAD_PARTS_PREFIX + userId + ":" + uploadId);
+        RMap<Integer, Long> partSizesMap = redissonClient.getMap(MULTIPART_UPLOAD_PART_SIZES_PREFIX + userId + ":" + uploadId);
+        RMap<Integer, Long> partCrc32cMap = redissonClient.getMap(MULTIPART_UPLOAD_PART_CRC32C_PREFIX + userId + ":" + uploadId);
+
+        return loadMultipartMetadata(uploadId, userId, "completeMultipartUpload", "读取分片上传元数据失败，上传任务可能已过期或不存在")
+            .flatMap(metadata -> Mono.zip(
+                    Mono.fromCompletionStage(partsMap.readAllMapAsync()),
+                    Mono.fromCompletionStage(partSizesMap.readAllMapAsync()),
+                    Mono.fromCompletionStage(partCrc32cMap.readAllMapAsync())
+                )
+                .flatMap(tuple -> {
+                    Map<Integer, String> partEtags = tuple.getT1();
+                    Map<Integer, Long> partSizes = tuple.getT2();
+                    Map<Integer, Long> partCrc32cs = tuple.getT3();
+
+                    // 构造分片信息数组并排序
+                    Part[] parts = partEtags.entrySet().stream()
+                        .sorted(Map.Entry.comparingByKey())
+                        .map(entry -> new Part(entry.getKey(), entry.getValue()))
+                        .toArray(Part[]::new);
+
+                    // 合并后的对象大小为各分片大小之和，缺少分片大小时（旧版本写入的任务）回退到查询对象
+                    boolean sizesKnown = partSizes.keySet().containsAll(partEtags.keySet());
+                    long fileSize = sizesKnown
+                            ? partEtags.keySet().stream().mapToLong(partSizes::get).sum()
+                            : -1;
+
+                    // 按分片顺序合并各分片的 CRC32C 得到整个文件的 CRC32C
+                    String crc32c = null;
+                    if (sizesKnown && parts.length > 0 && partCrc32cs.keySet().containsAll(partEtags.keySet())) {
+                        long crc = partCrc32cs.get(parts[0].partNumber());
+                        for (int i = 1; i < parts.length; i++) {
+                            int partNumber = parts[i].partNumber();
+                            crc = ContentHasher.combineCrc32c(crc, partCrc32cs.get(partNumber), partSizes.get(partNumber));
+                        }
+                        crc32c = ContentHasher.crc32cHex(crc);
+                    }
 
-                        long elapsed = System.currentTimeMillis() - startTime;
-                        log.info("[uploadPart] uploadId={}, filename={}, etag={}, size={}MB, elapsed={} ms",
-                                uploadId, metadata.getFilename(), response.etag(), size / 1024 / 1024, elapsed);
+                    // MD5 无法由分片摘要合并，只有单个分片时分片的 ETag 即文件的 MD5
+                    String md5 = parts.length == 1 ? stripEtag(parts[0].etag()) : null;
 
-                        return response;
-                    }
-                }).timeout(Duration.ofMinutes(cfg.getChunkTimeoutMinutes()))
-                .subscribeOn(Schedulers.fromExecutor(taskExecutor))
-                .onErrorMap(e -> {
-                    log.error("[uploadPart] userId={}, uploadId={}, partNumber={}, filename={}, error={}",
-                            userId, uploadId, partNumber, metadata.getFilename(), e.getMessage());
-                    return new MultipartUploadException(String.format("文件 '%s' 的分片%s上传失败，请稍后重试", metadata.getFilename(), partNumber));
-                });
-            }).flatMap(response -> {
-                // 缓存分片信息
-                String partsListKey = MULTIPART_UPLOAD_PARTS_PREFIX + userId + ":" + uploadId;
-                RList<String> partsList = redissonClient.getList(partsListKey);
+                    return finishMultipartUpload(uploadId, userId, metadata, parts, md5, crc32c, fileSize);
+                }));
+    }
+
+    /**
+     * 生成分片直传计划，客户端将各分片直接上传到对象存储，数据不经过本服务
+     * @param request 初始化分片上传请求
+     * @param userId 用户 ID
+     * @return 上传计划
+     */
+    @Override
+    public Mono<MultipartUploadPlan> planMultipartUpload(InitMultipartUploadRequest request, UUID userId) {
+        FileTransferConfig.ChunkedUploadConfig cfg = transferConfig.getChunkedUploadConfig();
+        String bucket = minioProperties.getStorageBucket();
+        String storageKey = StorageKeyGenerator.generateKey(userId);
 
-                String etag = response.etag();
-                String partInfo = partNumber + "-" + etag;
-                partsList.add(partInfo);
-                partsList.expire(Duration.ofHours(MULTIPART_UPLOAD_EXPIRE_HOURS));
+        long partSize = planPartSize(request.getSize(), cfg);
+        if (partSize > MAX_PART_SIZE) {
+            return Mono.error(new MultipartUploadException("文件过大，超过分片上传的大小上限"));
+        }
 
-                return Mono.just(new PartUploadResult(partNumber, etag));
+        // 构造请求头
+        Multimap<String, String> headers = HashMultimap.create();
+        headers.put("Content-Type", request.getContentType());
+
+        MultipartUploadMetadata metadata = MultipartUploadMetadata.builder()
+                .directoryId(request.getDirectoryId().toString())
+                .storageKey(storageKey)
+                .filename(request.getFilename())
+                .contentType(request.getContentType())
+                .fileSize(request.getSize())
+                .partSize(partSize)
+                .createdAt(System.currentTimeMillis())
+                .build();
+
+        return Mono.fromCallable(() -> minioAsyncClient.createMultipartUploadAsync(bucket, null, storageKey, headers, null))
+            .flatMap(Mono::fromFuture)
+            .map(response -> response.result().uploadId())
+            .flatMap(uploadId -> multipartSessionCache.put(uploadId, userId, metadata)
+                    .then(presignUploadPlan(uploadId, metadata)))
+            .doOnSuccess(plan -> log.info("[planMultipartUpload] uploadId={}, storageKey={}, filename={}, partSize={}MB, partCount={}",
+                    plan.getUploadId(), storageKey, request.getFilename(), partSize / 1024 / 1024, plan.getPartCount()))
+            .onErrorMap(e -> {
+                log.error("[planMultipartUpload] filename={}, size={}, error={}", request.getFilename(), request.getSize(), e.getMessage());
+                return new MultipartUploadException("初始化文件上传失败，请稍后重试");
             });
     }
 
     /**
-     * 合并分片完成分片上传
+     * 重新获取分片直传计划，用于上传地址过期后继续上传
      * @param uploadId 上传任务ID
      * @param userId 用户ID
+     * @return 上传计划
+     */
+    @Override
+    public Mono<MultipartUploadPlan> getMultipartUploadPlan(String uploadId, UUID userId) {
+        return loadMultipartMetadata(uploadId, userId, "getMultipartUploadPlan", "上传任务已过期或不存在，请重新上传")
+            .flatMap(metadata -> {
+                if (metadata.getPartSize() == null) {
+                    return Mono.error(new MultipartUploadException("该上传任务不是分片直传任务"));
+                }
+                return presignUploadPlan(uploadId, metadata)
+                        .onErrorMap(e -> {
+                            log.error("[getMultipartUploadPlan] userId={}, uploadId={}, error={}", userId, uploadId, e.getMessage());
+                            return new MultipartUploadException("获取上传地址失败，请稍后重试");
+                        });
+            });
+    }
+
+    /**
+     * 完成分片直传，以对象存储中实际的分片校验客户端提交的 ETag 后合并
+     * @param request 上传任务ID和客户端收到的各分片 ETag
+     * @param userId 用户ID
      * @return 文件元数据输入对象
      */
     @Override
-    public Mono<FileInputDTO> completeMultipartUpload(String uploadId, UUID userId) {
+    public Mono<FileInputDTO> completePresignedUpload(CompleteMultipartUploadRequest request, UUID userId) {
         String bucket = minioProperties.getStorageBucket();
-        String metadataKey = MULTIPART_UPLOAD_METADATA_PREFIX + userId + ":" + uploadId;
-        String partsListKey = MULTIPART_UPLOAD_PARTS_PREFIX + userId + ":" + uploadId;
+        String uploadId = request.getUploadId();
 
-        // 分片上传的元数据
-        RBucket<String> metadataBucket = redissonClient.getBucket(metadataKey);
-        MultipartUploadMetadata metadata;
-        try {
-            metadata = objectMapper.readValue(metadataBucket.get(), MultipartUploadMetadata.class);
-        } catch (Exception e) {
-            log.error("[completeMultipartUpload] Failed to read multipart upload metadata, userId={}, uploadId={}, error={}", userId, uploadId, e.getMessage());
-            return Mono.error(new MultipartUploadException("读取分片上传元数据失败，上传任务可能已过期或不存在"));
-        }
+        return loadMultipartMetadata(uploadId, userId, "completePresignedUpload", "读取分片上传元数据失败，上传任务可能已过期或不存在")
+            .flatMap(metadata -> listStoredParts(bucket, metadata.getStorageKey(), uploadId)
+                .onErrorMap(e -> {
+                    log.error("[completePresignedUpload] uploadId={}, storageKey={}, error={}", uploadId, metadata.getStorageKey(), e.getMessage());
+                    return new MultipartUploadException("查询已上传分片失败，请稍后重试");
+                })
+                .flatMap(storedParts -> {
+                    Map<Integer, String> claimed = new HashMap<>();
+                    for (PartUploadResult part : request.getParts()) {
+                        if (part.getPartNumber() == null || part.getEtag() == null) {
+                            return Mono.error(new MultipartUploadException("分片编号和 ETag 不能为空"));
+                        }
+                        claimed.put(part.getPartNumber(), stripEtag(part.getEtag()));
+                    }
 
-        // 分片信息
-        RList<String> partsInfoList = redissonClient.getList(partsListKey);
-        List<String> partsInfo = partsInfoList.readAll();
+                    // 只合并客户端确认的分片，且必须与对象存储中的分片一致
+                    List<Part> confirmed = storedParts.stream()
+                            .filter(part -> claimed.containsKey(part.partNumber()))
+                            .toList();
+                    boolean matched = confirmed.size() == claimed.size() && confirmed.stream()
+                            .allMatch(part -> claimed.get(part.partNumber()).equals(stripEtag(part.etag())));
+                    long fileSize = confirmed.stream().mapToLong(Part::partSize).sum();
+                    if (!matched || fileSize != metadata.getFileSize()) {
+                        log.warn("[completePresignedUpload] Part verification failed, uploadId={}, claimed={}, stored={}, size={}, expectedSize={}",
+                                uploadId, claimed.size(), storedParts.size(), fileSize, metadata.getFileSize());
+                        return Mono.error(new MultipartUploadException("分片校验失败，请补传缺失或不一致的分片后重试"));
+                    }
 
-        // 构造分片信息数组并排序
-        Part[] parts = partsInfo.stream()
-            .map(partInfo -> {
-                String[] partsArr = partInfo.split("-");
-                int partNumber = Integer.parseInt(partsArr[0]);
-                String eTag = partsArr[1];
-                return new Part(partNumber, eTag);
-            }).sorted(Comparator.comparingInt(Part::partNumber))
-            .toArray(Part[]::new);
+                    Part[] parts = confirmed.stream()
+                            .sorted(Comparator.comparingInt(Part::partNumber))
+                            .map(part -> new Part(part.partNumber(), part.etag()))
+                            .toArray(Part[]::new);
+                    String md5 = parts.length == 1 ? stripEtag(parts[0].etag()) : null;
+
+                    // 数据未经过本服务，无法计算 CRC32C
+                    return finishMultipartUpload(uploadId, userId, metadata, parts, md5, null, fileSize);
+                }));
+    }
+
+    /**
+     * 合并分片并保存文件元数据，成功后清理分片上传任务
+     */
+    private Mono<FileInputDTO> finishMultipartUpload(String uploadId, UUID userId, MultipartUploadMetadata metadata,
+                                                     Part[] parts, String md5, String crc32c, long fileSize) {
+        String bucket = minioProperties.getStorageBucket();
 
         // 构造请求头
         Multimap<String, String> headers = HashMultimap.create();
         headers.put("Content-Type", metadata.getContentType());
 
         // 合并分片
-        try {
-            return Mono.fromFuture(minioAsyncClient.completeMultipartUploadAsync(bucket,null, metadata.getStorageKey(), uploadId, parts, headers, null))
-                .subscribeOn(Schedulers.fromExecutor(taskExecutor))
-                .flatMap(response -> {
-                    String etag = response.etag();
-                    FileInputDTO file = buildFileInputDTO(
-                        metadata.getStorageKey(),
-                        UUID.fromString(metadata.getDirectoryId()),
-                        metadata.getFilename(),
-                        metadata.getContentType(),
-                        etag
+        return Mono.fromCallable(() -> minioAsyncClient.completeMultipartUploadAsync(bucket, null, metadata.getStorageKey(), uploadId, parts, headers, null))
+            .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+            .flatMap(Mono::fromFuture)
+            .onErrorMap(e -> {
+                log.error("[completeMultipartUpload] uploadId={}, storageKey={}, partCount={}, error={}",
+                        uploadId, metadata.getStorageKey(), parts.length, e.getMessage());
+                return new MultipartUploadException("文件合并失败，请稍后重试或重新上传");
+            })
+            .flatMap(response -> {
+                FileInputDTO file = buildFileInputDTO(
+                    metadata.getStorageKey(),
+                    UUID.fromString(metadata.getDirectoryId()),
+                    metadata.getFilename(),
+                    metadata.getContentType(),
+                    md5,
+                    crc32c,
+                    fileSize
+                );
+
+                log.info("[completeMultipartUpload] uploadId={}, storageKey={}", uploadId, metadata.getStorageKey());
+
+                return clearMultipartSession(uploadId, userId)
+                    .then(persistFileMetadata(file, userId))
+                    .flatMap(result -> {
+                        if(result) {
+                            return Mono.just(file);
+                        } else {
+                            return Mono.error(new MultipartUploadException("文件上传失败，请重新上传"));
+                        }
+                    });
+            });
+    }
+
+    /**
+     * 分片大小取满足分片数量上限的最小值，并按 1MB 向上取整
+     */
+    private static long planPartSize(long fileSize, FileTransferConfig.ChunkedUploadConfig cfg) {
+        long minPartSize = Math.max(cfg.getPresignedMinPartSizeBytes(), MIN_PART_SIZE);
+        long required = (fileSize + cfg.getPresignedMaxPartCount() - 1) / cfg.getPresignedMaxPartCount();
+        long partSize = Math.max(minPartSize, required);
+        return (partSize + MB - 1) / MB * MB;
+    }
+
+    /**
+     * 为上传计划的每个分片生成预签名 PUT 地址，签名只在本地计算
+     */
+    private Mono<MultipartUploadPlan> presignUploadPlan(String uploadId, MultipartUploadMetadata metadata) {
+        int expiryMinutes = transferConfig.getChunkedUploadConfig().getPresignedUrlExpiryMinutes();
+        long partSize = metadata.getPartSize();
+        int partCount = (int) Math.max(1, (metadata.getFileSize() + partSize - 1) / partSize);
+
+        return Mono.fromCallable(() -> {
+                long expiresAt = System.currentTimeMillis() + Duration.ofMinutes(expiryMinutes).toMillis();
+                List<PresignedPart> parts = new ArrayList<>(partCount);
+                for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                    String url = presignMinioClient.getPresignedObjectUrl(
+                            GetPresignedObjectUrlArgs.builder()
+                                    .method(Method.PUT)
+                                    .bucket(minioProperties.getStorageBucket())
+                                    .object(metadata.getStorageKey())
+                                    .expiry(expiryMinutes, TimeUnit.MINUTES)
+                                    .extraQueryParams(Map.of(
+                                            "uploadId", uploadId,
+                                            "partNumber", String.valueOf(partNumber)))
+                                    .build()
                     );
+                    parts.add(new PresignedPart(partNumber, url));
+                }
+
+                return MultipartUploadPlan.builder()
+                        .uploadId(uploadId)
+                        .partSize(partSize)
+                        .partCount(partCount)
+                        .expiresAt(expiresAt)
+                        .parts(parts)
+                        .build();
+            })
+            .subscribeOn(Schedulers.fromExecutor(taskExecutor));
+    }
+
+    /**
+     * 分页列出对象存储中已上传的分片
+     */
+    private Mono<List<Part>> listStoredParts(String bucket, String storageKey, String uploadId) {
+        return listStoredPartsPage(bucket, storageKey, uploadId, null)
+            .expand(page -> page.isTruncated()
+                    ? listStoredPartsPage(bucket, storageKey, uploadId, page.nextPartNumberMarker())
+                    : Mono.empty())
+            .concatMapIterable(ListPartsResult::partList)
+            .collectList();
+    }
 
-                    // 清理缓存
-                    metadataBucket.delete();
-                    partsInfoList.delete();
+    private Mono<ListPartsResult> listStoredPartsPage(String bucket, String storageKey, String uploadId, Integer partNumberMarker) {
+        return Mono.fromCallable(() -> minioAsyncClient.listPartsAsync(
+                        bucket, null, storageKey, null, partNumberMarker, uploadId, null, null))
+            .flatMap(Mono::fromFuture)
+            .map(response -> response.result());
+    }
 
-                    log.info("[completeMultipartUpload] uploadId={}, storageKey={}", uploadId, metadata.getStorageKey());
+    /**
+     * 终止分片上传，丢弃已上传的分片
+     * @param uploadId 上传任务ID
+     * @param userId 用户ID
+     */
+    @Override
+    public Mono<Void> abortMultipartUpload(String uploadId, UUID userId) {
+        String bucket = minioProperties.getStorageBucket();
 
-                    return persistFileMetadata(file, userId)
-                            .flatMap(result -> {
-                                if(result) {
-                                    return Mono.just(file);
-                                } else {
-                                    return Mono.error(new MultipartUploadException("文件上传失败，请重新上传"));
-                                }
-                            });
-                });
-        } catch (Exception e) {
-            log.error("[completeMultipartUpload] uploadId={}, storageKey={}, partCount={}, error={}",
-                    uploadId, metadata.getStorageKey(), parts.length, e.getMessage());
-            return Mono.error(new MultipartUploadException("文件合并失败，请稍后重试或重新上传"));
-        }
+        return loadMultipartMetadata(uploadId, userId, "abortMultipartUpload", "上传任务已过期或不存在")
+            .flatMap(metadata -> Mono.fromCallable(() -> minioAsyncClient.abortMultipartUploadAsync(bucket, null, metadata.getStorageKey(), uploadId, null, null))
+                .flatMap(Mono::fromFuture)
+                .onErrorMap(e -> {
+                    log.error("[abortMultipartUpload] uploadId={}, storageKey={}, error={}", uploadId, metadata.getStorageKey(), e.getMessage());
+                    return new MultipartUploadException("终止分片上传失败，请稍后重试");
+                })
+                .doOnSuccess(response -> log.info("[abortMultipartUpload] uploadId={}, storageKey={}", uploadId, metadata.getStorageKey())))
+            .then(clearMultipartSession(uploadId, userId));
+    }
+
+    /**
+     * 读取分片上传任务元数据，优先命中本地缓存
+     * @param operation 调用方法名，用于日志
+     * @param notFoundMessage 任务不存在时返回给用户的提示
+     */
+    private Mono<MultipartUploadMetadata> loadMultipartMetadata(String uploadId, UUID userId, String operation, String notFoundMessage) {
+        return multipartSessionCache.get(uploadId, userId)
+            .onErrorMap(e -> {
+                log.error("[{}] Failed to read multipart upload metadata, userId={}, uploadId={}, error={}", operation, userId, uploadId, e.getMessage());
+                return new MultipartUploadException(notFoundMessage);
+            })
+            .switchIfEmpty(Mono.error(() -> new MultipartUploadException(notFoundMessage)));
+    }
+
+    /**
+     * 清理分片上传任务在 Redis 中的元数据和分片信息，并使本地缓存失效
+     */
+    private Mono<Void> clearMultipartSession(String uploadId, UUID userId) {
+        multipartSessionCache.invalidate(uploadId, userId);
+
+        return Mono.fromCompletionStage(redissonClient.getKeys().deleteAsync(
+                    MultipartSessionCache.metadataKey(uploadId, userId),
+                    MULTIPART_UPLOAD_PARTS_PREFIX + userId + ":" + uploadId,
+                    MULTIPART_UPLOAD_PART_SIZES_PREFIX + userId + ":" + uploadId,
+                    MULTIPART_UPLOAD_PART_CRC32C_PREFIX + userId + ":" + uploadId
+                ))
+                .onErrorResume(e -> {
+                    log.warn("[clearMultipartSession] userId={}, uploadId={}, error={}", userId, uploadId, e.getMessage());
+                    return Mono.empty(); // 清理失败由过期时间兜底
+                })
+                .then();
     }
 
     /**
@@ -345,8 +735,8 @@ public class FileUploadServiceImpl implements FileUploadService {
             String extension = getExtensionFromContentType(contentType);
             String storageKey = StorageKeyGenerator.generateKey(userId) + "." + extension;
 
-            // 读取文件内容并上传
-            return DataBufferUtils.join(part.content()) // 加载到内存中
+            // 读取文件内容并上传，内存额度不足时排队，超时返回 503
+            return uploadMemoryBudget.reserve(MAX_AVATAR_SIZE, () -> DataBufferUtils.join(part.content(), (int) MAX_AVATAR_SIZE) // 加载到内存中
                 .flatMap(buffer -> {
                     int size = buffer.readableByteCount();
 
@@ -367,7 +757,9 @@ public class FileUploadServiceImpl implements FileUploadService {
                             return String.format("%s/%s/%s", minioProperties.getEndpoint(), minioProperties.getAvatarBucket(), storageKey);
                         }
                     }).subscribeOn(Schedulers.fromExecutor(taskExecutor));
-                });
+                }))
+                .onErrorMap(DataBufferLimitException.class,
+                        e -> new AvatarUploadException(String.format("头像文件大小不能超过 %s MB", MAX_AVATAR_SIZE / 1024 / 1024)));
 
         });
     }
@@ -393,7 +785,7 @@ public class FileUploadServiceImpl implements FileUploadService {
 
         if(fileSize > 0) {
             if (fileSize <= MEMORY_THRESHOLD) { // 小文件
-                return memoryUpload(filePart, directoryId, userId)
+                return memoryUpload(filePart, fileSize, directoryId, userId)
                     .doOnSuccess(dto -> {
                         String size = String.format("%.2f", dto.getSize() / 1024.0);
                         long elapsed = System.currentTimeMillis() - startTime;
@@ -403,7 +795,7 @@ public class FileUploadServiceImpl implements FileUploadService {
                     .onErrorResume(e -> {
                         log.error("[memoryUpload] filename={}, directoryId={}, userId={}, error={}",
                                 filePart.filename(), directoryId, userId, e.getMessage());
-                        return Mono.empty();
+                        return e instanceof UploadOverloadedException ? Mono.error(e) : Mono.empty();
                     });
             } else if (fileSize <= STREAM_THRESHOLD) { // 中等文件
                 return streamingUpload(filePart, directoryId, userId)
@@ -415,12 +807,20 @@ public class FileUploadServiceImpl implements FileUploadService {
                     .onErrorResume(e -> {
                         log.error("[streamingUpload] filename={}, directoryId={}, userId={}, error={}",
                                 filePart.filename(), directoryId, userId, e.getMessage());
-                        return Mono.empty();
+                        return e instanceof UploadOverloadedException ? Mono.error(e) : Mono.empty();
+                    });
+            } else { // 大文件
+                return parallelUpload(filePart, directoryId, userId)
+                    .doOnSuccess(dto -> {
+                        long elapsed = System.currentTimeMillis() - startTime;
+                        log.info("[parallelUpload] bucket={}, storageKey={}, filename={}, directoryId={}, userId={}, size={} MB, elapsed={}ms",
+                                dto.getBucket(), dto.getStorageKey(), dto.getName(), dto.getDirectoryId(), userId, dto.getSize() / 1024 / 1024, elapsed);
+                    })
+                    .onErrorResume(e -> {
+                        log.error("[parallelUpload] filename={}, directoryId={}, userId={}, error={}",
+                                filePart.filename(), directoryId, userId, e.getMessage());
+                        return e instanceof UploadOverloadedException ? Mono.error(e) : Mono.empty();
                     });
-            } else {
-                log.warn("[routeUploadBySize] SKIPPED: filename={}, size={} bytes exceeds limit. Max allowed={} bytes",
-                        filePart.name(), fileSize, STREAM_THRESHOLD);
-                return Mono.empty();
             }
         }
 
@@ -431,37 +831,80 @@ public class FileUploadServiceImpl implements FileUploadService {
      * 小文件内存直传（低延迟）
      *
      * @param filePart    文件片段（Multipart）
+     * @param fileSize    客户端声明的文件大小，按该大小占用内存额度，实际内容超过该大小时上传失败
      * @param directoryId 目录ID
      * @param userId      用户ID
      * @return 上传结果
      */
-    private Mono<FileInputDTO> memoryUpload(FilePart filePart, UUID directoryId, UUID userId) {
+    private Mono<FileInputDTO> memoryUpload(FilePart filePart, long fileSize, UUID directoryId, UUID userId) {
         String contentType = resolveContentType(filePart);
         String storageKey = StorageKeyGenerator.generateKey(userId);
-
-        return DataBufferUtils.join(filePart.content()) // 加载到内存中
+        boolean compress = shouldCompress(contentType, fileSize);
+
+        ContentHasher hasher = new ContentHasher();
+        Flux<DataBuffer> received = throttledContent(filePart, userId)
+                .handle((buffer, sink) -> {
+                    hasher.update(buffer); // 边接收边计算原始内容的哈希
+                    if (hasher.size() > fileSize) { // 内存额度按声明的大小预留，不接受更长的内容
+                        DataBufferUtils.release(buffer);
+                        sink.error(new DataBufferLimitException("文件大小超过声明的 " + fileSize + " 字节"));
+                        return;
+                    }
+                    sink.next(buffer);
+                });
+        Flux<DataBuffer> content = compress
+                ? GzipCodec.compress(received, transferConfig.getCompressionConfig().getLevel())
+                : received;
+        long maxContentSize = compress ? GzipCodec.maxCompressedSize(fileSize) : fileSize;
+
+        return uploadMemoryBudget.reserve(maxContentSize, () -> DataBufferUtils.join(
+                    content,
+                    (int) maxContentSize) // 加载到内存中，驻留大小不超过预留的额度
             .flatMap(buffer -> {
                 int size = buffer.readableByteCount();
 
+                // 小文件追加到打包对象
+                if (packStore.accepts(size)) {
+                    byte[] bytes = new byte[size];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+
+                    return packStore.append(userId, bytes)
+                        .map(entry -> FileInputDTO.builder()
+                            .directoryId(directoryId.toString())
+                            .bucket(minioProperties.getStorageBucket())
+                            .storageKey(entry.storageKey())
+                            .packOffset(entry.offset())
+                            .name(filePart.filename())
+                            .mimeType(contentType)
+                            .size(entry.length())
+                            .md5(hasher.md5Hex())
+                            .crc32c(ContentHasher.crc32cHex(hasher.crc32c()))
+                            .build());
+                }
+
                 return Mono.fromCallable(() -> {
                     try (InputStream stream = buffer.asInputStream(true)) {
-                        ObjectWriteResponse resp = minioClient.putObject(
-                            PutObjectArgs.builder()
+                        PutObjectArgs.Builder args = PutObjectArgs.builder()
                                 .bucket(minioProperties.getStorageBucket())
                                 .object(storageKey)
                                 .stream(stream, size, -1)  // 用 buffer 的长度
-                                .contentType(contentType)
-                                .build()
-                        );
+                                .contentType(contentType);
+                        if (compress) {
+                            args.headers(Map.of("Content-Encoding", GzipCodec.ENCODING));
+                        }
+                        minioClient.putObject(args.build());
 
-                        return buildFileInputDTO(storageKey, directoryId, filePart.filename(), contentType, resp.etag());
+                        return buildFileInputDTO(storageKey, directoryId, filePart.filename(), contentType,
+                                hasher.md5Hex(), ContentHasher.crc32cHex(hasher.crc32c()), size);
                     }
                 }).subscribeOn(Schedulers.fromExecutor(taskExecutor));
-            });
+            })
+            .map(file -> compress ? markEncoded(file, hasher.size()) : file));
     }
 
     /**
-     * 中等文件管道流式上传
+     * 中等文件分片流式上传
      *  @param filePart    文件片段（Multipart）
      *  @param directoryId 目录ID
      *  @param userId      用户ID
@@ -471,137 +914,240 @@ public class FileUploadServiceImpl implements FileUploadService {
         String bucket = minioProperties.getStorageBucket();
         String contentType = resolveContentType(filePart);
         String storageKey = StorageKeyGenerator.generateKey(userId);
-        long partSize = 5 * 1024 * 1024;
-        int bufferSize = cfg.getStreamBufferSize();
-
-        return Mono.using(
-                () -> createPipedStreamBridge(filePart, bufferSize),
-                inputStream -> Mono.fromCallable(() -> {
-                    ObjectWriteResponse response = minioClient.putObject(
-                            PutObjectArgs.builder()
-                                    .bucket(bucket)
-                                    .object(storageKey)
-                                    .stream(inputStream, -1, partSize)
-                                    .contentType(contentType)
-                                    .build()
-                    );
-                    return buildFileInputDTO(storageKey, directoryId, filePart.filename(), contentType, response.etag());
-                }).subscribeOn(Schedulers.fromExecutor(taskExecutor)),
-                this::closeQuietly
-        );
+        int partSize = (int) Math.max(MEMORY_THRESHOLD, StreamingPartUploader.MIN_PART_SIZE); // 超过内存直传阈值的部分按阈值大小切片
+
+        // 正在切分的分片和上传中的分片都驻留内存
+        long reservedBytes = (long) (cfg.getStreamPrefetch() + 1) * partSize;
+
+        if (shouldCompress(contentType, MEMORY_THRESHOLD)) { // 流式上传的文件均超过直传阈值
+            // 压缩后分片摘要针对压缩数据，原始内容的哈希在压缩前计算
+            ContentHasher hasher = new ContentHasher();
+            Flux<DataBuffer> content = GzipCodec.compress(
+                    throttledContent(filePart, userId).doOnNext(hasher::update),
+                    transferConfig.getCompressionConfig().getLevel());
+
+            return uploadMemoryBudget.reserve(reservedBytes, () ->
+                    streamingPartUploader.upload(content, bucket, storageKey, contentType, GzipCodec.ENCODING, partSize, cfg.getStreamPrefetch()))
+                    .publishOn(Schedulers.fromExecutor(taskExecutor))
+                    .map(result -> markEncoded(
+                            buildFileInputDTO(storageKey, directoryId, filePart.filename(), contentType,
+                                    hasher.md5Hex(), ContentHasher.crc32cHex(hasher.crc32c()), result.size()),
+                            hasher.size()));
+        }
+
+        return uploadMemoryBudget.reserve(reservedBytes, () ->
+                streamingPartUploader.upload(throttledContent(filePart, userId), bucket, storageKey, contentType, partSize, cfg.getStreamPrefetch()))
+                .publishOn(Schedulers.fromExecutor(taskExecutor))
+                .map(result -> buildFileInputDTO(storageKey, directoryId, filePart.filename(), contentType, result.md5(), result.crc32c(), result.size()));
     }
 
-    private PipedInputStream createPipedStreamBridge(FilePart filePart, int bufferSize) throws IOException {
-        PipedInputStream pis = new PipedInputStream(bufferSize);
-        PipedOutputStream pos = new PipedOutputStream(pis);
+    /**
+     * 大文件服务端并行分片上传
+     *  @param filePart    文件片段（Multipart）
+     *  @param directoryId 目录ID
+     *  @param userId      用户ID
+     */
+    private Mono<FileInputDTO> parallelUpload(FilePart filePart, UUID directoryId, UUID userId) {
+        FileTransferConfig.ParallelUploadConfig cfg = transferConfig.getParallelUploadConfig();
+        String bucket = minioProperties.getStorageBucket();
+        String contentType = resolveContentType(filePart);
+        String storageKey = StorageKeyGenerator.generateKey(userId);
+        int partSize = Math.max(cfg.getPartSizeBytes(), StreamingPartUploader.MIN_PART_SIZE);
 
-        filePart.content()
-                .subscribeOn(Schedulers.fromExecutor(taskExecutor))
-                .subscribe(
-                        buffer -> writeBufferToStream(buffer, pos),
-                        error -> closeQuietly(pos),
-                        () -> closeQuietly(pos)
-                );
+        // 内存上限需容纳正在切分的分片，剩余额度决定可并行上传的分片数，启动时已校验至少为 1
+        int memoryBoundParts = (int) (cfg.getMaxInFlightBytes() / partSize - 1);
+        int concurrency = Math.max(1, Math.min(cfg.getPartConcurrency(), memoryBoundParts));
 
-        return pis;
+        long reservedBytes = (long) (concurrency + 1) * partSize;
+
+        return uploadMemoryBudget.reserve(reservedBytes, () ->
+                streamingPartUploader.upload(throttledContent(filePart, userId), bucket, storageKey, contentType, partSize, concurrency))
+                .publishOn(Schedulers.fromExecutor(taskExecutor))
+                .map(result -> buildFileInputDTO(storageKey, directoryId, filePart.filename(), contentType, result.md5(), result.crc32c(), result.size()));
     }
 
-    private void writeBufferToStream(DataBuffer buffer, PipedOutputStream stream) {
-        try (InputStream is = buffer.asInputStream()) {
-            is.transferTo(stream); // Java 9+，自动高效传输
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } finally {
-            DataBufferUtils.release(buffer);
+    /**
+     * 批量持久化文件元数据，一次 RPC 写入一批文件 <br/>
+     * 批量写入失败时（如个别文件重名）逐个写入，只让出错的文件失败
+     */
+    private Flux<FileUploadResult> persistFileMetadataBatch(List<UploadedFile> batch, UUID userId) {
+        List<FileUploadResult> failures = batch.stream()
+                .filter(uploaded -> uploaded.file() == null)
+                .map(uploaded -> FileUploadResult.failure(uploaded.filename(), uploaded.errorMsg()))
+                .toList();
+        List<UploadedFile> uploadedFiles = batch.stream()
+                .filter(uploaded -> uploaded.file() != null)
+                .toList();
+
+        if (uploadedFiles.isEmpty()) {
+            return Flux.fromIterable(failures);
         }
-    }
 
-    private void closeQuietly(Closeable closeable) {
-        try {
-            if (closeable != null) closeable.close();
-        } catch (IOException ignored) {}
+        List<FileInputDTO> inputs = uploadedFiles.stream().map(UploadedFile::file).toList();
+
+        Flux<FileUploadResult> persisted = Mono.fromCallable(() -> fileSystemRpcService.addFiles(userId.toString(), inputs))
+                .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+                .flatMapMany(dtos -> {
+                    for (int i = 0; i < dtos.size(); i++) {
+                        registerProcessingTask(dtos.get(i), inputs.get(i).getMimeType(), userId);
+                    }
+                    return Flux.fromIterable(uploadedFiles)
+                            .map(uploaded -> FileUploadResult.success(uploaded.filename()));
+                })
+                .onErrorResume(e -> {
+                    log.warn("[persistFileMetadataBatch] Batch insert failed, fallback to single insert, userId={}, fileCount={}, error={}",
+                            userId, inputs.size(), e.getMessage());
+
+                    return Flux.fromIterable(uploadedFiles)
+                            .concatMap(uploaded -> persistFileMetadata(uploaded.file(), userId)
+                                    .map(result -> result
+                                            ? FileUploadResult.success(uploaded.filename())
+                                            : FileUploadResult.failure(uploaded.filename(), "保存文件元数据失败")));
+                });
+
+        return Flux.fromIterable(failures).concatWith(persisted);
     }
 
     /**
      * 持久化文件元数据到文件系统服务（RPC调用）
      */
     private Mono<Boolean> persistFileMetadata(FileInputDTO file, UUID userId) {
-        return Mono.fromCallable(() -> fileSystemRpcService.addFile(userId.toString(), file))
-                .subscribeOn(Schedulers.fromExecutor(taskExecutor))
-                .doOnSuccess(dto -> {
-                    String mimeType = file.getMimeType();
-                    TaskType taskType = null;
-                    if(mimeType.startsWith("image/")) { // 图片类型
-                        taskType = TaskType.THUMBNAIL;
-                    } else if(mimeType.startsWith("video/")) { // 视频类型
-                        taskType = TaskType.GIF;
-                    }
-
-                    if(taskType != null) {
-                        try {
-                            fileProcessingTaskRepository.create(
-                                new FileProcessingTaskInput.Builder()
-                                    .fileId(UUID.fromString(dto.getId()))
-                                    .userId(userId)
-                                    .bucket(dto.getBucket())
-                                    .storageKey(dto.getStorageKey())
-                                    .taskType(taskType.getCode())
-                                    .build()
-                            );
-                        } catch(Exception e) {
-                            log.error("[persistFileMetadata] Failed to create processing task, fileId={}, taskType={}, error={}",
-                                    dto.getId(), taskType, e.getMessage());
-                        }
-                    }
-                })
+        return createFileRecord(file, userId)
                 .map(result -> true)
                 .onErrorResume(
                       e-> {
                           log.error("[notifyFileSystemRpc] RPC notification failed, filename={}, bucket={}, storageKey={}, error={}",
                                   file.getName(), file.getBucket(), file.getStorageKey(), e.getMessage());
 
-                          try {
-                              minioClient.removeObject(
-                                      RemoveObjectArgs.builder()
-                                              .bucket(file.getBucket())
-                                              .object(file.getStorageKey())
-                                              .build()
-                              );
-                          } catch (Exception cleanupEx) {
-                              log.error("[notifyFileSystemRpc] Cleanup failed, bucket={}, storageKey={}, error={}",
-                                      file.getBucket(), file.getStorageKey(), cleanupEx.getMessage());
+                          if (file.getPackOffset() == null) { // 打包对象中的数据成为空洞，由压实回收
+                              removeObjectIfUnreferenced(file.getBucket(), file.getStorageKey());
                           }
                           return Mono.just(false);
                       }
                 );
     }
 
+    /**
+     * 通过 RPC 创建文件记录，并为图片、视频登记预览生成任务
+     */
+    private Mono<FileDTO> createFileRecord(FileInputDTO file, UUID userId) {
+        return Mono.fromCallable(() -> fileSystemRpcService.addFile(userId.toString(), file))
+                .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+                .doOnSuccess(dto -> registerProcessingTask(dto, file.getMimeType(), userId));
+    }
+
+    /**
+     * 为图片、视频登记预览生成任务
+     */
+    private void registerProcessingTask(FileDTO dto, String mimeType, UUID userId) {
+        if (dto.getPackOffset() != null) {
+            return; // 预览任务按存储键读取整个对象，打包存储的小文件不生成预览
+        }
+
+        TaskType taskType = null;
+        if(mimeType.startsWith("image/")) { // 图片类型
+            taskType = TaskType.THUMBNAIL;
+        } else if(mimeType.startsWith("video/")) { // 视频类型
+            taskType = TaskType.GIF;
+        }
+
+        if(taskType != null) {
+            try {
+                fileProcessingTaskRepository.create(
+                    new FileProcessingTaskInput.Builder()
+                        .fileId(UUID.fromString(dto.getId()))
+                        .userId(userId)
+                        .bucket(dto.getBucket())
+                        .storageKey(dto.getStorageKey())
+                        .taskType(taskType.getCode())
+                        .build()
+                );
+            } catch(Exception e) {
+                log.error("[persistFileMetadata] Failed to create processing task, fileId={}, taskType={}, error={}",
+                        dto.getId(), taskType, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 删除存储对象，存储对象可能被秒传或复制的文件共享，仍有文件引用时保留
+     */
+    private void removeObjectIfUnreferenced(String bucket, String storageKey) {
+        try {
+            long references = fileSystemRpcService.countStorageReferences(bucket, storageKey);
+            if (references > 0) {
+                log.info("[removeObjectIfUnreferenced] Object still referenced, bucket={}, storageKey={}, references={}",
+                        bucket, storageKey, references);
+                return;
+            }
+
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(storageKey)
+                            .build()
+            );
+        } catch (Exception cleanupEx) {
+            log.error("[notifyFileSystemRpc] Cleanup failed, bucket={}, storageKey={}, error={}",
+                    bucket, storageKey, cleanupEx.getMessage());
+        }
+    }
+
+    /**
+     * 是否在存储端压缩该文件，只压缩配置中的可压缩类型
+     */
+    private boolean shouldCompress(String contentType, long fileSize) {
+        FileTransferConfig.CompressionConfig cfg = transferConfig.getCompressionConfig();
+        if (!cfg.isEnabled() || fileSize < cfg.getMinSizeBytes()) {
+            return false;
+        }
+
+        String mimeType = contentType.split(";")[0].trim().toLowerCase();
+        return cfg.getMimeTypes().stream()
+                .anyMatch(type -> type.endsWith("/") ? mimeType.startsWith(type) : mimeType.equals(type));
+    }
+
+    /**
+     * 标记文件以 gzip 编码存储，size 改为原始大小，编码后的大小记为存储大小
+     */
+    private FileInputDTO markEncoded(FileInputDTO file, long originalSize) {
+        file.setContentEncoding(GzipCodec.ENCODING);
+        file.setStoredSize(file.getSize());
+        file.setSize(originalSize);
+        return file;
+    }
+
+    /**
+     * 按用户等级限速的文件数据流
+     */
+    private Flux<DataBuffer> throttledContent(FilePart filePart, UUID userId) {
+        return bandwidthLimiter.throttle(filePart.content(), userId, BandwidthLimiter.Direction.UPLOAD);
+    }
+
     private String resolveContentType(FilePart filePart) {
         return Optional.ofNullable(filePart.headers().getContentType())
                 .map(MimeType::toString)
                 .orElse("application/octet-stream");
     }
 
-    private FileInputDTO buildFileInputDTO(String storageKey, UUID directoryId,  String filename, String contentType, String etag) {
-        /*
-         处理 minio 返回的 etag
-         1. 单文件上传无分片: MD5
-         2. 单文件上传有分片: "MD5-N", N 为分片数量
-         3. 分片上传：MD5
-         */
-        String md5 = etag;
-        if(md5 != null) {
-            if (md5.startsWith("\"") && md5.endsWith("\"")) {
-                md5 = md5.substring(1, md5.length() - 1);  // 去掉首尾双引号
+    /**
+     * 构造文件元数据输入对象
+     * @param md5 上传过程中计算的内容 MD5，无法得到时为 null
+     * @param crc32c 上传过程中计算的内容 CRC32C（十六进制）
+     * @param size 上传过程中统计的字节数，未知时传 -1；开启校验或大小未知时才查询 MinIO
+     */
+    private FileInputDTO buildFileInputDTO(String storageKey, UUID directoryId,  String filename, String contentType,
+                                           String md5, String crc32c, long size) {
+        if (size < 0 || transferConfig.isVerifyObjectSize()) {
+            long storedSize = getObjectSize(minioProperties.getStorageBucket(), storageKey);
+            if (size >= 0 && storedSize >= 0 && storedSize != size) {
+                log.warn("[buildFileInputDTO] Object size mismatch, storageKey={}, counted={}, stored={}", storageKey, size, storedSize);
             }
-
-            if (md5.contains("-")) {
-                md5 = md5.substring(0, md5.lastIndexOf('-'));  // 去掉 -N 后缀
+            if (storedSize >= 0) {
+                size = storedSize;
             }
         }
 
-        long size = getObjectSize(minioProperties.getStorageBucket(), storageKey);
-
         return FileInputDTO.builder()
                 .directoryId(directoryId.toString())
                 .bucket(minioProperties.getStorageBucket())
@@ -610,9 +1156,20 @@ public class FileUploadServiceImpl implements FileUploadService {
                 .mimeType(contentType)
                 .size(size)
                 .md5(md5)
+                .crc32c(crc32c)
                 .build();
     }
 
+    /**
+     * 去掉 ETag 首尾的双引号，未加密的单个分片或单次上传的 ETag 即内容的 MD5
+     */
+    private String stripEtag(String etag) {
+        if (etag != null && etag.startsWith("\"") && etag.endsWith("\"")) {
+            return etag.substring(1, etag.length() - 1);
+        }
+        return etag;
+    }
+
     private long getObjectSize(String bucket, String objectKey) {
         try {
             StatObjectResponse stat = minioClient.statObject(
@@ -629,13 +1186,9 @@ public class FileUploadServiceImpl implements FileUploadService {
     }
 
     /**
-     * 缓存分片上传任务元数据到Redis
+     * 缓存分片上传任务元数据到Redis，同时写入本地缓存
      */
     private Mono<String> cacheMultipartUploadMetadata(String uploadId, String storageKey, InitMultipartUploadRequest request, UUID userId) {
-
-        String metadataKey = MULTIPART_UPLOAD_METADATA_PREFIX + userId + ":" + uploadId;
-        RBucket<String> bucket = redissonClient.getBucket(metadataKey);
-
         // 构建元数据
         MultipartUploadMetadata metadata = MultipartUploadMetadata.builder()
                 .directoryId(request.getDirectoryId().toString())
@@ -646,18 +1199,8 @@ public class FileUploadServiceImpl implements FileUploadService {
                 .createdAt(System.currentTimeMillis())
                 .build();
 
-        String metadataJson;
-        try {
-            metadataJson = objectMapper.writeValueAsString(metadata);
-        } catch (JsonProcessingException e) {
-            log.error("[cacheMultipartUploadMetadata] uploadId={}, storageKey={}, request={}, error={}", uploadId, storageKey, request, e.getMessage());
-            return Mono.error(e);
-        }
-
-        return Mono.fromRunnable(() -> {
-                    bucket.set(metadataJson);
-                    bucket.expire(Duration.ofHours(MULTIPART_UPLOAD_EXPIRE_HOURS));
-                })
+        return multipartSessionCache.put(uploadId, userId, metadata)
+                .doOnError(e -> log.error("[cacheMultipartUploadMetadata] uploadId={}, storageKey={}, request={}, error={}", uploadId, storageKey, request, e.getMessage()))
                 .thenReturn(uploadId);
     }
 }
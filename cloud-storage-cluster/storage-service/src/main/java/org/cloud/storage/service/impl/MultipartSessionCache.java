@@ -0,0 +1,117 @@
+package org.cloud.storage.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.dto.MultipartUploadMetadata;
+import org.redisson.api.RBucket;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片上传任务元数据的本地近缓存 <br/>
+ * Redis 中的任务元数据为权威数据，本地缓存只为避免每个分片都访问 Redis 并反序列化；
+ * 初始化任务时写入，完成或终止任务时失效，按任务创建时间判断过期，不会比 Redis 中的任务活得更久；
+ * 失效经 Redis 主题广播到所有节点，避免其他节点继续使用已完成或已终止的任务
+ */
+@Slf4j
+@Component
+public class MultipartSessionCache {
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, MultipartUploadMetadata> cache;
+    private final RTopic invalidationTopic;
+
+    public static final String MULTIPART_UPLOAD_METADATA_PREFIX = "multipart:metadata:";
+    public static final Duration SESSION_TTL = Duration.ofHours(24);
+    private static final String INVALIDATION_TOPIC = "multipart:session-invalidate";
+
+    public MultipartSessionCache(FileTransferConfig transferConfig,
+                                 RedissonClient redissonClient,
+                                 ObjectMapper objectMapper) {
+        FileTransferConfig.ChunkedUploadConfig cfg = transferConfig.getChunkedUploadConfig();
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(cfg.getSessionCacheSize())
+                .expireAfterAccess(cfg.getSessionCacheMinutes(), TimeUnit.MINUTES)
+                .build();
+
+        this.invalidationTopic = redissonClient.getTopic(INVALIDATION_TOPIC, StringCodec.INSTANCE);
+        invalidationTopic.addListener(String.class, (channel, cacheKey) -> cache.invalidate(cacheKey));
+    }
+
+    /**
+     * 保存任务元数据到 Redis 并写入本地缓存
+     */
+    public Mono<Void> put(String uploadId, UUID userId, MultipartUploadMetadata metadata) {
+        RBucket<String> bucket = redissonClient.getBucket(metadataKey(uploadId, userId));
+
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(metadata))
+                .flatMap(json -> Mono.fromCompletionStage(bucket.setAsync(json, SESSION_TTL)))
+                .then(Mono.fromRunnable(() -> cache.put(cacheKey(uploadId, userId), metadata)));
+    }
+
+    /**
+     * 读取任务元数据，本地未命中时从 Redis 加载
+     * @return 任务元数据，任务不存在或已过期时为空
+     */
+    public Mono<MultipartUploadMetadata> get(String uploadId, UUID userId) {
+        String cacheKey = cacheKey(uploadId, userId);
+        MultipartUploadMetadata cached = cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            if (!isExpired(cached)) {
+                return Mono.just(cached);
+            }
+            cache.invalidate(cacheKey);
+            return Mono.empty();
+        }
+
+        RBucket<String> bucket = redissonClient.getBucket(metadataKey(uploadId, userId));
+        return Mono.fromCompletionStage(bucket.getAsync())
+                .map(json -> {
+                    try {
+                        return objectMapper.readValue(json, MultipartUploadMetadata.class);
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Malformed multipart upload metadata", e);
+                    }
+                })
+                .doOnNext(metadata -> cache.put(cacheKey, metadata));
+    }
+
+    /**
+     * 使所有节点的本地缓存失效，任务完成或终止时调用；广播失败时其他节点的缓存按闲置时间过期
+     */
+    public void invalidate(String uploadId, UUID userId) {
+        String cacheKey = cacheKey(uploadId, userId);
+        cache.invalidate(cacheKey);
+        invalidationTopic.publishAsync(cacheKey).whenComplete((receivers, e) -> {
+            if (e != null) {
+                log.warn("[MultipartSessionCache] Failed to broadcast invalidation, uploadId={}, userId={}, error={}",
+                        uploadId, userId, e.getMessage());
+            }
+        });
+    }
+
+    public static String metadataKey(String uploadId, UUID userId) {
+        return MULTIPART_UPLOAD_METADATA_PREFIX + userId + ":" + uploadId;
+    }
+
+    private static String cacheKey(String uploadId, UUID userId) {
+        return userId + ":" + uploadId;
+    }
+
+    private static boolean isExpired(MultipartUploadMetadata metadata) {
+        return metadata.getCreatedAt() != null
+                && System.currentTimeMillis() - metadata.getCreatedAt() > SESSION_TTL.toMillis();
+    }
+}
@@ -0,0 +1,359 @@
+package org.cloud.storage.service.impl;
+
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.api.dto.FileDTO;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.util.FrequencySketch;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 热点对象的本地磁盘缓存 <br/>
+ * 以存储桶、对象键和文件版本为键，把被反复下载的对象整体缓存到本节点磁盘，命中时不访问 MinIO；
+ * 按访问顺序 LRU 淘汰，总大小不超过磁盘额度。准入参考 TinyLFU：访问频率达到阈值、且不低于需要淘汰的对象时才缓存，
+ * 一次性下载不会冲掉热点对象。未命中的下载照常从 MinIO 读取，准入的对象在后台整体读取到磁盘 <br/>
+ * 淘汰的文件在最近一次访问的宽限期过后删除，删除前仍计入占用的磁盘空间
+ */
+@Slf4j
+@Component
+public class ObjectDiskCache {
+    private final FileTransferConfig.DiskCacheConfig cfg;
+    private final ObjectStreamReader objectStreamReader;
+    private final Path cacheDir;
+
+    /** 按访问顺序排列（从旧到新），只在持有对象锁时访问 */
+    private final LinkedHashMap<String, CachedObject> objects = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final Set<String> filling = ConcurrentHashMap.newKeySet();
+    private final List<PendingDelete> pendingDeletes = new ArrayList<>();
+    private long usedBytes; // 磁盘上的缓存文件总大小，包括等待删除的文件
+    private long pendingDeleteBytes;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter savedBytesCounter;
+    private final Counter admittedCounter;
+    private final Counter evictionCounter;
+
+    private static final String OBJECT_SUFFIX = ".obj";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final long CLEANUP_INTERVAL_MINUTE = 1;
+    private static final long DELETE_GRACE_MILLIS = 60 * 1000; // 访问后的删除宽限期，让刚取得路径的下载能够打开文件
+
+    public record CachedObject(Path path, long size, long accessedAt) {}
+
+    private record PendingDelete(Path path, long size, long deleteAfter) {}
+
+    public ObjectDiskCache(FileTransferConfig transferConfig,
+                           ObjectStreamReader objectStreamReader,
+                           MeterRegistry meterRegistry) {
+        this.cfg = transferConfig.getDiskCacheConfig();
+        this.objectStreamReader = objectStreamReader;
+        this.cacheDir = Paths.get(cfg.getDir());
+        this.sketch = new FrequencySketch(cfg.getExpectedObjects());
+
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+        this.savedBytesCounter = Counter.builder("storage.disk.cache.saved")
+                .description("由本地磁盘缓存提供、未从 MinIO 读取的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.admittedCounter = Counter.builder("storage.disk.cache.admissions")
+                .description("写入本地磁盘缓存的对象数量")
+                .register(meterRegistry);
+        this.evictionCounter = Counter.builder("storage.disk.cache.evictions")
+                .description("被淘汰的本地磁盘缓存对象数量")
+                .register(meterRegistry);
+        Gauge.builder("storage.disk.cache.size", this, ObjectDiskCache::usedBytes)
+                .description("本地磁盘缓存占用的空间")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        if (cfg.isEnabled()) {
+            init();
+        }
+    }
+
+    /**
+     * 文件是否可以使用本地磁盘缓存：独立存储、未压缩且大小在缓存范围内
+     */
+    public boolean cacheable(FileDTO file) {
+        return cfg.isEnabled()
+                && file.getPackOffset() == null
+                && file.getContentEncoding() == null
+                && file.getSize() >= cfg.getMinObjectSizeBytes()
+                && file.getSize() <= cfg.getMaxObjectSizeBytes();
+    }
+
+    /**
+     * 查找缓存的对象，未命中且满足准入条件时在后台缓存该对象
+     * @param file 文件元数据，调用前需确认 cacheable
+     * @param readBytes 本次要读取的字节数，命中时计入节省的字节数
+     * @param countAccess 是否计入访问频率，一次分片下载只在读取开头时计入，后续分片不计
+     * @return 缓存的对象，未命中时为 null
+     */
+    public CachedObject lookup(FileDTO file, long readBytes, boolean countAccess) {
+        String key = cacheKey(file);
+        CachedObject cached;
+        boolean admit;
+
+        synchronized (this) {
+            if (countAccess) {
+                sketch.increment(key);
+            }
+            cached = objects.get(key);
+            if (cached != null && !Files.isRegularFile(cached.path())) {
+                objects.remove(key); // 文件已被外部删除，不再占用空间
+                usedBytes -= cached.size();
+                cached = null;
+            }
+            if (cached != null) {
+                cached = new CachedObject(cached.path(), cached.size(), System.currentTimeMillis());
+                objects.put(key, cached);
+            }
+            admit = cached == null && shouldAdmit(key, file.getSize());
+        }
+
+        if (cached != null) {
+            hitCounter.increment();
+            savedBytesCounter.increment(readBytes);
+            return cached;
+        }
+
+        missCounter.increment();
+        if (admit && filling.add(key)) {
+            fill(key, file);
+        }
+        return null;
+    }
+
+    /**
+     * 在后台把整个对象读取到磁盘，完成后再次检查准入并提交，失败时放弃
+     */
+    private void fill(String key, FileDTO file) {
+        Path partial = cacheDir.resolve(key + "." + UUID.randomUUID() + PARTIAL_SUFFIX);
+        long size = file.getSize();
+        long startTime = System.currentTimeMillis();
+
+        DataBufferUtils.write(
+                        objectStreamReader.read(file.getBucket(), file.getStorageKey(), 0, size),
+                        partial,
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+                .then(Mono.fromCallable(() -> commit(key, partial, size)).subscribeOn(Schedulers.boundedElastic()))
+                .doFinally(signal -> filling.remove(key))
+                .subscribe(
+                        committed -> {
+                            if (!committed) {
+                                deleteQuietly(partial);
+                            }
+                            log.info("[ObjectDiskCache] storageKey={}, size={} bytes, committed={}, elapsed={} ms",
+                                    file.getStorageKey(), size, committed, System.currentTimeMillis() - startTime);
+                        },
+                        e -> {
+                            deleteQuietly(partial);
+                            log.warn("[ObjectDiskCache] Failed to cache object, storageKey={}, error={}", file.getStorageKey(), e.getMessage());
+                        }
+                );
+    }
+
+    /**
+     * 提交缓存的对象，淘汰最久未访问的对象腾出空间；读取期间热点可能变化，因此重新检查准入 <br/>
+     * 每次提交使用新的文件名，等待删除的旧文件不会与重新缓存的同一对象冲突；
+     * 额度按未淘汰的对象计算，宽限期内等待删除的文件不会导致继续淘汰
+     * @return 是否提交
+     */
+    private boolean commit(String key, Path partial, long size) throws IOException {
+        if (Files.size(partial) != size) {
+            throw new IOException("Cached object size mismatch");
+        }
+
+        String filename = partial.getFileName().toString();
+        Path target = partial.resolveSibling(filename.substring(0, filename.length() - PARTIAL_SUFFIX.length()) + OBJECT_SUFFIX);
+        int evicted = 0;
+        synchronized (this) {
+            if (!shouldAdmit(key, size)) {
+                return false;
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<String, CachedObject>> it = objects.entrySet().iterator();
+            while (liveBytes() + size > cfg.getCapacityBytes() && it.hasNext()) {
+                evict(it.next().getValue(), now);
+                it.remove();
+                evicted++;
+            }
+            CachedObject previous = objects.put(key, new CachedObject(target, size, now));
+            if (previous != null) {
+                evict(previous, now);
+            }
+            usedBytes += size;
+        }
+
+        admittedCounter.increment();
+        if (evicted > 0) {
+            evictionCounter.increment(evicted);
+        }
+        return true;
+    }
+
+    /**
+     * TinyLFU 准入：候选对象的访问频率需达到阈值，且不低于为其腾出空间而要淘汰的每个对象
+     */
+    private boolean shouldAdmit(String key, long size) {
+        if (size > cfg.getCapacityBytes()) {
+            return false;
+        }
+        int frequency = sketch.frequency(key);
+        if (frequency < cfg.getAdmissionMinFrequency()) {
+            return false;
+        }
+
+        long required = liveBytes() + size - cfg.getCapacityBytes();
+        Iterator<Map.Entry<String, CachedObject>> it = objects.entrySet().iterator();
+        while (required > 0 && it.hasNext()) {
+            Map.Entry<String, CachedObject> victim = it.next();
+            if (sketch.frequency(victim.getKey()) > frequency) {
+                return false;
+            }
+            required -= victim.getValue().size();
+        }
+        return true;
+    }
+
+    /**
+     * 移出缓存后删除文件，宽限期内访问过的延迟删除；删除前仍计入占用空间。调用方持有对象锁 <br/>
+     * 已开始发送的下载持有打开的文件，不受删除影响
+     */
+    private void evict(CachedObject object, long now) {
+        long deleteAfter = object.accessedAt() + DELETE_GRACE_MILLIS;
+        if (deleteAfter <= now && deleteQuietly(object.path())) {
+            usedBytes -= object.size();
+            return;
+        }
+        pendingDeletes.add(new PendingDelete(object.path(), object.size(), Math.max(deleteAfter, now + 1)));
+        pendingDeleteBytes += object.size();
+    }
+
+    /**
+     * 未淘汰的缓存对象总大小，调用方持有对象锁
+     */
+    private long liveBytes() {
+        return usedBytes - pendingDeleteBytes;
+    }
+
+    /**
+     * 定时删除宽限期已过的淘汰文件，删除后才从占用空间中扣除，删除失败的稍后重试
+     */
+    @Scheduled(fixedDelay = CLEANUP_INTERVAL_MINUTE, timeUnit = TimeUnit.MINUTES)
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        List<PendingDelete> due = new ArrayList<>();
+
+        synchronized (this) {
+            Iterator<PendingDelete> it = pendingDeletes.iterator();
+            while (it.hasNext()) {
+                PendingDelete delete = it.next();
+                if (delete.deleteAfter() <= now) {
+                    due.add(delete);
+                    it.remove();
+                }
+            }
+        }
+
+        long freed = 0;
+        List<PendingDelete> failed = new ArrayList<>();
+        for (PendingDelete delete : due) {
+            if (deleteQuietly(delete.path())) {
+                freed += delete.size();
+            } else {
+                failed.add(new PendingDelete(delete.path(), delete.size(), now + DELETE_GRACE_MILLIS));
+            }
+        }
+
+        synchronized (this) {
+            usedBytes -= freed;
+            pendingDeleteBytes -= freed;
+            pendingDeletes.addAll(failed);
+        }
+        if (due.size() > failed.size()) {
+            log.info("[ObjectDiskCache] Deleted {} evicted objects, used={} MB", due.size() - failed.size(), usedBytes() / 1024 / 1024);
+        }
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 创建缓存目录并清空上次运行留下的文件，访问频率不持久化，重启后重新准入
+     */
+    private void init() {
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                files.filter(path -> {
+                    String filename = path.getFileName().toString();
+                    return filename.endsWith(OBJECT_SUFFIX) || filename.endsWith(PARTIAL_SUFFIX);
+                }).forEach(ObjectDiskCache::deleteQuietly);
+            }
+        } catch (IOException e) {
+            log.error("[ObjectDiskCache] Failed to initialize cache directory, dir={}, error={}", cacheDir, e.getMessage());
+        }
+    }
+
+    /**
+     * 对象键由上传生成且内容不变，加上文件版本避免同一键被重新写入时读到旧内容
+     */
+    private static String cacheKey(FileDTO file) {
+        String version = file.getMd5() != null ? file.getMd5() : file.getCrc32c();
+        return Hashing.sha256()
+                .hashString(file.getBucket() + "/" + file.getStorageKey() + "@" + version + ":" + file.getSize(), StandardCharsets.UTF_8)
+                .toString();
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.disk.cache.requests")
+                .description("本地磁盘缓存请求数，按命中、未命中区分")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return 文件是否已不存在
+     */
+    private static boolean deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+            return true;
+        } catch (IOException e) {
+            log.error("[ObjectDiskCache] Failed to delete: {}", path, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package org.cloud.storage.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 合并同一对象的并发读取 <br/>
+ * 热点文件短时间内被大量下载时，同时开始的完整读取共享一个 MinIO 请求。只有一个订阅者时直接转发读到的缓冲区，
+ * 有第二个订阅者加入后才把数据复制到堆内存分发；加入时已发出的开头部分由加入者单独读取，
+ * 共享读取发出的数据块超过窗口后不再接受加入，之后的请求成为新的共享读取 <br/>
+ * 共享读取按最快的订阅者推进，每个订阅者最多积压窗口内的数据块；落后超过窗口的订阅者收完积压的数据后，
+ * 从已收到的位置起单独读取剩余部分，不会拖慢或超时中断其他订阅者
+ */
+@Slf4j
+@Component
+public class ObjectReadCoalescer {
+    private final FileTransferConfig.DownloadConfig cfg;
+    private final ObjectStreamReader objectStreamReader;
+
+    /** 仍可加入的共享读取，发出的数据块超过窗口的不再加入 */
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private final Counter leaderCounter;
+    private final Counter joinedCounter;
+    private final Counter detachedCounter;
+
+    public ObjectReadCoalescer(FileTransferConfig transferConfig,
+                               ObjectStreamReader objectStreamReader,
+                               MeterRegistry meterRegistry) {
+        this.cfg = transferConfig.getDownloadConfig();
+        this.objectStreamReader = objectStreamReader;
+        this.leaderCounter = requestCounter(meterRegistry, "leader");
+        this.joinedCounter = requestCounter(meterRegistry, "joined");
+        this.detachedCounter = requestCounter(meterRegistry, "detached");
+    }
+
+    /**
+     * 读取对象的一段数据，同一区间正在读取且仍在窗口内时共享该读取
+     * @param bucket 存储桶
+     * @param storageKey 对象键
+     * @param offset 对象中的起始偏移
+     * @param length 读取长度
+     * @return 对象数据流，数据块由订阅者独占
+     */
+    public Flux<DataBuffer> read(String bucket, String storageKey, long offset, long length) {
+        String key = bucket + "/" + storageKey + ":" + offset + ":" + length;
+
+        return Flux.defer(() -> {
+            Flight flight;
+            Member member;
+            do {
+                Flight[] created = new Flight[1];
+                flight = flights.computeIfAbsent(key, k -> created[0] = new Flight(k, bucket, storageKey, offset, length));
+                member = flight.join();
+                if (member == null) {
+                    flights.remove(key, flight); // 共享读取已结束
+                } else if (flight == created[0]) {
+                    leaderCounter.increment();
+                    flight.start();
+                } else {
+                    joinedCounter.increment();
+                }
+            } while (member == null);
+
+            Flight joined = flight;
+            Member self = member;
+            Flux<DataBuffer> head = self.headBytes > 0
+                    ? objectStreamReader.read(bucket, storageKey, offset, self.headBytes)
+                    : Flux.empty();
+            return head
+                    .concatWith(joined.chunks(self))
+                    .concatWith(Flux.defer(() -> joined.remainder(self)))
+                    .doFinally(signal -> joined.leave(self))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * 共享读取的一个订阅者，只在持有所属共享读取的锁时访问
+     */
+    private static final class Member {
+        /** 加入时已发出、由订阅者单独读取的开头字节数 */
+        private final long headBytes;
+        private final Sinks.Many<DataBuffer> sink = Sinks.many().unicast().onBackpressureBuffer();
+        private long requested;
+        private long sent;
+        private long sentBytes;
+        private long delivered;
+        private boolean detached;
+
+        private Member(long headBytes) {
+            this.headBytes = headBytes;
+        }
+    }
+
+    /**
+     * 一次共享读取，上游的数据块只在上游信号的线程中分发给订阅者
+     */
+    private final class Flight extends BaseSubscriber<DataBuffer> {
+        private final String key;
+        private final String bucket;
+        private final String storageKey;
+        private final long offset;
+        private final long length;
+
+        private final List<Member> members = new ArrayList<>();
+        private boolean subscribed;
+        private boolean upstreamRequested;
+        private boolean shared; // 有过第二个订阅者，此后数据复制后分发
+        private boolean closed;
+        private long emitted;
+        private long emittedBytes;
+
+        private Flight(String key, String bucket, String storageKey, long offset, long length) {
+            this.key = key;
+            this.bucket = bucket;
+            this.storageKey = storageKey;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * @return 新的订阅者，共享读取已结束时为 null
+         */
+        private synchronized Member join() {
+            if (closed) {
+                return null;
+            }
+            if (!members.isEmpty()) {
+                shared = true;
+            }
+            Member member = new Member(emittedBytes);
+            members.add(member);
+            return member;
+        }
+
+        private void start() {
+            objectStreamReader.read(bucket, storageKey, offset, length).subscribe(this);
+        }
+
+        private Flux<DataBuffer> chunks(Member member) {
+            return member.sink.asFlux()
+                    .doOnRequest(n -> {
+                        synchronized (this) {
+                            member.requested = Operators.addCap(member.requested, n);
+                        }
+                        requestIfNeeded();
+                    })
+                    .doOnNext(buffer -> {
+                        synchronized (this) {
+                            member.delivered++;
+                        }
+                    });
+        }
+
+        /**
+         * 落后超过窗口的订阅者从已收到的位置起单独读取剩余部分
+         */
+        private Flux<DataBuffer> remainder(Member member) {
+            long received;
+            synchronized (this) {
+                if (!member.detached) {
+                    return Flux.empty();
+                }
+                received = member.headBytes + member.sentBytes;
+            }
+            detachedCounter.increment();
+            log.debug("[ObjectReadCoalescer] Subscriber fell behind, key={}, received={} bytes", key, received);
+            return received < length
+                    ? objectStreamReader.read(bucket, storageKey, offset + received, length - received)
+                    : Flux.empty();
+        }
+
+        private void leave(Member member) {
+            boolean cancel;
+            synchronized (this) {
+                cancel = members.remove(member) && members.isEmpty() && !closed;
+                if (cancel) {
+                    close();
+                }
+            }
+            if (cancel) {
+                cancel();
+            }
+        }
+
+        /**
+         * 有订阅者需要尚未读取的数据块时向上游请求下一个，调用时不能持有锁
+         */
+        private void requestIfNeeded() {
+            synchronized (this) {
+                if (!subscribed || closed || upstreamRequested
+                        || members.stream().noneMatch(member -> member.sent < member.requested)) {
+                    return;
+                }
+                upstreamRequested = true;
+            }
+            request(1);
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            synchronized (this) {
+                subscribed = true;
+            }
+            requestIfNeeded();
+        }
+
+        @Override
+        protected void hookOnNext(DataBuffer buffer) {
+            int window = cfg.getCoalesceReplayChunks();
+            int size = buffer.readableByteCount();
+            List<Member> receivers;
+            boolean copy;
+            boolean cancel = false;
+
+            synchronized (this) {
+                upstreamRequested = false;
+                if (++emitted >= window) {
+                    flights.remove(key, this);
+                }
+                emittedBytes += size;
+
+                receivers = new ArrayList<>(members);
+                copy = shared;
+                for (Member member : receivers) {
+                    member.sent++;
+                    member.sentBytes += size;
+                    if (member.sent - member.delivered >= window) {
+                        member.detached = true;
+                        members.remove(member);
+                    }
+                }
+                if (members.isEmpty() && !closed) {
+                    close();
+                    cancel = true;
+                }
+            }
+
+            if (copy) {
+                byte[] bytes = new byte[size];
+                buffer.read(bytes);
+                DataBufferUtils.release(buffer);
+                for (Member member : receivers) {
+                    emit(member, DefaultDataBufferFactory.sharedInstance.wrap(bytes));
+                }
+            } else if (receivers.isEmpty()) {
+                DataBufferUtils.release(buffer);
+            } else {
+                emit(receivers.get(0), buffer); // 只有一个订阅者，直接转发
+            }
+
+            if (cancel) {
+                cancel();
+            } else {
+                requestIfNeeded();
+            }
+        }
+
+        private void emit(Member member, DataBuffer buffer) {
+            if (member.sink.tryEmitNext(buffer).isFailure()) {
+                DataBufferUtils.release(buffer); // 订阅者已取消
+            }
+            if (member.detached) {
+                member.sink.tryEmitComplete();
+            }
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            for (Member member : finish()) {
+                member.sink.tryEmitComplete();
+            }
+        }
+
+        @Override
+        protected void hookOnError(Throwable e) {
+            for (Member member : finish()) {
+                member.sink.tryEmitError(e);
+            }
+        }
+
+        private synchronized List<Member> finish() {
+            close();
+            List<Member> receivers = new ArrayList<>(members);
+            members.clear();
+            return receivers;
+        }
+
+        /**
+         * 调用方持有锁
+         */
+        private void close() {
+            closed = true;
+            flights.remove(key, this);
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.download.coalesce.requests")
+                .description("对象读取合并请求数，按发起共享读取、加入共享读取和落后后单独读取区分")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,94 @@
+package org.cloud.storage.service.impl;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.http.Method;
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 非阻塞读取 MinIO 对象 <br/>
+ * MinIO SDK（包括 MinioAsyncClient）返回的对象内容都是阻塞的 InputStream，每个下载连接要占用一个线程直到传输结束；
+ * 这里用内网地址的预签名 GET 请求经 WebClient 读取对象，响应体按下游需求从 Netty 读取并直接写出，不占用线程 <br/>
+ * 下游消费慢时 Netty 暂停读取，连接上的读空闲时间随之增长，因此响应超时只限制首个数据块，读空闲超时远长于客户端正常的停顿
+ */
+@Slf4j
+@Component
+public class ObjectStreamReader {
+    private final MinioClient minioClient;
+    private final ThreadPoolTaskExecutor taskExecutor;
+    private final WebClient webClient;
+    private final Duration firstChunkTimeout;
+
+    private static final int SIGNATURE_EXPIRY_MINUTES = 10; // 只在发起请求时校验，与传输时长无关
+
+    public ObjectStreamReader(FileTransferConfig transferConfig,
+                              MinioClient minioClient,
+                              @Qualifier("sharedTaskExecutor") ThreadPoolTaskExecutor taskExecutor,
+                              WebClient.Builder webClientBuilder) {
+        FileTransferConfig.DownloadConfig cfg = transferConfig.getDownloadConfig();
+        this.minioClient = minioClient;
+        this.taskExecutor = taskExecutor;
+
+        ConnectionProvider provider = ConnectionProvider.builder("minio-object-reader")
+                .maxConnections(cfg.getObjectReadMaxConnections())
+                .pendingAcquireTimeout(Duration.ofSeconds(cfg.getObjectReadResponseTimeoutSeconds()))
+                .build();
+        HttpClient httpClient = HttpClient.create(provider)
+                .responseTimeout(Duration.ofMinutes(cfg.getObjectReadIdleTimeoutMinutes())); // 读空闲超时，不是整个响应的超时
+        this.firstChunkTimeout = Duration.ofSeconds(cfg.getObjectReadResponseTimeoutSeconds());
+        this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * 读取对象的一段数据
+     * @param bucket 存储桶
+     * @param storageKey 对象键
+     * @param offset 对象中的起始偏移
+     * @param length 读取长度
+     * @return 对象数据流，下游取消时关闭连接
+     */
+    public Flux<DataBuffer> read(String bucket, String storageKey, long offset, long length) {
+        if (length <= 0) {
+            return Flux.empty();
+        }
+
+        // 首次访问存储桶时 SDK 会查询其所在区域，因此签名在任务线程池中计算
+        return Mono.fromCallable(() -> minioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.GET)
+                            .bucket(bucket)
+                            .object(storageKey)
+                            .expiry(SIGNATURE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                            .build()))
+            .subscribeOn(Schedulers.fromExecutor(taskExecutor))
+            .flatMapMany(url -> webClient.get()
+                    .uri(URI.create(url)) // 预签名地址已编码，不能再经过 URI 模板
+                    .header(HttpHeaders.RANGE, "bytes=" + offset + "-" + (offset + length - 1))
+                    .retrieve()
+                    .bodyToFlux(DataBuffer.class)
+                    .timeout(Mono.delay(firstChunkTimeout), buffer -> Mono.never())) // 只限制等待首个数据块的时间
+            .doOnError(e -> log.error("[ObjectStreamReader] bucket={}, storageKey={}, range={}+{}, error={}",
+                    bucket, storageKey, offset, length, e.getMessage()))
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+}
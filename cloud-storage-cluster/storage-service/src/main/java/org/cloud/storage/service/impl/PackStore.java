@@ -0,0 +1,174 @@
+package org.cloud.storage.service.impl;
+
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.storage.config.minio.MinioProperties;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.util.StorageKeyGenerator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 小文件打包存储 <br/>
+ * 同一用户的小文件追加到该用户当前打开的打包对象，达到目标大小或等待超时后整体写入 MinIO，
+ * 文件记录保存打包对象的存储键和文件在其中的偏移；写入成功后才返回，调用方据此保存文件元数据
+ */
+@Slf4j
+@Component
+public class PackStore {
+    private final FileTransferConfig.PackConfig cfg;
+    private final MinioProperties minioProperties;
+    private final MinioAsyncClient minioAsyncClient;
+    private final ConcurrentMap<UUID, OpenPack> openPacks = new ConcurrentHashMap<>();
+
+    public static final String PACK_KEY_SUFFIX = ".pack";
+    private static final String PACK_CONTENT_TYPE = "application/octet-stream";
+
+    /**
+     * 文件在打包对象中的位置
+     */
+    public record PackedEntry(String storageKey, long offset, long length) {}
+
+    public PackStore(FileTransferConfig transferConfig,
+                     MinioProperties minioProperties,
+                     MinioAsyncClient minioAsyncClient) {
+        this.cfg = transferConfig.getPackConfig();
+        this.minioProperties = minioProperties;
+        this.minioAsyncClient = minioAsyncClient;
+    }
+
+    /**
+     * 该大小的文件是否写入打包对象
+     */
+    public boolean accepts(long fileSize) {
+        return cfg.isEnabled() && fileSize <= cfg.getMaxFileSizeBytes();
+    }
+
+    /**
+     * 追加文件内容到用户当前的打包对象
+     * @param userId 用户 ID
+     * @param data 文件内容
+     * @return 打包对象写入成功后文件所在的位置
+     */
+    public Mono<PackedEntry> append(UUID userId, byte[] data) {
+        return Mono.defer(() -> {
+            List<OpenPack> sealed = new ArrayList<>(2);
+            OpenPack[] created = new OpenPack[1];
+            OpenPack[] owner = new OpenPack[1];
+            PackedEntry[] entry = new PackedEntry[1];
+
+            openPacks.compute(userId, (id, pack) -> {
+                if (pack != null && pack.size + data.length > cfg.getTargetPackSizeBytes()) {
+                    sealed.add(pack); // 放不下时先封存当前打包对象
+                    pack = null;
+                }
+                if (pack == null) {
+                    pack = new OpenPack(StorageKeyGenerator.generateKey(userId) + PACK_KEY_SUFFIX);
+                    created[0] = pack;
+                }
+
+                owner[0] = pack;
+                entry[0] = pack.add(data);
+                if (pack.size >= cfg.getTargetPackSizeBytes()) {
+                    sealed.add(pack); // 达到目标大小立即写入
+                    return null;
+                }
+                return pack;
+            });
+
+            // 写入放在 compute 之外，避免在持有映射锁时发起 IO
+            sealed.forEach(this::flush);
+            if (created[0] != null && !sealed.contains(created[0])) {
+                scheduleFlush(userId, created[0]);
+            }
+
+            return Mono.fromFuture(owner[0].written, true) // 取消等待不影响同一打包对象中的其他文件
+                    .thenReturn(entry[0]);
+        });
+    }
+
+    /**
+     * 等待超时后写入仍未封存的打包对象
+     */
+    private void scheduleFlush(UUID userId, OpenPack pack) {
+        Mono.delay(Duration.ofMillis(cfg.getFlushDelayMillis()))
+                .subscribe(tick -> {
+                    if (openPacks.remove(userId, pack)) { // 已被封存的打包对象由封存方写入
+                        flush(pack);
+                    }
+                });
+    }
+
+    /**
+     * 将打包对象写入 MinIO，每个打包对象只写入一次
+     */
+    private void flush(OpenPack pack) {
+        long startTime = System.currentTimeMillis();
+        byte[] content = pack.toByteArray();
+
+        try {
+            minioAsyncClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(minioProperties.getStorageBucket())
+                            .object(pack.storageKey)
+                            .stream(new ByteArrayInputStream(content), content.length, -1)
+                            .contentType(PACK_CONTENT_TYPE)
+                            .build()
+            ).whenComplete((response, e) -> {
+                if (e != null) {
+                    log.error("[PackStore] Failed to write pack, storageKey={}, fileCount={}, error={}",
+                            pack.storageKey, pack.chunks.size(), e.getMessage());
+                    pack.written.completeExceptionally(e);
+                } else {
+                    log.info("[PackStore] storageKey={}, fileCount={}, size={} bytes, elapsed={} ms",
+                            pack.storageKey, pack.chunks.size(), content.length, System.currentTimeMillis() - startTime);
+                    pack.written.complete(null);
+                }
+            });
+        } catch (Exception e) {
+            log.error("[PackStore] Failed to write pack, storageKey={}, error={}", pack.storageKey, e.getMessage());
+            pack.written.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 正在接收文件的打包对象，只在 ConcurrentMap.compute 中修改
+     */
+    private static final class OpenPack {
+        private final String storageKey;
+        private final List<byte[]> chunks = new ArrayList<>();
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+        private long size;
+
+        OpenPack(String storageKey) {
+            this.storageKey = storageKey;
+        }
+
+        PackedEntry add(byte[] data) {
+            PackedEntry entry = new PackedEntry(storageKey, size, data.length);
+            chunks.add(data);
+            size += data.length;
+            return entry;
+        }
+
+        byte[] toByteArray() {
+            byte[] content = new byte[(int) size];
+            int position = 0;
+            for (byte[] chunk : chunks) {
+                System.arraycopy(chunk, 0, content, position, chunk.length);
+                position += chunk.length;
+            }
+            return content;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.cloud.storage.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.storage.exception.MultipartUploadException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 分片数据暂存区 <br/>
+ * 接收过程中逐块校验大小，小分片直接持有请求的 DataBuffer，
+ * 超过落盘阈值或全局内存额度不足时，转为写入临时文件
+ */
+@Slf4j
+public class PartSpool implements AutoCloseable {
+    private final Path tempDir;
+    private final long maxSize;
+    private final long spillThreshold;
+    private final UploadMemoryBudget memoryBudget;
+
+    private final List<DataBuffer> buffers = new ArrayList<>();
+    private byte[] joined;
+    private long reservedBytes;
+    private long size;
+
+    private Path tempFile;
+    private FileChannel channel;
+    private RandomAccessFile file;
+    private boolean closed;
+
+    public PartSpool(Path tempDir, long maxSize, long spillThreshold, UploadMemoryBudget memoryBudget) {
+        this.tempDir = tempDir;
+        this.maxSize = maxSize;
+        this.spillThreshold = spillThreshold;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * 写入一块数据，调用方负责串行调用
+     * @param buffer 数据块，所有权转移给暂存区
+     */
+    public synchronized void write(DataBuffer buffer) {
+        int n = buffer.readableByteCount();
+
+        if (closed) {
+            DataBufferUtils.release(buffer);
+            return;
+        }
+
+        if (size + n > maxSize) {
+            DataBufferUtils.release(buffer);
+            throw new MultipartUploadException("文件分片大小超过最大限制");
+        }
+        size += n;
+
+        if (tempFile == null) {
+            if (size <= spillThreshold && memoryBudget.tryAcquire(n)) {
+                reservedBytes += n;
+                buffers.add(buffer);
+                return;
+            }
+            spill();
+        }
+
+        writeToFile(buffer);
+    }
+
+    /**
+     * 是否已落盘到临时文件
+     */
+    public synchronized boolean isSpilled() {
+        return tempFile != null;
+    }
+
+    /**
+     * 已接收的字节数
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * 把内存中的数据合并为一个字节数组，MinIO 客户端直接发送字节数组，而输入流会被它再复制到自己的缓冲区 <br/>
+     * 合并时每复制一块就释放对应的 DataBuffer，驻留的内存不超过分片大小加一个数据块；
+     * 内存额度保留到 close 时释放，覆盖上传期间的驻留
+     */
+    public synchronized byte[] toByteArray() {
+        if (joined == null) {
+            joined = new byte[Math.toIntExact(size)];
+            int position = 0;
+            for (DataBuffer buffer : buffers) {
+                int n = buffer.readableByteCount();
+                buffer.read(joined, position, n);
+                position += n;
+                DataBufferUtils.release(buffer);
+            }
+            buffers.clear();
+        }
+        return joined;
+    }
+
+    /**
+     * 打开落盘的临时文件，MinIO 客户端从文件直接读取上传
+     */
+    public synchronized RandomAccessFile openFile() throws IOException {
+        closeChannel();
+        file = new RandomAccessFile(tempFile.toFile(), "r");
+        return file;
+    }
+
+    /**
+     * 释放 DataBuffer、内存额度，并删除临时文件
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        buffers.forEach(DataBufferUtils::release);
+        buffers.clear();
+        joined = null;
+        memoryBudget.release(reservedBytes);
+        reservedBytes = 0;
+
+        closeChannel();
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {}
+        }
+        if (tempFile != null) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("[PartSpool] Failed to delete temp file, path={}, error={}", tempFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 将已持有的 DataBuffer 转存到临时文件，并归还内存额度
+     */
+    private void spill() {
+        try {
+            tempFile = tempDir.resolve("part-" + UUID.randomUUID() + ".tmp");
+            channel = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        for (DataBuffer held : buffers) {
+            writeToFile(held);
+        }
+        buffers.clear();
+        memoryBudget.release(reservedBytes);
+        reservedBytes = 0;
+    }
+
+    private void writeToFile(DataBuffer buffer) {
+        try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+            while (it.hasNext()) {
+                ByteBuffer byteBuffer = it.next();
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.cloud.storage.service.impl;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.storage.util.ContentHasher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 响应式分片上传器 <br/>
+ * 将请求体的 DataBuffer 流按分片大小聚合，每凑满一个分片立即通过 uploadPartAsync 上传，
+ * 不占用额外的桥接线程，内存中最多驻留 (maxPartsInFlight + 1) 个分片
+ */
+@Slf4j
+@Component
+public class StreamingPartUploader {
+    /** S3 协议要求除最后一个分片外，分片大小不能小于 5MB */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final MinioAsyncClient minioAsyncClient;
+
+    public StreamingPartUploader(MinioAsyncClient minioAsyncClient) {
+        this.minioAsyncClient = minioAsyncClient;
+    }
+
+    /**
+     * 分片上传结果
+     * @param etag 合并后对象的 ETag
+     * @param size 实际写入的字节数
+     * @param partCount 分片数量
+     * @param md5 文件内容的 MD5
+     * @param crc32c 文件内容的 CRC32C（十六进制）
+     */
+    public record UploadResult(String etag, long size, int partCount, String md5, String crc32c) {}
+
+    /**
+     * 已凑满待上传的分片，仅 [0, length) 区间有效
+     */
+    private record PartChunk(int partNumber, byte[] bytes, int length) {}
+
+    /**
+     * 将数据流切分为分片并上传到 MinIO
+     * @param content 文件数据流
+     * @param bucket 存储桶
+     * @param storageKey 存储键
+     * @param contentType 文件的 MIME 类型
+     * @param partSize 分片大小（字节），不小于 5MB
+     * @param maxPartsInFlight 同时上传中的最大分片数
+     * @return 上传结果
+     */
+    public Mono<UploadResult> upload(Flux<DataBuffer> content, String bucket, String storageKey, String contentType,
+                                     int partSize, int maxPartsInFlight) {
+        return upload(content, bucket, storageKey, contentType, null, partSize, maxPartsInFlight);
+    }
+
+    /**
+     * 将数据流切分为分片并上传到 MinIO，对象带有 Content-Encoding 元数据
+     * @param contentEncoding 数据流的编码，如 gzip，为 null 时不设置
+     */
+    public Mono<UploadResult> upload(Flux<DataBuffer> content, String bucket, String storageKey, String contentType,
+                                     String contentEncoding, int partSize, int maxPartsInFlight) {
+        int effectivePartSize = Math.max(partSize, MIN_PART_SIZE);
+        int concurrency = Math.max(1, maxPartsInFlight);
+
+        // 构造请求头
+        Multimap<String, String> headers = HashMultimap.create();
+        headers.put("Content-Type", contentType);
+        Multimap<String, String> createHeaders = HashMultimap.create(headers);
+        if (contentEncoding != null) {
+            createHeaders.put("Content-Encoding", contentEncoding);
+        }
+
+        return Mono.fromCallable(() -> minioAsyncClient.createMultipartUploadAsync(bucket, null, storageKey, createHeaders, null))
+            .flatMap(Mono::fromFuture)
+            .map(response -> response.result().uploadId())
+            .flatMap(uploadId -> {
+                PartSplitter splitter = new PartSplitter(effectivePartSize);
+
+                return content
+                    .concatMapIterable(splitter::append)
+                    .concatWith(Mono.fromSupplier(splitter::flush))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .flatMap(chunk -> uploadPart(bucket, storageKey, uploadId, chunk, headers), concurrency, 1)
+                    .collectList()
+                    .flatMap(parts -> completeUpload(bucket, storageKey, uploadId, parts, headers))
+                    .map(response -> new UploadResult(response.etag(), splitter.totalBytes(), splitter.partCount(),
+                            splitter.hasher.md5Hex(), ContentHasher.crc32cHex(splitter.hasher.crc32c())))
+                    .onErrorResume(e -> abortUpload(bucket, storageKey, uploadId).then(Mono.error(e)))
+                    .doOnCancel(() -> abortUpload(bucket, storageKey, uploadId).subscribe());
+            });
+    }
+
+    private Mono<Part> uploadPart(String bucket, String storageKey, String uploadId, PartChunk chunk, Multimap<String, String> headers) {
+        return Mono.fromCallable(() -> minioAsyncClient.uploadPartAsync(
+                    bucket,
+                    null,
+                    storageKey,
+                    chunk.bytes(),
+                    chunk.length(),
+                    uploadId,
+                    chunk.partNumber(),
+                    headers,
+                    null
+            ))
+            .flatMap(Mono::fromFuture)
+            .map(response -> new Part(chunk.partNumber(), response.etag()));
+    }
+
+    private Mono<ObjectWriteResponse> completeUpload(String bucket, String storageKey, String uploadId, List<Part> parts, Multimap<String, String> headers) {
+        Part[] sortedParts = parts.stream()
+                .sorted(Comparator.comparingInt(Part::partNumber))
+                .toArray(Part[]::new);
+
+        return Mono.fromCallable(() -> minioAsyncClient.completeMultipartUploadAsync(bucket, null, storageKey, uploadId, sortedParts, headers, null))
+                .flatMap(Mono::fromFuture);
+    }
+
+    private Mono<Void> abortUpload(String bucket, String storageKey, String uploadId) {
+        return Mono.fromCallable(() -> minioAsyncClient.abortMultipartUploadAsync(bucket, null, storageKey, uploadId, null, null))
+                .flatMap(Mono::fromFuture)
+                .doOnSuccess(response -> log.warn("[abortUpload] uploadId={}, storageKey={}", uploadId, storageKey))
+                .onErrorResume(e -> {
+                    log.error("[abortUpload] uploadId={}, storageKey={}, error={}", uploadId, storageKey, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * 分片切分器，将任意大小的 DataBuffer 拷贝进固定大小的分片数组，凑满即产出；
+     * 拷贝后趁数据仍在缓存中顺带计算内容哈希
+     * @implNote 由 concatMapIterable 串行调用，无需同步
+     */
+    private static final class PartSplitter {
+        private final int partSize;
+        private final ContentHasher hasher = new ContentHasher();
+        private byte[] current;
+        private int position;
+        private int partNumber;
+        private long totalBytes;
+
+        PartSplitter(int partSize) {
+            this.partSize = partSize;
+        }
+
+        List<PartChunk> append(DataBuffer buffer) {
+            List<PartChunk> completed = new ArrayList<>(1);
+            try {
+                int remaining = buffer.readableByteCount();
+                totalBytes += remaining;
+
+                while (remaining > 0) {
+                    if (current == null) {
+                        current = new byte[partSize];
+                        position = 0;
+                    }
+
+                    int n = Math.min(remaining, partSize - position);
+                    buffer.read(current, position, n);
+                    hasher.update(current, position, n);
+                    position += n;
+                    remaining -= n;
+
+                    if (position == partSize) {
+                        completed.add(new PartChunk(++partNumber, current, position));
+                        current = null;
+                    }
+                }
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+            return completed;
+        }
+
+        /**
+         * 产出最后一个不足分片大小的分片，空文件也需要一个空分片完成合并
+         */
+        PartChunk flush() {
+            if (current != null) {
+                PartChunk last = new PartChunk(++partNumber, current, position);
+                current = null;
+                return last;
+            }
+            return partNumber == 0 ? new PartChunk(++partNumber, new byte[0], 0) : null;
+        }
+
+        long totalBytes() {
+            return totalBytes;
+        }
+
+        int partCount() {
+            return partNumber;
+        }
+    }
+}
@@ -1,72 +1,511 @@
 package org.cloud.storage.service.impl;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+/**
+ * ZIP 归档磁盘缓存 <br/>
+ * 键由用户、文件 ID 及文件版本计算，文件内容变化后自然失效；按访问顺序 LRU 淘汰，总大小不超过磁盘额度，
+ * 闲置超时的归档定时清理；淘汰的文件在最近一次访问的宽限期过后删除，删除前仍计入占用的磁盘空间；同一归档的并发请求合并为一次构建或等待正在进行的写入。缓存目录在启动时重新加载，重启后仍可命中
+ */
 @Slf4j
 @Component
 public class TempFileCache {
+    private final FileTransferConfig.DownloadConfig cfg;
+    private final Path cacheDir;
 
-    /** 按过期时间排序的列表（从早到晚） */
-    private final List<ZipTempFile> sortedFiles = new CopyOnWriteArrayList<>();
-    private static final long DEFAULT_EXPIRY_MILLIS = 30 * 60 * 1000; // 30分钟
+    /** 按访问顺序排列（从旧到新），只在持有对象锁时访问 */
+    private final LinkedHashMap<String, CachedArchive> archives = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Mono<Path>> building = new ConcurrentHashMap<>();
+    private final Map<String, ArchiveFill> filling = new ConcurrentHashMap<>();
+    private final List<PendingDelete> pendingDeletes = new ArrayList<>();
+    private long usedBytes; // 磁盘上的归档总大小，包括等待删除的文件
+    private long pendingDeleteBytes;
+
+    private final Counter hitCounter;
+    private final Counter coalescedCounter;
+    private final Counter missCounter;
+    private final Counter savedBytesCounter;
+    private final Counter evictionCounter;
+
+    private static final String ARCHIVE_SUFFIX = ".zip";
+    private static final String PARTIAL_SUFFIX = ".part";
     private static final long CLEANUP_INTERVAL_MINUTE = 5;
+    private static final long DELETE_GRACE_MILLIS = 60 * 1000; // 访问后的删除宽限期，让刚取得路径的下载能够打开文件
+
+    public record CachedArchive(Path path, long size, long accessedAt) {}
+
+    /**
+     * 被淘汰、等待删除的归档
+     */
+    private record PendingDelete(Path path, long size, long deleteAfter) {}
 
+    public TempFileCache(FileTransferConfig transferConfig, MeterRegistry meterRegistry) {
+        this.cfg = transferConfig.getDownloadConfig();
+        this.cacheDir = createCacheDir(Paths.get(cfg.getZipCacheDir()));
 
-    public record ZipTempFile(Path path, long expiredAt) {}
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.coalescedCounter = requestCounter(meterRegistry, "coalesced");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+        this.savedBytesCounter = Counter.builder("storage.zip.cache.saved")
+                .description("由缓存提供、无需重新打包的归档字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.evictionCounter = Counter.builder("storage.zip.cache.evictions")
+                .description("被淘汰的缓存归档数量")
+                .register(meterRegistry);
+        Gauge.builder("storage.zip.cache.size", this, TempFileCache::usedBytes)
+                .description("缓存归档占用的磁盘空间")
+                .baseUnit("bytes")
+                .register(meterRegistry);
 
-    public synchronized void register(Path path) {
-        long expiredAt = System.currentTimeMillis() + DEFAULT_EXPIRY_MILLIS;
-        sortedFiles.add(new ZipTempFile(path, expiredAt));
-        log.debug("[ZipTempCache] Registered: path={}", path);
+        loadExisting();
     }
 
     /**
-     * 定时清理过期文件（每5分钟执行）
+     * 查找缓存的归档，未命中但同一归档正在边发送边写入缓存时，等待写入完成后返回
+     * @param key 归档键
+     * @return 缓存的归档，未命中或正在进行的写入被放弃时为空
+     */
+    public Mono<CachedArchive> getOrAwaitFill(String key) {
+        return Mono.defer(() -> {
+            CachedArchive cached = lookup(key);
+            if (cached != null) {
+                record(hitCounter, cached.size());
+                return Mono.just(cached);
+            }
+
+            ArchiveFill fill = filling.get(key);
+            if (fill == null) {
+                return Mono.empty();
+            }
+            return fill.result.asMono()
+                    .doOnNext(archive -> record(coalescedCounter, archive.size()));
+        });
+    }
+
+    /**
+     * 查找缓存的归档，未命中时构建；同一归档同时只构建一次，其他请求等待构建结果
+     * @param key 归档键
+     * @param builder 将归档写入给定临时路径，完成后移入缓存
+     * @return 缓存的归档
+     */
+    public Mono<CachedArchive> getOrBuild(String key, Function<Path, Mono<Void>> builder) {
+        return Mono.defer(() -> {
+            CachedArchive cached = lookup(key);
+            if (cached != null) {
+                record(hitCounter, cached.size());
+                return Mono.just(cached);
+            }
+
+            boolean[] owner = new boolean[1];
+            Mono<Path> build = building.computeIfAbsent(key, k -> {
+                owner[0] = true;
+                Path partial = partialPath(k);
+                return builder.apply(partial)
+                        .then(Mono.fromCallable(() -> commit(k, partial)))
+                        .doOnError(e -> deleteQuietly(partial))
+                        .doFinally(signal -> building.remove(k))
+                        .cache(); // 发起请求取消后构建仍继续，等待中的请求共享结果
+            });
+
+            return build.flatMap(path -> {
+                CachedArchive archive = lookup(key);
+                if (archive == null) {
+                    return Mono.error(new IOException("Archive evicted before it could be served"));
+                }
+                if (owner[0]) {
+                    missCounter.increment();
+                } else {
+                    record(coalescedCounter, archive.size());
+                }
+                return Mono.just(archive);
+            });
+        });
+    }
+
+    /**
+     * 开始将边生成边发送的归档同时写入缓存，同一归档已在写入或构建时返回 null
+     * @param key 归档键
+     * @return 写入器，数据流完整结束时提交，否则丢弃
+     */
+    public ArchiveFill beginFill(String key) {
+        if (building.containsKey(key)) {
+            return null;
+        }
+        ArchiveFill[] created = new ArchiveFill[1];
+        filling.computeIfAbsent(key, k -> created[0] = openFill(k));
+        return created[0];
+    }
+
+    private ArchiveFill openFill(String key) {
+        Path partial = partialPath(key);
+        try {
+            return new ArchiveFill(key, partial, FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            log.warn("[TempFileCache] Failed to create partial archive, path={}, error={}", partial, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 边发送边写入缓存的归档，由数据流串行调用；文件写入和提交在 boundedElastic 上执行，不占用 IO 线程
+     */
+    public final class ArchiveFill {
+        private final String key;
+        private final Path partial;
+        private final FileChannel channel;
+        private final Sinks.One<CachedArchive> result = Sinks.one(); // 等待同一归档的请求在提交后读取缓存
+        private volatile boolean failed;
+
+        private ArchiveFill(String key, Path partial, FileChannel channel) {
+            this.key = key;
+            this.partial = partial;
+            this.channel = channel;
+        }
+
+        /**
+         * 写入一段数据，不改变 buffer 的读取位置；写入失败后放弃缓存，不影响下载
+         */
+        public Mono<Void> write(DataBuffer buffer) {
+            return Mono.<Void>fromRunnable(() -> {
+                if (failed) {
+                    return;
+                }
+                try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+                    while (it.hasNext()) {
+                        ByteBuffer byteBuffer = it.next().duplicate();
+                        while (byteBuffer.hasRemaining()) {
+                            channel.write(byteBuffer);
+                        }
+                    }
+                } catch (ClosedChannelException e) {
+                    failed = true; // 下载已取消
+                } catch (IOException e) {
+                    failed = true;
+                    log.warn("[TempFileCache] Failed to write partial archive, path={}, error={}", partial, e.getMessage());
+                }
+            }).subscribeOn(Schedulers.boundedElastic());
+        }
+
+        /**
+         * 数据流完整结束时提交到缓存
+         */
+        public Mono<Void> complete() {
+            return Mono.<Void>fromRunnable(() -> {
+                CachedArchive archive = null;
+                try {
+                    channel.close();
+                    if (!failed) {
+                        commit(key, partial);
+                        archive = lookup(key);
+                        missCounter.increment();
+                    }
+                } catch (IOException e) {
+                    log.warn("[TempFileCache] Failed to commit archive, key={}, error={}", key, e.getMessage());
+                }
+                if (archive == null) {
+                    deleteQuietly(partial);
+                }
+                finish(archive);
+            }).subscribeOn(Schedulers.boundedElastic());
+        }
+
+        /**
+         * 数据流出错或被取消时丢弃
+         */
+        public void abort() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            deleteQuietly(partial);
+            finish(null);
+        }
+
+        /**
+         * 先移出正在写入的归档，再通知等待的请求，写入被放弃时它们可以重新发起
+         */
+        private void finish(CachedArchive archive) {
+            filling.remove(key, this);
+            if (archive != null) {
+                result.tryEmitValue(archive);
+            } else {
+                result.tryEmitEmpty();
+            }
+        }
+    }
+
+    /**
+     * 定时淘汰闲置超时的归档并删除到期的淘汰文件（每5分钟执行）
      */
     @Scheduled(fixedDelay = CLEANUP_INTERVAL_MINUTE, timeUnit = TimeUnit.MINUTES)
-    public synchronized void cleanup() {
+    public void cleanup() {
         long now = System.currentTimeMillis();
-        List<ZipTempFile> expiredFiles = new ArrayList<>();
-
-        // 从头扫描，收集过期文件
-        Iterator<ZipTempFile> it = sortedFiles.iterator();
-        while (it.hasNext()) {
-            ZipTempFile file = it.next();
-            if (file.expiredAt > now) {
-                break; // 遇到未过期的，立即停止
+        long expiredBefore = now - Duration.ofMinutes(cfg.getZipCacheMaxIdleMinutes()).toMillis();
+        int expired = 0;
+
+        synchronized (this) {
+            // 从最久未访问的开始扫描
+            Iterator<Map.Entry<String, CachedArchive>> it = archives.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, CachedArchive> entry = it.next();
+                if (entry.getValue().accessedAt() > expiredBefore) {
+                    break;
+                }
+                evict(entry.getValue(), now);
+                it.remove();
+                expired++;
             }
-            expiredFiles.add(file);
-            it.remove();
         }
 
-        if (expiredFiles.isEmpty()) {
+        int deleted = deleteEvicted(now);
+        if (expired > 0) {
+            evictionCounter.increment(expired);
+        }
+        if (expired > 0 || deleted > 0) {
+            log.info("[ZipTempCleanup] Expired {} idle archives, deleted {} evicted files, used={} MB",
+                    expired, deleted, usedBytes() / 1024 / 1024);
+        }
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 命中时刷新访问顺序和访问时间
+     */
+    private synchronized CachedArchive lookup(String key) {
+        CachedArchive archive = archives.get(key);
+        if (archive == null) {
+            return null;
+        }
+        if (!Files.isRegularFile(archive.path())) {
+            archives.remove(key); // 文件已被外部删除，不再占用空间
+            usedBytes -= archive.size();
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        CachedArchive touched = new CachedArchive(archive.path(), archive.size(), now);
+        archives.put(key, touched);
+        touch(archive.path(), now);
+        return touched;
+    }
+
+    /**
+     * 移出缓存后删除文件，宽限期内访问过的延迟删除；删除前仍计入占用空间。调用方持有对象锁 <br/>
+     * 已开始发送的下载持有打开的文件，不受删除影响
+     */
+    private void evict(CachedArchive archive, long now) {
+        long deleteAfter = archive.accessedAt() + DELETE_GRACE_MILLIS;
+        if (deleteAfter <= now && deleteQuietly(archive.path())) {
+            usedBytes -= archive.size();
             return;
         }
+        pendingDeletes.add(new PendingDelete(archive.path(), archive.size(), Math.max(deleteAfter, now + 1)));
+        pendingDeleteBytes += archive.size();
+    }
+
+    /**
+     * 删除宽限期已过的淘汰文件，删除后才从占用空间中扣除，删除失败的稍后重试
+     * @return 删除的文件数
+     */
+    private int deleteEvicted(long now) {
+        List<PendingDelete> due = new ArrayList<>();
+        synchronized (this) {
+            Iterator<PendingDelete> it = pendingDeletes.iterator();
+            while (it.hasNext()) {
+                PendingDelete delete = it.next();
+                if (delete.deleteAfter() <= now) {
+                    due.add(delete);
+                    it.remove();
+                }
+            }
+        }
 
-        log.info("[ZipTempCleanup] Found {} expired files", expiredFiles.size());
+        long freed = 0;
+        List<PendingDelete> failed = new ArrayList<>();
+        for (PendingDelete delete : due) {
+            if (deleteQuietly(delete.path())) {
+                freed += delete.size();
+            } else {
+                failed.add(new PendingDelete(delete.path(), delete.size(), now + DELETE_GRACE_MILLIS));
+            }
+        }
 
-        int success = 0;
-        for (ZipTempFile file : expiredFiles) {
-            try {
-                Files.deleteIfExists(file.path);
-                success++;
-                log.debug("[ZipTempCleanup] Deleted: {}", file.path);
-            } catch (IOException e) {
-                log.error("[ZipTempCleanup] Failed to delete: {}", file.path, e);
+        synchronized (this) {
+            usedBytes -= freed;
+            pendingDeleteBytes -= freed;
+            pendingDeletes.addAll(failed);
+        }
+        return due.size() - failed.size();
+    }
+
+    /**
+     * 将构建完成的归档移入缓存，超出磁盘额度时淘汰最久未访问的归档 <br/>
+     * 每次提交使用新的文件名，等待删除的旧文件不会与重新构建的同一归档冲突；
+     * 额度按未淘汰的归档计算，宽限期内等待删除的文件不会导致继续淘汰
+     */
+    private Path commit(String key, Path partial) throws IOException {
+        String filename = partial.getFileName().toString();
+        Path target = partial.resolveSibling(filename.substring(0, filename.length() - PARTIAL_SUFFIX.length()) + ARCHIVE_SUFFIX);
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        long size = Files.size(target);
+
+        int evicted = 0;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            CachedArchive previous = archives.put(key, new CachedArchive(target, size, now));
+            if (previous != null) {
+                evict(previous, now);
+            }
+            usedBytes += size;
+
+            Iterator<Map.Entry<String, CachedArchive>> it = archives.entrySet().iterator();
+            while (usedBytes - pendingDeleteBytes > cfg.getZipCacheCapacityBytes() && it.hasNext()) {
+                Map.Entry<String, CachedArchive> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue; // 刚提交的归档即将被读取
+                }
+                evict(eldest.getValue(), now);
+                it.remove();
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            evictionCounter.increment(evicted);
+            log.info("[TempFileCache] Evicted {} archives, used={} MB", evicted, usedBytes() / 1024 / 1024);
+        }
+        log.debug("[TempFileCache] Committed: key={}, size={}", key, size);
+        return target;
+    }
+
+    /**
+     * 加载缓存目录中已有的归档，按修改时间恢复访问顺序，删除未完成的临时文件；
+     * 同一归档有多个文件时保留最新的，其余是上次运行未及删除的淘汰文件
+     */
+    private void loadExisting() {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            List<Path> paths = files.toList();
+            List<CachedArchive> existing = new ArrayList<>();
+            for (Path path : paths) {
+                String filename = path.getFileName().toString();
+                if (filename.endsWith(PARTIAL_SUFFIX)) {
+                    deleteQuietly(path);
+                } else if (filename.endsWith(ARCHIVE_SUFFIX) && Files.isRegularFile(path)) {
+                    existing.add(new CachedArchive(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                }
+            }
+
+            existing.sort(Comparator.comparingLong(CachedArchive::accessedAt));
+            synchronized (this) {
+                for (CachedArchive archive : existing) {
+                    CachedArchive previous = archives.put(archiveKey(archive.path()), archive);
+                    if (previous != null) {
+                        deleteQuietly(previous.path());
+                        usedBytes -= previous.size();
+                    }
+                    usedBytes += archive.size();
+                }
             }
+            log.info("[TempFileCache] Loaded {} archives, used={} MB", existing.size(), usedBytes() / 1024 / 1024);
+        } catch (IOException e) {
+            log.warn("[TempFileCache] Failed to load cache directory, dir={}, error={}", cacheDir, e.getMessage());
+        }
+    }
+
+    private Path partialPath(String key) {
+        return cacheDir.resolve(key + "." + UUID.randomUUID() + PARTIAL_SUFFIX);
+    }
+
+    /**
+     * 文件名为 归档键.随机ID.zip，归档键中不含点号
+     */
+    private static String archiveKey(Path path) {
+        String filename = path.getFileName().toString();
+        int dot = filename.indexOf('.');
+        return filename.substring(0, dot);
+    }
+
+    private void record(Counter counter, long size) {
+        counter.increment();
+        savedBytesCounter.increment(size);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.zip.cache.requests")
+                .description("归档缓存请求数，按命中、合并构建、未命中区分")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 创建缓存目录，失败时直接启动失败；启动时会删除和接管目录中的文件，不能退回到与其他进程共用的临时目录
+     */
+    private static Path createCacheDir(Path dir) {
+        try {
+            return Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format(
+                    "transfer.download-config.zip-cache-dir (%s) cannot be created: %s", dir, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 以文件修改时间记录最近访问时间，重启后据此恢复访问顺序
+     */
+    private static void touch(Path path, long millis) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(millis));
+        } catch (IOException ignored) {
         }
+    }
 
-        log.info("[ZipTempCleanup] Deleted {}/{} files", success, expiredFiles.size());
+    /**
+     * @return 文件是否已不存在
+     */
+    private static boolean deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+            return true;
+        } catch (IOException e) {
+            log.error("[ZipTempCleanup] Failed to delete: {}", path, e);
+            return false;
+        }
     }
 }
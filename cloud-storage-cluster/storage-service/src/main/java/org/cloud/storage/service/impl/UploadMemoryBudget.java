@@ -0,0 +1,198 @@
+package org.cloud.storage.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.exception.UploadOverloadedException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 上传内存额度，按字节计数的全局信号量，限制所有上传中数据驻留内存的总量 <br/>
+ * 额度不足时，调用方可以立即放弃（tryAcquire）后改走落盘等路线，也可以排队等待（reserve），
+ * 排队按先来先服务的顺序放行，等待超时则以 503 拒绝
+ */
+@Slf4j
+@Component
+public class UploadMemoryBudget {
+    private final long capacity;
+    private final Duration maxWait;
+    private final long retryAfterSeconds;
+    private final AtomicLong used = new AtomicLong();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    public UploadMemoryBudget(FileTransferConfig transferConfig, MeterRegistry meterRegistry) {
+        FileTransferConfig.UploadMemoryConfig cfg = transferConfig.getUploadMemoryConfig();
+        this.capacity = cfg.getCapacityBytes();
+        this.maxWait = Duration.ofMillis(cfg.getMaxWaitMillis());
+        this.retryAfterSeconds = cfg.getRetryAfterSeconds();
+
+        Gauge.builder("storage.upload.memory.used", used, AtomicLong::get)
+                .description("上传数据当前驻留内存的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("storage.upload.memory.capacity", () -> capacity)
+                .description("上传内存额度上限")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("storage.upload.memory.waiting", waiters, Queue::size)
+                .description("等待内存额度的上传数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 尝试占用内存额度，额度不足或已有上传在排队时立即返回 false
+     * @param bytes 字节数
+     * @return 是否占用成功
+     */
+    public boolean tryAcquire(long bytes) {
+        return waiters.isEmpty() && acquireNow(bytes);
+    }
+
+    /**
+     * 归还内存额度，并按顺序放行排队中的上传
+     * @param bytes 字节数
+     */
+    public void release(long bytes) {
+        if (bytes > 0) {
+            used.addAndGet(-bytes);
+            drain();
+        }
+    }
+
+    /**
+     * 占用内存额度后执行上传，结束（包括取消）时归还额度 <br/>
+     * 额度不足时挂起等待而不占用线程，上游数据不会被读取；超过最长等待时间则抛出 {@link UploadOverloadedException}
+     * @param bytes 字节数
+     * @param work 占用额度期间执行的上传
+     * @return 上传结果
+     */
+    public <T> Mono<T> reserve(long bytes, Supplier<Mono<T>> work) {
+        return Mono.usingWhen(
+                Mono.fromSupplier(() -> new Waiter(bytes)),
+                waiter -> acquire(waiter).then(Mono.defer(work)),
+                waiter -> Mono.fromRunnable(waiter::close)
+        );
+    }
+
+    /**
+     * 当前已占用的字节数
+     */
+    public long used() {
+        return used.get();
+    }
+
+    /**
+     * 额度上限（字节）
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    private Mono<Void> acquire(Waiter waiter) {
+        long bytes = waiter.bytes;
+        if (bytes > capacity) {
+            return Mono.error(new UploadOverloadedException("上传数据超过服务器内存额度", retryAfterSeconds));
+        }
+
+        return Mono.<Void>defer(() -> {
+                    if (tryAcquire(bytes)) {
+                        waiter.grant();
+                        return Mono.empty();
+                    }
+                    return Mono.create(sink -> {
+                        waiter.sink = sink;
+                        waiters.add(waiter);
+                        drain();
+                    });
+                })
+                .timeout(maxWait, Mono.defer(() -> {
+                    log.warn("[UploadMemoryBudget] Admission timed out, bytes={}, used={}, capacity={}, waiting={}",
+                            bytes, used.get(), capacity, waiters.size());
+                    return Mono.error(new UploadOverloadedException("服务器繁忙，请稍后重试", retryAfterSeconds));
+                }));
+    }
+
+    private boolean acquireNow(long bytes) {
+        while (true) {
+            long current = used.get();
+            if (current + bytes > capacity) {
+                return false;
+            }
+            if (used.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 按排队顺序放行，队首额度不足时停止，避免大额请求被小额请求饿死
+     */
+    private void drain() {
+        Waiter head;
+        while ((head = waiters.peek()) != null) {
+            if (head.isClosed()) {
+                waiters.remove(head);
+                continue;
+            }
+            if (!acquireNow(head.bytes)) {
+                return;
+            }
+            waiters.remove(head);
+            if (!head.grant()) {
+                used.addAndGet(-head.bytes); // 已关闭或已被其他线程放行
+            }
+        }
+    }
+
+    /**
+     * 一次额度占用，放行与关闭互斥，保证额度恰好归还一次
+     */
+    private final class Waiter {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CLOSED = 2;
+
+        private final long bytes;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile MonoSink<Void> sink;
+
+        Waiter(long bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean grant() {
+            if (state.compareAndSet(WAITING, GRANTED)) {
+                if (sink != null) {
+                    sink.success();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        boolean isClosed() {
+            return state.get() == CLOSED;
+        }
+
+        /**
+         * 上传结束、失败或取消时调用，已放行则归还额度，仍在排队则退出队列
+         */
+        void close() {
+            if (state.getAndSet(CLOSED) == GRANTED) {
+                release(bytes);
+            } else {
+                waiters.remove(this);
+            }
+        }
+    }
+}
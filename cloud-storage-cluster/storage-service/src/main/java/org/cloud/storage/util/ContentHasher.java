@@ -0,0 +1,140 @@
+package org.cloud.storage.util;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * 流式内容哈希，在数据流经时增量计算 MD5 和 CRC32C，不额外遍历数据 <br/>
+ * 非线程安全，调用方负责串行调用 update
+ */
+public final class ContentHasher {
+    private static final long CRC32C_POLY = 0x82F63B78L; // CRC32C 反射多项式
+
+    private final MessageDigest md5;
+    private final CRC32C crc32c = new CRC32C();
+    private long size;
+
+    public ContentHasher() {
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 algorithm not available", e);
+        }
+    }
+
+    /**
+     * 计入一块数据，不改变 DataBuffer 的读指针
+     */
+    public void update(DataBuffer buffer) {
+        try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+            while (it.hasNext()) {
+                ByteBuffer byteBuffer = it.next();
+                size += byteBuffer.remaining();
+                md5.update(byteBuffer.duplicate());
+                crc32c.update(byteBuffer);
+            }
+        }
+    }
+
+    /**
+     * 计入数组中 [offset, offset + length) 区间的数据
+     */
+    public void update(byte[] bytes, int offset, int length) {
+        size += length;
+        md5.update(bytes, offset, length);
+        crc32c.update(bytes, offset, length);
+    }
+
+    /**
+     * 已计入的字节数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 结束计算并返回 MD5 的十六进制字符串，之后不能再调用 update
+     */
+    public String md5Hex() {
+        return HexFormat.of().formatHex(md5.digest());
+    }
+
+    public long crc32c() {
+        return crc32c.getValue();
+    }
+
+    public static String crc32cHex(long crc) {
+        return String.format("%08x", crc);
+    }
+
+    /**
+     * 合并两段连续数据的 CRC32C，无需重新读取数据（参考 zlib crc32_combine）
+     * @param crc1 前一段数据的 CRC32C
+     * @param crc2 后一段数据的 CRC32C
+     * @param length2 后一段数据的字节数
+     * @return 两段数据拼接后的 CRC32C
+     */
+    public static long combineCrc32c(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+
+        long[] even = new long[32]; // 偶数次幂的零比特算子
+        long[] odd = new long[32];  // 奇数次幂的零比特算子
+
+        // 一个零比特的算子
+        odd[0] = CRC32C_POLY;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        gf2MatrixSquare(even, odd); // 两个零比特
+        gf2MatrixSquare(odd, even); // 四个零比特
+
+        // 每次平方得到下一个 2 的幂个零字节的算子，按 length2 的二进制位作用到 crc1
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        int i = 0;
+        while (vector != 0) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+            vector >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+}
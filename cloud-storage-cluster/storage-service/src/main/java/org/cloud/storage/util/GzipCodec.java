@@ -0,0 +1,130 @@
+package org.cloud.storage.util;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 存储端 gzip 编码，上传时流式压缩，下载时解压或原样透传（Content-Encoding: gzip）
+ */
+public final class GzipCodec {
+    public static final String ENCODING = "gzip";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private GzipCodec() {
+    }
+
+    /**
+     * 流式压缩数据流，每个输入块压缩后立即释放，输出块大小取决于压缩器的缓冲
+     * @param content 原始数据流
+     * @param level 压缩级别 1-9
+     * @return gzip 格式的数据流
+     */
+    public static Flux<DataBuffer> compress(Flux<DataBuffer> content, int level) {
+        return Flux.defer(() -> {
+            Compressor compressor = new Compressor(level);
+
+            return content
+                    .concatMap(buffer -> {
+                        try {
+                            return Mono.justOrEmpty(compressor.write(buffer));
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    }, 1)
+                    .concatWith(Mono.fromSupplier(compressor::finish))
+                    .doFinally(signal -> compressor.close());
+        });
+    }
+
+    /**
+     * 压缩后大小的上限，不可压缩的数据经 gzip 编码后略大于原始大小 <br/>
+     * 按 zlib 的 deflateBound 估算，再加上 gzip 头部和尾部
+     * @param size 原始大小
+     * @return 压缩后的最大字节数
+     */
+    public static long maxCompressedSize(long size) {
+        return size + (size >> 12) + (size >> 14) + (size >> 25) + 32;
+    }
+
+    /**
+     * 包装为解压输入流
+     */
+    public static InputStream decompress(InputStream compressed) throws IOException {
+        return new GZIPInputStream(compressed, BUFFER_SIZE);
+    }
+
+    /**
+     * 由 concatMap 串行调用，close 可能在取消时由其他线程调用，因此同步
+     */
+    private static final class Compressor {
+        private final ByteArrayOutputStream sink = new ByteArrayOutputStream(BUFFER_SIZE);
+        private final GZIPOutputStream gzip;
+        private boolean closed;
+
+        Compressor(int level) {
+            try {
+                this.gzip = new GZIPOutputStream(sink, BUFFER_SIZE) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized DataBuffer write(DataBuffer buffer) {
+            try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+                while (it.hasNext()) {
+                    ByteBuffer byteBuffer = it.next();
+                    byte[] bytes = new byte[byteBuffer.remaining()];
+                    byteBuffer.get(bytes);
+                    gzip.write(bytes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return drain();
+        }
+
+        synchronized DataBuffer finish() {
+            try {
+                gzip.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            DataBuffer tail = drain();
+            return tail != null ? tail : DefaultDataBufferFactory.sharedInstance.allocateBuffer(0);
+        }
+
+        synchronized void close() {
+            if (!closed) {
+                closed = true;
+                try {
+                    gzip.close(); // 释放 Deflater 的本地内存
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private DataBuffer drain() {
+            if (sink.size() == 0) {
+                return null;
+            }
+            DataBuffer out = DefaultDataBufferFactory.sharedInstance.wrap(sink.toByteArray());
+            sink.reset();
+            return out;
+        }
+    }
+}
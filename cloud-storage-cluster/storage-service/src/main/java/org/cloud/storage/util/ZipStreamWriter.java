@@ -0,0 +1,483 @@
+package org.cloud.storage.util;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 流式 ZIP 编码 <br/>
+ * 边读取文件内容边输出 ZIP 数据，不落盘也不需要预先知道压缩结果：
+ * 压缩条目的本地文件头不含 CRC 和大小（通用标志位 3），条目之后写数据描述符，结尾写中央目录；
+ * 存储条目没有结束标记，流式解压工具无法配合数据描述符读取，因此只有整体预读的小条目使用 STORED 并在本地文件头写入 CRC 和大小，
+ * 更大的存储条目改用 deflate 0 级（不压缩的 deflate 块）；
+ * 条目或偏移超过 4GB、条目数超过 65535 时使用 Zip64 扩展 <br/>
+ * 本地文件头、条目内容和数据描述符都与条目在 ZIP 中的偏移无关，因此后续条目可以提前并行读取和压缩，
+ * 只有偏移在按顺序输出时记录；
+ * 超过预读上限的大条目要等前一个条目写完、轮到它输出时才打开，避免提前建立的对象读取连接长时间空闲而超时
+ */
+public final class ZipStreamWriter {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP16_LIMIT = 0xFFFF;
+    private static final int DEFLATE_BUFFER_SIZE = 64 * 1024;
+    private static final int ENTRY_PREFETCH = 4; // 每个条目排队等待写出的输出块数
+
+    private ZipStreamWriter() {
+    }
+
+    /**
+     * ZIP 条目
+     * @param name 条目名称，重名时自动追加序号
+     * @param size 原始大小，用于预先判断是否需要 Zip64 以及能否整体预读
+     * @param modifiedAt 修改时间（毫秒）
+     * @param stored 是否不压缩，已压缩格式的文件再压缩收益很小
+     * @param content 条目内容，预读或写到该条目时才订阅
+     */
+    public record Entry(String name, long size, long modifiedAt, boolean stored, Supplier<Flux<DataBuffer>> content) {}
+
+    /**
+     * 写出选项
+     * @param level 压缩条目的 deflate 级别
+     * @param readAheadEntries 同时读取和编码的条目数，包括正在写出的条目
+     * @param readAheadBytes 单个条目预读的字节上限，不超过该大小的条目提前整体读入内存后编码，更大的条目轮到输出时才打开并边读边写
+     * @param encodeScheduler 执行 deflate 和 CRC 计算的调度器，不同条目可在不同线程上并行编码
+     */
+    public record Options(int level, int readAheadEntries, int readAheadBytes, Scheduler encodeScheduler) {}
+
+    /**
+     * 写出所有条目，后续的小条目提前并行读取和编码，输出仍按条目顺序
+     * @param entries 条目列表
+     * @param options 写出选项
+     * @return ZIP 数据流
+     */
+    public static Flux<DataBuffer> write(List<Entry> entries, Options options) {
+        return Flux.defer(() -> {
+            Archive archive = new Archive();
+
+            return Flux.fromIterable(entries)
+                    .map(entry -> archive.prepare(entry, options))
+                    .flatMapSequential(pending -> encodeEntry(pending, options),
+                            Math.max(1, options.readAheadEntries()), ENTRY_PREFETCH)
+                    .map(archive::emit)
+                    .concatWith(Mono.fromSupplier(archive::writeCentralDirectory))
+                    .doOnDiscard(Chunk.class, chunk -> DataBufferUtils.release(chunk.buffer))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * 编码单个条目：本地文件头、内容、数据描述符；与偏移无关，可以在前面的条目写出之前完成
+     */
+    private static Flux<Chunk> encodeEntry(PendingEntry pending, Options options) {
+        Entry entry = pending.entry;
+        CentralRecord record = pending.record;
+
+        if (record.method == METHOD_STORED) {
+            return encodeStoredEntry(entry, record, options);
+        }
+
+        return Flux.defer(() -> {
+            int level = entry.stored() ? Deflater.NO_COMPRESSION : options.level();
+            EntryEncoder encoder = new EntryEncoder(new Deflater(level, true));
+
+            Flux<DataBuffer> content;
+            if (entry.size() <= options.readAheadBytes()) {
+                content = DataBufferUtils.join(entry.content().get(), options.readAheadBytes()).flux(); // 小文件整体预读，不占用连接等待写出
+            } else {
+                content = pending.previousWritten.thenMany(Flux.defer(() -> entry.content().get())); // 大文件轮到输出时才打开
+            }
+
+            return Flux.concat(
+                    Mono.fromSupplier(() -> new Chunk(ChunkType.HEADER, record, wrap(localHeader(record)))),
+                    content
+                            .publishOn(options.encodeScheduler(), ENTRY_PREFETCH)
+                            .concatMap(buffer -> Mono.justOrEmpty(encoder.encode(buffer)), 1)
+                            .concatWith(Mono.fromSupplier(encoder::finish))
+                            .map(buffer -> new Chunk(ChunkType.DATA, record, buffer)),
+                    Mono.fromSupplier(() -> {
+                        record.crc = encoder.crc.getValue();
+                        record.compressedSize = encoder.compressedSize;
+                        record.size = encoder.size;
+                        return new Chunk(ChunkType.DESCRIPTOR, record, wrap(dataDescriptor(record)));
+                    })
+            ).doFinally(signal -> encoder.close());
+        });
+    }
+
+    /**
+     * 编码整体预读的存储条目：读完内容后才能得到 CRC，再输出带 CRC 和大小的本地文件头与内容，不写数据描述符
+     */
+    private static Flux<Chunk> encodeStoredEntry(Entry entry, CentralRecord record, Options options) {
+        return Flux.defer(() -> {
+            EntryEncoder encoder = new EntryEncoder(null);
+
+            return DataBufferUtils.join(entry.content().get(), options.readAheadBytes())
+                    .defaultIfEmpty(DefaultDataBufferFactory.sharedInstance.allocateBuffer(0))
+                    .publishOn(options.encodeScheduler())
+                    .flatMapMany(buffer -> {
+                        DataBuffer data = encoder.encode(buffer);
+                        record.crc = encoder.crc.getValue();
+                        record.compressedSize = encoder.compressedSize;
+                        record.size = encoder.size;
+                        return Flux.just(
+                                new Chunk(ChunkType.HEADER, record, wrap(localHeader(record))),
+                                new Chunk(ChunkType.DATA, record, data)
+                        );
+                    });
+        });
+    }
+
+    private enum ChunkType {
+        HEADER, DATA, DESCRIPTOR
+    }
+
+    /**
+     * 条目编码后的一段输出
+     */
+    private record Chunk(ChunkType type, CentralRecord record, DataBuffer buffer) {}
+
+    /**
+     * @param previousWritten 前一个条目全部写出时完成
+     */
+    private record PendingEntry(Entry entry, CentralRecord record, Mono<Void> previousWritten) {}
+
+    /**
+     * 单个 ZIP 的写出状态，只在按顺序输出时修改
+     */
+    private static final class Archive {
+        private final List<CentralRecord> records = new ArrayList<>();
+        private final Set<String> names = new HashSet<>();
+        private long offset;
+        private Mono<Void> lastWritten = Mono.empty();
+
+        PendingEntry prepare(Entry entry, Options options) {
+            boolean zip64 = entry.size() >= ZIP32_LIMIT - (entry.size() >> 10) - DEFLATE_BUFFER_SIZE; // 预留 deflate 膨胀的余量
+            boolean stored = entry.stored() && entry.size() <= options.readAheadBytes();
+            CentralRecord record = new CentralRecord(
+                    uniqueName(entry.name()).getBytes(StandardCharsets.UTF_8),
+                    stored ? METHOD_STORED : METHOD_DEFLATED,
+                    dosTime(entry.modifiedAt()),
+                    zip64
+            );
+            PendingEntry pending = new PendingEntry(entry, record, lastWritten);
+            lastWritten = record.written.asMono();
+            return pending;
+        }
+
+        /**
+         * 按输出顺序记录条目偏移，统计写出的字节数
+         */
+        DataBuffer emit(Chunk chunk) {
+            switch (chunk.type) {
+                case HEADER -> chunk.record.localHeaderOffset = offset;
+                case DATA -> {
+                    if (chunk.record.method == METHOD_STORED) {
+                        written(chunk.record); // 存储条目只有一个数据块，没有数据描述符
+                    }
+                }
+                case DESCRIPTOR -> written(chunk.record);
+            }
+            offset += chunk.buffer.readableByteCount();
+            return chunk.buffer;
+        }
+
+        /**
+         * 条目全部写出，记入中央目录并放行下一个等待输出的大条目
+         */
+        private void written(CentralRecord record) {
+            records.add(record);
+            record.written.tryEmitEmpty();
+        }
+
+        DataBuffer writeCentralDirectory() {
+            long centralOffset = offset;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (CentralRecord record : records) {
+                out.writeBytes(centralHeader(record));
+            }
+            long centralSize = out.size();
+
+            boolean zip64 = records.size() >= ZIP16_LIMIT || centralOffset >= ZIP32_LIMIT || centralSize >= ZIP32_LIMIT;
+            if (zip64) {
+                long zip64EndOffset = centralOffset + centralSize;
+                ByteBuffer end64 = buffer(56 + 20);
+                end64.putInt(ZIP64_END_SIGNATURE)
+                        .putLong(44) // 记录中此字段之后的长度
+                        .putShort((short) VERSION_ZIP64)
+                        .putShort((short) VERSION_ZIP64)
+                        .putInt(0)
+                        .putInt(0)
+                        .putLong(records.size())
+                        .putLong(records.size())
+                        .putLong(centralSize)
+                        .putLong(centralOffset);
+                end64.putInt(ZIP64_LOCATOR_SIGNATURE)
+                        .putInt(0)
+                        .putLong(zip64EndOffset)
+                        .putInt(1);
+                out.writeBytes(end64.array());
+            }
+
+            ByteBuffer end = buffer(22);
+            end.putInt(END_SIGNATURE)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) Math.min(records.size(), ZIP16_LIMIT))
+                    .putShort((short) Math.min(records.size(), ZIP16_LIMIT))
+                    .putInt((int) Math.min(centralSize, ZIP32_LIMIT))
+                    .putInt((int) Math.min(centralOffset, ZIP32_LIMIT))
+                    .putShort((short) 0);
+            out.writeBytes(end.array());
+
+            offset += out.size();
+            return wrap(out.toByteArray());
+        }
+
+        private String uniqueName(String name) {
+            String candidate = name;
+            int dot = name.lastIndexOf('.');
+            String base = dot > 0 ? name.substring(0, dot) : name;
+            String ext = dot > 0 ? name.substring(dot) : "";
+            for (int i = 1; !names.add(candidate); i++) {
+                candidate = base + " (" + i + ")" + ext;
+            }
+            return candidate;
+        }
+    }
+
+    /**
+     * 单个条目的内容编码，计算原始内容的 CRC32 和压缩前后的大小；deflater 为空时原样透传
+     */
+    private static final class EntryEncoder {
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] chunk;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private long size;
+        private long compressedSize;
+
+        EntryEncoder(Deflater deflater) {
+            this.deflater = deflater;
+            this.chunk = deflater != null ? new byte[DEFLATE_BUFFER_SIZE] : null;
+        }
+
+        /**
+         * 存储条目原样透传输入数据，压缩条目消费输入并返回已产生的压缩数据
+         */
+        DataBuffer encode(DataBuffer buffer) {
+            try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+                while (it.hasNext()) {
+                    ByteBuffer byteBuffer = it.next();
+                    crc.update(byteBuffer.duplicate());
+                    if (deflater != null) {
+                        deflater.setInput(byteBuffer);
+                        while (!deflater.needsInput()) {
+                            drain(Deflater.NO_FLUSH);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                DataBufferUtils.release(buffer);
+                throw e;
+            }
+
+            int length = buffer.readableByteCount();
+            size += length;
+            if (deflater == null) {
+                compressedSize += length;
+                return buffer;
+            }
+
+            DataBufferUtils.release(buffer);
+            return takeOutput();
+        }
+
+        DataBuffer finish() {
+            if (deflater == null) {
+                return null;
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            return takeOutput();
+        }
+
+        void close() {
+            if (deflater != null) {
+                deflater.end(); // 释放 Deflater 的本地内存
+            }
+        }
+
+        private void drain(int flush) {
+            int count = deflater.deflate(chunk, 0, chunk.length, flush);
+            output.write(chunk, 0, count);
+        }
+
+        private DataBuffer takeOutput() {
+            if (output.size() == 0) {
+                return null;
+            }
+            byte[] bytes = output.toByteArray();
+            output.reset();
+            compressedSize += bytes.length;
+            return wrap(bytes);
+        }
+    }
+
+    /**
+     * 中央目录中的条目记录，CRC 和大小在条目编码完成后填入，偏移在写出本地文件头时填入
+     */
+    private static final class CentralRecord {
+        private final byte[] name;
+        private final int method;
+        private final int dosTime;
+        private final boolean zip64;
+        private final Sinks.Empty<Void> written = Sinks.empty();
+        private long localHeaderOffset;
+        private long crc;
+        private long compressedSize;
+        private long size;
+
+        CentralRecord(byte[] name, int method, int dosTime, boolean zip64) {
+            this.name = name;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.zip64 = zip64;
+        }
+    }
+
+    private static byte[] localHeader(CentralRecord record) {
+        boolean descriptor = record.method == METHOD_DEFLATED; // 存储条目的 CRC 和大小在写本地文件头时已知
+        int extraLength = record.zip64 ? 20 : 0;
+        ByteBuffer header = buffer(30 + record.name.length + extraLength);
+        header.putInt(LOCAL_HEADER_SIGNATURE)
+                .putShort((short) (record.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT))
+                .putShort((short) flags(record))
+                .putShort((short) record.method)
+                .putInt(record.dosTime)
+                .putInt(descriptor ? 0 : (int) record.crc) // 压缩条目的 CRC 和大小写在数据描述符中
+                .putInt(record.zip64 ? (int) ZIP32_LIMIT : descriptor ? 0 : (int) record.compressedSize)
+                .putInt(record.zip64 ? (int) ZIP32_LIMIT : descriptor ? 0 : (int) record.size)
+                .putShort((short) record.name.length)
+                .putShort((short) extraLength)
+                .put(record.name);
+        if (record.zip64) {
+            header.putShort((short) ZIP64_EXTRA_ID)
+                    .putShort((short) 16)
+                    .putLong(0)
+                    .putLong(0);
+        }
+        return header.array();
+    }
+
+    private static byte[] dataDescriptor(CentralRecord record) {
+        ByteBuffer descriptor = buffer(record.zip64 ? 24 : 16);
+        descriptor.putInt(DATA_DESCRIPTOR_SIGNATURE)
+                .putInt((int) record.crc);
+        if (record.zip64) {
+            descriptor.putLong(record.compressedSize).putLong(record.size);
+        } else {
+            descriptor.putInt((int) record.compressedSize).putInt((int) record.size);
+        }
+        return descriptor.array();
+    }
+
+    private static byte[] centralHeader(CentralRecord record) {
+        boolean sizeOverflow = record.zip64 || record.size >= ZIP32_LIMIT || record.compressedSize >= ZIP32_LIMIT;
+        boolean offsetOverflow = record.localHeaderOffset >= ZIP32_LIMIT;
+        int extraLength = (sizeOverflow || offsetOverflow) ? 4 + (sizeOverflow ? 16 : 0) + (offsetOverflow ? 8 : 0) : 0;
+        int version = extraLength > 0 ? VERSION_ZIP64 : VERSION_DEFAULT;
+
+        ByteBuffer header = buffer(46 + record.name.length + extraLength);
+        header.putInt(CENTRAL_HEADER_SIGNATURE)
+                .putShort((short) version)
+                .putShort((short) version)
+                .putShort((short) flags(record))
+                .putShort((short) record.method)
+                .putInt(record.dosTime)
+                .putInt((int) record.crc)
+                .putInt(sizeOverflow ? (int) ZIP32_LIMIT : (int) record.compressedSize)
+                .putInt(sizeOverflow ? (int) ZIP32_LIMIT : (int) record.size)
+                .putShort((short) record.name.length)
+                .putShort((short) extraLength)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putInt(0)
+                .putInt(offsetOverflow ? (int) ZIP32_LIMIT : (int) record.localHeaderOffset)
+                .put(record.name);
+        if (extraLength > 0) {
+            header.putShort((short) ZIP64_EXTRA_ID)
+                    .putShort((short) (extraLength - 4));
+            if (sizeOverflow) {
+                header.putLong(record.size).putLong(record.compressedSize);
+            }
+            if (offsetOverflow) {
+                header.putLong(record.localHeaderOffset);
+            }
+        }
+        return header.array();
+    }
+
+    private static int flags(CentralRecord record) {
+        return record.method == METHOD_DEFLATED ? FLAG_DATA_DESCRIPTOR | FLAG_UTF8 : FLAG_UTF8;
+    }
+
+    /**
+     * 转换为 MS-DOS 日期时间，早于 1980 年的时间按 1980 年处理
+     */
+    private static int dosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (time.getYear() - 1980) << 25
+                | time.getMonthValue() << 21
+                | time.getDayOfMonth() << 16
+                | time.getHour() << 11
+                | time.getMinute() << 5
+                | time.getSecond() >> 1;
+    }
+
+    private static DataBuffer wrap(byte[] bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+
+    private static ByteBuffer buffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
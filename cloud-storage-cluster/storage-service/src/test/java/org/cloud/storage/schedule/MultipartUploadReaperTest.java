@@ -0,0 +1,100 @@
+package org.cloud.storage.schedule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.ListMultipartUploadsResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.Xml;
+import io.minio.messages.ListMultipartUploadsResult;
+import io.minio.messages.Upload;
+import org.cloud.storage.config.minio.MinioProperties;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MultipartUploadReaperTest {
+    private static final String BUCKET = "default-storage";
+
+    private MinioAsyncClient minioAsyncClient;
+    private MultipartUploadReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        minioAsyncClient = mock(MinioAsyncClient.class);
+        reaper = new MultipartUploadReaper(new FileTransferConfig(), new MinioProperties(),
+                minioAsyncClient, mock(RedissonClient.class), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void listsAllPagesWithEmptyPrefixUntilNotTruncated() throws Exception {
+        stubPage(null, null, page(true, "a/1", "u2", upload("a/1", "u1"), upload("a/1", "u2")));
+        stubPage("a/1", "u2", page(true, "b/2", "u3", upload("b/2", "u3")));
+        stubPage("b/2", "u3", page(false, null, null, upload("c/3", "u4")));
+
+        List<String> uploadIds = reaper.listIncompleteUploads(BUCKET).map(Upload::uploadId).collectList().block();
+
+        assertThat(uploadIds).containsExactly("u1", "u2", "u3", "u4");
+        verify(minioAsyncClient, never()).listMultipartUploadsAsync(
+                any(), any(), any(), any(), any(), any(), isNull(), any(), any(), any());
+    }
+
+    @Test
+    void continuesFromLastUploadWhenNextMarkersAreMissing() throws Exception {
+        stubPage(null, null, page(true, null, null, upload("a/1", "u1"), upload("b/2", "u2")));
+        stubPage("b/2", "u2", page(false, null, null, upload("c/3", "u3")));
+
+        List<String> uploadIds = reaper.listIncompleteUploads(BUCKET).map(Upload::uploadId).collectList().block();
+
+        assertThat(uploadIds).containsExactly("u1", "u2", "u3");
+    }
+
+    @Test
+    void stopsOnEmptyTruncatedPage() throws Exception {
+        stubPage(null, null, page(true, null, null));
+
+        assertThat(reaper.listIncompleteUploads(BUCKET).collectList().block()).isEmpty();
+    }
+
+    private void stubPage(String keyMarker, String uploadIdMarker, ListMultipartUploadsResult result) throws Exception {
+        when(minioAsyncClient.listMultipartUploadsAsync(
+                eq(BUCKET), isNull(), isNull(), isNull(), eq(keyMarker), anyInt(), eq(""), eq(uploadIdMarker), isNull(), isNull()))
+                .thenReturn(CompletableFuture.completedFuture(new ListMultipartUploadsResponse(null, BUCKET, null, result)));
+    }
+
+    private static ListMultipartUploadsResult page(boolean truncated, String nextKeyMarker, String nextUploadIdMarker, String... uploads) throws Exception {
+        StringBuilder xml = new StringBuilder("<ListMultipartUploadsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Bucket>").append(BUCKET).append("</Bucket>")
+                .append("<KeyMarker></KeyMarker><UploadIdMarker></UploadIdMarker><MaxUploads>1000</MaxUploads>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (nextKeyMarker != null) {
+            xml.append("<NextKeyMarker>").append(nextKeyMarker).append("</NextKeyMarker>");
+        }
+        if (nextUploadIdMarker != null) {
+            xml.append("<NextUploadIdMarker>").append(nextUploadIdMarker).append("</NextUploadIdMarker>");
+        }
+        for (String upload : uploads) {
+            xml.append(upload);
+        }
+        return Xml.unmarshal(ListMultipartUploadsResult.class, xml.append("</ListMultipartUploadsResult>").toString());
+    }
+
+    private static String upload(String key, String uploadId) {
+        return "<Upload><Key>" + key + "</Key><UploadId>" + uploadId + "</UploadId>"
+                + "<Initiator><ID>minio</ID><DisplayName>minio</DisplayName></Initiator>"
+                + "<Owner><ID>minio</ID><DisplayName>minio</DisplayName></Owner>"
+                + "<StorageClass>STANDARD</StorageClass><Initiated>2024-01-01T00:00:00.000Z</Initiated></Upload>";
+    }
+}
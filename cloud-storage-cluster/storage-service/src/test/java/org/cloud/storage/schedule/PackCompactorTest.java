@@ -0,0 +1,178 @@
+package org.cloud.storage.schedule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+import org.cloud.api.dto.FileDTO;
+import org.cloud.api.service.FileSystemRpcService;
+import org.cloud.storage.config.minio.MinioProperties;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.service.impl.PackStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PackCompactorTest {
+    private static final String BUCKET = "default-storage";
+    private static final String PACK_KEY = "user/pack-old" + PackStore.PACK_KEY_SUFFIX;
+    private static final String USER_ID = UUID.randomUUID().toString();
+    private static final long EXPIRED = 1L; // 早于保留期删除
+
+    private MinioClient minioClient;
+    private FileSystemRpcService fileSystemRpcService;
+    private PackCompactor compactor;
+    private final List<String> writtenContents = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FileTransferConfig transferConfig = new FileTransferConfig();
+        FileTransferConfig.PackConfig cfg = transferConfig.getPackConfig();
+        cfg.setEnabled(true);
+        cfg.setMaxLiveRatio(0.5);
+
+        RLock lock = mock(RLock.class);
+        when(lock.tryLock(eq(0L), anyLong(), eq(TimeUnit.MINUTES))).thenReturn(true);
+        when(lock.isHeldByCurrentThread()).thenReturn(true);
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        when(redissonClient.getLock(anyString())).thenReturn(lock);
+
+        minioClient = mock(MinioClient.class);
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            writtenContents.add(new String(args.stream().readAllBytes()));
+            return null;
+        });
+
+        fileSystemRpcService = mock(FileSystemRpcService.class);
+        when(fileSystemRpcService.listReclaimablePacks(eq(BUCKET), anyLong(), anyInt())).thenReturn(List.of(PACK_KEY));
+
+        compactor = new PackCompactor(transferConfig, new MinioProperties(), minioClient, redissonClient, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(compactor, "fileSystemRpcService", fileSystemRpcService);
+    }
+
+    @Test
+    void rewritesLiveRangesAndTranslatesOffsets() throws Exception {
+        stubPack("aa" + "bbbbbb" + "cc",
+                entry(0, 2, null),
+                entry(2, 6, EXPIRED),
+                entry(8, 2, null));
+        when(fileSystemRpcService.relocatePackEntries(eq(BUCKET), eq(PACK_KEY), anyString(), anyMap(), anyLong())).thenReturn(0L);
+
+        compactor.compactPacks();
+
+        assertThat(writtenContents).containsExactly("aacc");
+        assertThat(relocatedOffsets()).containsExactlyInAnyOrderEntriesOf(Map.of(0L, 0L, 8L, 2L));
+        verifyRemoved(PACK_KEY);
+    }
+
+    @Test
+    void packStillReferencedAfterRelocationIsKept() throws Exception {
+        stubPack("aa" + "bbbbbb" + "cc",
+                entry(0, 2, null),
+                entry(2, 6, EXPIRED),
+                entry(8, 2, null));
+        // 迁移期间有新的秒传引用了原打包对象
+        when(fileSystemRpcService.relocatePackEntries(eq(BUCKET), eq(PACK_KEY), anyString(), anyMap(), anyLong())).thenReturn(1L);
+
+        compactor.compactPacks();
+
+        assertThat(writtenContents).containsExactly("aacc");
+        verify(minioClient, never()).removeObject(any(RemoveObjectArgs.class));
+    }
+
+    @Test
+    void packAboveLiveRatioIsNotRewritten() throws Exception {
+        stubPack("aaaa" + "bb" + "cccc",
+                entry(0, 4, null),
+                entry(4, 2, EXPIRED),
+                entry(6, 4, null));
+
+        compactor.compactPacks();
+
+        verify(minioClient, never()).getObject(any(GetObjectArgs.class));
+        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+        verify(minioClient, never()).removeObject(any(RemoveObjectArgs.class));
+        // 只清除过期文件的记录，存活文件仍指向原对象
+        verify(fileSystemRpcService).relocatePackEntries(eq(BUCKET), eq(PACK_KEY), eq(PACK_KEY), eq(Map.of()), anyLong());
+    }
+
+    @Test
+    void rangeSharedWithLiveCopyStaysLive() throws Exception {
+        stubPack("aa" + "bbbbbb" + "dddddddd",
+                entry(0, 2, null),
+                entry(2, 6, EXPIRED), // 原文件已删除
+                entry(2, 6, null), // 秒传的副本共享同一区间
+                entry(8, 8, EXPIRED));
+        when(fileSystemRpcService.relocatePackEntries(eq(BUCKET), eq(PACK_KEY), anyString(), anyMap(), anyLong())).thenReturn(0L);
+
+        compactor.compactPacks();
+
+        assertThat(writtenContents).containsExactly("aabbbbbb");
+        assertThat(relocatedOffsets()).containsExactlyInAnyOrderEntriesOf(Map.of(0L, 0L, 2L, 2L));
+        verifyRemoved(PACK_KEY);
+    }
+
+    private void stubPack(String content, FileDTO... entries) throws Exception {
+        when(fileSystemRpcService.listPackEntries(BUCKET, PACK_KEY)).thenReturn(List.of(entries));
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn((long) content.length());
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> new GetObjectResponse(
+                Headers.of(), BUCKET, null, PACK_KEY, new ByteArrayInputStream(content.getBytes())));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Long> relocatedOffsets() {
+        ArgumentCaptor<Map<Long, Long>> offsets = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<String> newPackKey = ArgumentCaptor.forClass(String.class);
+        verify(fileSystemRpcService).relocatePackEntries(eq(BUCKET), eq(PACK_KEY), newPackKey.capture(), offsets.capture(), anyLong());
+        assertThat(newPackKey.getValue()).isNotEqualTo(PACK_KEY).endsWith(PackStore.PACK_KEY_SUFFIX);
+        return offsets.getValue();
+    }
+
+    private void verifyRemoved(String storageKey) throws Exception {
+        ArgumentCaptor<RemoveObjectArgs> removed = ArgumentCaptor.forClass(RemoveObjectArgs.class);
+        verify(minioClient).removeObject(removed.capture());
+        assertThat(removed.getValue().object()).isEqualTo(storageKey);
+    }
+
+    private static FileDTO entry(long offset, long size, Long deletedAt) {
+        return FileDTO.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(USER_ID)
+                .bucket(BUCKET)
+                .storageKey(PACK_KEY)
+                .packOffset(offset)
+                .size(size)
+                .deletedAt(deletedAt)
+                .build();
+    }
+}
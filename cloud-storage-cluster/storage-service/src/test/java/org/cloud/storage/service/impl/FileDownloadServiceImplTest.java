@@ -0,0 +1,162 @@
+package org.cloud.storage.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.cloud.api.dto.FileDTO;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.exception.FileRangeDownloadException;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Range 解析与条件请求判断的边界情况，If-Range 不符时的完整响应
+ */
+class FileDownloadServiceImplTest {
+    private static final long FILE_SIZE = 1000;
+    private static final String ETAG = "\"0123456789abcdef\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @Test
+    void parsesRanges() {
+        assertRange(null, 0, 999, false);
+        assertRange("bytes=0-0", 0, 0, true);
+        assertRange("bytes=0-", 0, 999, true);
+        assertRange("bytes=999-", 999, 999, true);
+        assertRange("bytes=100-199", 100, 199, true);
+        assertRange("bytes=500-5000", 500, 999, true); // 结尾超出文件时截断
+        assertRange("bytes=-1", 999, 999, true);
+        assertRange("bytes=-5000", 0, 999, true); // 后缀长度超过文件时返回整个文件
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        for (String range : List.of("items=0-1", "bytes=100", "bytes=1000-", "bytes=200-100",
+                "bytes=abc-", "bytes=-", "bytes=-0", "bytes=-1-2")) {
+            assertThatThrownBy(() -> FileDownloadServiceImpl.parseRangeHeader(range, FILE_SIZE))
+                    .as(range)
+                    .isInstanceOf(FileRangeDownloadException.class);
+        }
+    }
+
+    @Test
+    void ifRangeUsesStrongEtagComparison() {
+        assertThat(FileDownloadServiceImpl.ifRangeMatches(ETAG, validators())).isTrue();
+        assertThat(FileDownloadServiceImpl.ifRangeMatches("W/" + ETAG, validators())).isFalse();
+        assertThat(FileDownloadServiceImpl.ifRangeMatches("\"other\"", validators())).isFalse();
+    }
+
+    @Test
+    void ifRangeDateMustEqualLastModified() {
+        assertThat(FileDownloadServiceImpl.ifRangeMatches(httpDate(LAST_MODIFIED), validators())).isTrue();
+        assertThat(FileDownloadServiceImpl.ifRangeMatches(httpDate(LAST_MODIFIED + 1000), validators())).isFalse();
+        assertThat(FileDownloadServiceImpl.ifRangeMatches(httpDate(LAST_MODIFIED - 1000), validators())).isFalse();
+        assertThat(FileDownloadServiceImpl.ifRangeMatches("not a date", validators())).isFalse();
+    }
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() {
+        assertThat(notModified(HttpHeaders.IF_NONE_MATCH, ETAG)).isTrue();
+        assertThat(notModified(HttpHeaders.IF_NONE_MATCH, "W/" + ETAG)).isTrue();
+        assertThat(notModified(HttpHeaders.IF_NONE_MATCH, "\"other\", " + ETAG)).isTrue();
+        assertThat(notModified(HttpHeaders.IF_NONE_MATCH, "*")).isTrue();
+        assertThat(notModified(HttpHeaders.IF_NONE_MATCH, "\"other\"")).isFalse();
+    }
+
+    @Test
+    void ifModifiedSinceComparesSeconds() {
+        assertThat(notModified(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED))).isTrue();
+        assertThat(notModified(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED + 60_000))).isTrue();
+        assertThat(notModified(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED - 1000))).isFalse();
+        assertThat(notModified(HttpHeaders.IF_MODIFIED_SINCE, "garbage")).isFalse();
+    }
+
+    @Test
+    void ifNoneMatchTakesPrecedenceOverIfModifiedSince() {
+        HttpHeaders request = new HttpHeaders();
+        request.set(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        request.set(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED));
+
+        assertThat(FileDownloadServiceImpl.isNotModified(request, validators())).isFalse();
+        assertThat(FileDownloadServiceImpl.isNotModified(new HttpHeaders(), validators())).isFalse();
+    }
+
+    @Test
+    void ifRangeMismatchSendsWholeFileBeyondChunkLimit() {
+        FileTransferConfig transferConfig = new FileTransferConfig();
+        long size = transferConfig.getDownloadConfig().getMaxChunkSizeBytes() * 2;
+        FileDTO file = FileDTO.builder()
+                .id(UUID.randomUUID().toString())
+                .bucket("bucket")
+                .storageKey("object")
+                .name("video.mp4")
+                .mimeType("video/mp4")
+                .size(size)
+                .md5("0123456789abcdef")
+                .createdAt(LAST_MODIFIED)
+                .build();
+
+        FileMetadataCache fileMetadataCache = mock(FileMetadataCache.class);
+        when(fileMetadataCache.getFile(any(), any())).thenReturn(Mono.just(file));
+        ObjectDiskCache objectDiskCache = mock(ObjectDiskCache.class);
+        when(objectDiskCache.cacheable(file)).thenReturn(true);
+        when(objectDiskCache.lookup(file, size, true)).thenReturn(new ObjectDiskCache.CachedObject(Path.of("cached.obj"), size, 0));
+        BandwidthLimiter bandwidthLimiter = mock(BandwidthLimiter.class);
+        when(bandwidthLimiter.throttle(any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        DownloadRedirectPolicy redirectPolicy = mock(DownloadRedirectPolicy.class);
+        FileDownloadServiceImpl service = new FileDownloadServiceImpl(transferConfig, null, null, null,
+                mock(TempFileCache.class), bandwidthLimiter, redirectPolicy, mock(ObjectStreamReader.class),
+                objectDiskCache, new ObjectReadCoalescer(transferConfig, mock(ObjectStreamReader.class), new SimpleMeterRegistry()),
+                fileMetadataCache);
+
+        HttpHeaders request = new HttpHeaders();
+        request.set(HttpHeaders.IF_RANGE, "\"other\"");
+        ResponseEntity<?> response = service.downloadPart(UUID.randomUUID(), UUID.randomUUID(), "bytes=100-", request).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(size);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getBody()).isInstanceOf(Flux.class).isNotInstanceOf(Resource.class); // 文件资源会被框架按请求的 Range 发送
+        verifyNoInteractions(redirectPolicy);
+    }
+
+    private static void assertRange(String header, long start, long end, boolean partial) {
+        FileDownloadServiceImpl.ByteRange range = FileDownloadServiceImpl.parseRangeHeader(header, FILE_SIZE);
+        assertThat(range).as(header).isEqualTo(new FileDownloadServiceImpl.ByteRange(start, end, partial));
+    }
+
+    private static boolean notModified(String header, String value) {
+        HttpHeaders request = new HttpHeaders();
+        request.set(header, value);
+        return FileDownloadServiceImpl.isNotModified(request, validators());
+    }
+
+    private static HttpHeaders validators() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(ETAG);
+        headers.setLastModified(LAST_MODIFIED);
+        return headers;
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,133 @@
+package org.cloud.storage.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.cloud.api.dto.FileDTO;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ObjectDiskCacheTest {
+    @TempDir
+    Path cacheDir;
+
+    private ObjectStreamReader objectStreamReader;
+    private ObjectDiskCache cache;
+
+    @BeforeEach
+    void setUp() {
+        FileTransferConfig transferConfig = new FileTransferConfig();
+        FileTransferConfig.DiskCacheConfig cfg = transferConfig.getDiskCacheConfig();
+        cfg.setEnabled(true);
+        cfg.setDir(cacheDir.toString());
+        cfg.setCapacityBytes(10);
+        cfg.setMinObjectSizeBytes(1);
+        cfg.setMaxObjectSizeBytes(10);
+        cfg.setExpectedObjects(100);
+        cfg.setAdmissionMinFrequency(2);
+        objectStreamReader = mock(ObjectStreamReader.class);
+        cache = new ObjectDiskCache(transferConfig, objectStreamReader, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void oneOffReadIsNotAdmitted() throws InterruptedException {
+        FileDTO file = file("a", "12345678");
+
+        assertThat(cache.lookup(file, file.getSize(), true)).isNull();
+        Thread.sleep(100);
+        assertThat(cache.usedBytes()).isZero();
+        verify(objectStreamReader, never()).read(anyString(), anyString(), anyLong(), anyLong());
+        assertThat(cache.lookup(file, file.getSize(), true)).isNull(); // 第二次访问才准入，此时开始缓存
+    }
+
+    @Test
+    void chunkedDownloadCountsAsOneAccess() throws InterruptedException {
+        FileDTO file = file("a", "12345678");
+
+        assertThat(cache.lookup(file, 4, true)).isNull(); // 从开头读取的分片
+        assertThat(cache.lookup(file, 4, false)).isNull(); // 同一次下载的后续分片
+        Thread.sleep(100);
+        assertThat(cache.lookup(file, 4, false)).isNull();
+        assertThat(cache.usedBytes()).isZero();
+        verify(objectStreamReader, never()).read(anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void admittedObjectIsServedFromDisk() {
+        ObjectDiskCache.CachedObject cached = awaitCached(file("a", "12345678"));
+
+        assertThat(cached.path()).hasContent("12345678");
+        assertThat(cached.size()).isEqualTo(8);
+        assertThat(cache.usedBytes()).isEqualTo(8);
+    }
+
+    @Test
+    void recentlyReadObjectStaysCountedUntilDeleted() {
+        Path first = awaitCached(file("a", "12345678")).path();
+        Path second = awaitCached(file("b", "abcdefgh")).path();
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(first).exists(); // 刚被读取的对象在宽限期内保留
+        assertThat(cache.usedBytes()).isEqualTo(16);
+
+        cache.cleanup();
+        assertThat(first).exists();
+        assertThat(cache.usedBytes()).isEqualTo(16);
+    }
+
+    @Test
+    void externallyDeletedFileIsDropped() throws IOException {
+        FileDTO file = file("a", "12345678");
+        Files.delete(awaitCached(file).path());
+        when(objectStreamReader.read(eq("bucket"), eq("a"), anyLong(), anyLong())).thenReturn(Flux.never()); // 重新缓存不会完成
+
+        assertThat(cache.lookup(file, file.getSize(), true)).isNull();
+        assertThat(cache.usedBytes()).isZero();
+    }
+
+    /**
+     * 反复访问直到对象被准入并写入磁盘
+     */
+    private ObjectDiskCache.CachedObject awaitCached(FileDTO file) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            ObjectDiskCache.CachedObject cached = cache.lookup(file, file.getSize(), true);
+            if (cached != null) {
+                return cached;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new AssertionError("Object was not cached: " + file.getStorageKey());
+    }
+
+    private FileDTO file(String storageKey, String content) {
+        when(objectStreamReader.read(eq("bucket"), eq(storageKey), anyLong(), anyLong()))
+                .thenAnswer(invocation -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes())));
+        return FileDTO.builder()
+                .bucket("bucket")
+                .storageKey(storageKey)
+                .size(content.length())
+                .md5(storageKey + "-md5")
+                .build();
+    }
+}
@@ -0,0 +1,144 @@
+package org.cloud.storage.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ObjectReadCoalescerTest {
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "object";
+    private static final long OFFSET = 100;
+
+    private ObjectStreamReader objectStreamReader;
+    private ObjectReadCoalescer coalescer;
+    private Sinks.Many<DataBuffer> upstream;
+
+    @BeforeEach
+    void setUp() {
+        FileTransferConfig transferConfig = new FileTransferConfig();
+        transferConfig.getDownloadConfig().setCoalesceReplayChunks(2);
+        objectStreamReader = mock(ObjectStreamReader.class);
+        coalescer = new ObjectReadCoalescer(transferConfig, objectStreamReader, new SimpleMeterRegistry());
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+    }
+
+    @Test
+    void singleSubscriberReceivesUpstreamBuffers() {
+        DataBuffer buffer = buffer("abcd");
+        when(objectStreamReader.read(BUCKET, KEY, OFFSET, 4)).thenReturn(Flux.just(buffer));
+
+        assertThat(coalescer.read(BUCKET, KEY, OFFSET, 4).collectList().block())
+                .singleElement()
+                .isSameAs(buffer); // 没有其他订阅者时不复制
+    }
+
+    @Test
+    void concurrentReadsShareOneRequest() {
+        when(objectStreamReader.read(BUCKET, KEY, OFFSET, 4)).thenReturn(upstream.asFlux());
+
+        CompletableFuture<String> first = content(coalescer.read(BUCKET, KEY, OFFSET, 4));
+        CompletableFuture<String> second = content(coalescer.read(BUCKET, KEY, OFFSET, 4));
+        upstream.tryEmitNext(buffer("ab"));
+        upstream.tryEmitNext(buffer("cd"));
+        upstream.tryEmitComplete();
+
+        assertThat(first.join()).isEqualTo("abcd");
+        assertThat(second.join()).isEqualTo("abcd");
+        verify(objectStreamReader, times(1)).read(anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void lateJoinerReadsHeadSeparately() {
+        when(objectStreamReader.read(BUCKET, KEY, OFFSET, 4)).thenReturn(upstream.asFlux());
+        when(objectStreamReader.read(BUCKET, KEY, OFFSET, 2)).thenReturn(Flux.just(buffer("ab")));
+
+        CompletableFuture<String> first = content(coalescer.read(BUCKET, KEY, OFFSET, 4));
+        upstream.tryEmitNext(buffer("ab"));
+        CompletableFuture<String> second = content(coalescer.read(BUCKET, KEY, OFFSET, 4));
+        upstream.tryEmitNext(buffer("cd"));
+        upstream.tryEmitComplete();
+
+        assertThat(first.join()).isEqualTo("abcd");
+        assertThat(second.join()).isEqualTo("abcd");
+    }
+
+    @Test
+    void stalledSubscriberContinuesOnItsOwnRead() {
+        when(objectStreamReader.read(BUCKET, KEY, OFFSET, 6)).thenReturn(upstream.asFlux());
+        when(objectStreamReader.read(BUCKET, KEY, OFFSET + 4, 2)).thenReturn(Flux.just(buffer("ef")));
+
+        StalledSubscriber stalled = new StalledSubscriber();
+        coalescer.read(BUCKET, KEY, OFFSET, 6).subscribe(stalled);
+        CompletableFuture<String> fast = content(coalescer.read(BUCKET, KEY, OFFSET, 6));
+        upstream.tryEmitNext(buffer("ab"));
+        upstream.tryEmitNext(buffer("cd"));
+        upstream.tryEmitNext(buffer("ef"));
+        upstream.tryEmitComplete();
+
+        assertThat(fast.join()).isEqualTo("abcdef"); // 不等待停顿的订阅者
+        stalled.requestUnbounded();
+        assertThat(stalled.result.join()).isEqualTo("abcdef");
+    }
+
+    private static CompletableFuture<String> content(Flux<DataBuffer> buffers) {
+        return buffers.map(ObjectReadCoalescerTest::consume)
+                .reduce(String::concat)
+                .toFuture();
+    }
+
+    private static String consume(DataBuffer buffer) {
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        return text;
+    }
+
+    private static DataBuffer buffer(String text) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 订阅后暂不请求数据的下游
+     */
+    private static final class StalledSubscriber extends BaseSubscriber<DataBuffer> {
+        private final StringBuilder received = new StringBuilder();
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(DataBuffer buffer) {
+            received.append(consume(buffer));
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            result.complete(received.toString());
+        }
+
+        @Override
+        protected void hookOnError(Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
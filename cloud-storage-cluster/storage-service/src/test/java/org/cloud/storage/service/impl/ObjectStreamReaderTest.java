@@ -0,0 +1,97 @@
+package org.cloud.storage.service.impl;
+
+import io.minio.MinioClient;
+import io.netty.buffer.Unpooled;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 用本地 HTTP 服务模拟 MinIO，验证慢速下游不会触发读取超时
+ */
+class ObjectStreamReaderTest {
+    private static final long OBJECT_SIZE = 64L * 1024 * 1024; // 远大于套接字缓冲区，下游暂停时连接会空闲
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private DisposableServer server;
+    private ThreadPoolTaskExecutor taskExecutor;
+    private volatile Duration responseDelay = Duration.ZERO;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> response.status(206)
+                        .header("Content-Length", String.valueOf(OBJECT_SIZE))
+                        .send(Mono.delay(responseDelay).thenMany(Flux.range(0, (int) (OBJECT_SIZE / CHUNK_SIZE))
+                                .map(i -> Unpooled.wrappedBuffer(new byte[CHUNK_SIZE])))))
+                .bindNow();
+
+        taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+        taskExecutor.shutdown();
+    }
+
+    @Test
+    void slowConsumerPausingLongerThanResponseTimeoutCompletes() {
+        ObjectStreamReader reader = newReader();
+        AtomicLong received = new AtomicLong();
+
+        reader.read("bucket", "object", 0, OBJECT_SIZE)
+                .index()
+                .concatMap(indexed -> indexed.getT1() == 0
+                        ? Mono.delay(Duration.ofSeconds(3)).thenReturn(indexed.getT2()) // 暂停时间超过首块超时
+                        : Mono.just(indexed.getT2()), 1)
+                .doOnNext(buffer -> {
+                    received.addAndGet(buffer.readableByteCount());
+                    DataBufferUtils.release(buffer);
+                })
+                .blockLast(Duration.ofSeconds(60));
+
+        assertThat(received.get()).isEqualTo(OBJECT_SIZE);
+    }
+
+    @Test
+    void failsWhenFirstChunkTakesLongerThanResponseTimeout() {
+        responseDelay = Duration.ofSeconds(3);
+        ObjectStreamReader reader = newReader();
+
+        assertThatThrownBy(() -> reader.read("bucket", "object", 0, OBJECT_SIZE)
+                .doOnNext(DataBufferUtils::release)
+                .blockLast(Duration.ofSeconds(60)))
+                .hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    private ObjectStreamReader newReader() {
+        FileTransferConfig transferConfig = new FileTransferConfig();
+        transferConfig.getDownloadConfig().setObjectReadResponseTimeoutSeconds(1);
+
+        MinioClient minioClient = MinioClient.builder()
+                .endpoint("http://127.0.0.1:" + server.port())
+                .region("us-east-1") // 签名时不查询存储桶区域
+                .credentials("minioadmin", "minioadmin")
+                .build();
+        return new ObjectStreamReader(transferConfig, minioClient, taskExecutor, WebClient.builder());
+    }
+}
@@ -0,0 +1,85 @@
+package org.cloud.storage.service.impl;
+
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import org.cloud.storage.config.minio.MinioProperties;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PackStoreTest {
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    private MinioAsyncClient minioAsyncClient;
+    private final List<String> writtenKeys = new ArrayList<>();
+    private final List<String> writtenContents = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        minioAsyncClient = mock(MinioAsyncClient.class);
+        when(minioAsyncClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            synchronized (this) {
+                writtenKeys.add(args.object());
+                writtenContents.add(new String(args.stream().readAllBytes()));
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    @Test
+    void entriesGetConsecutiveOffsetsAndFullPackIsWritten() {
+        PackStore store = store();
+
+        CompletableFuture<PackStore.PackedEntry> first = store.append(USER_ID, "abcd".getBytes()).toFuture();
+        CompletableFuture<PackStore.PackedEntry> second = store.append(USER_ID, "efgh".getBytes()).toFuture();
+        assertThat(first).isNotDone(); // 打包对象写入前不返回
+        CompletableFuture<PackStore.PackedEntry> third = store.append(USER_ID, "xy".getBytes()).toFuture();
+
+        String key = first.join().storageKey();
+        assertThat(key).endsWith(PackStore.PACK_KEY_SUFFIX);
+        assertThat(first.join()).isEqualTo(new PackStore.PackedEntry(key, 0, 4));
+        assertThat(second.join()).isEqualTo(new PackStore.PackedEntry(key, 4, 4));
+        assertThat(third.join()).isEqualTo(new PackStore.PackedEntry(key, 8, 2));
+        assertThat(writtenKeys).containsExactly(key);
+        assertThat(writtenContents).containsExactly("abcdefghxy");
+    }
+
+    @Test
+    void fileThatDoesNotFitSealsCurrentPack() {
+        PackStore store = store();
+
+        CompletableFuture<PackStore.PackedEntry> first = store.append(USER_ID, "abcdefgh".getBytes()).toFuture();
+        // 8 + 5 超过目标大小，先写入当前打包对象，新文件从新对象的开头开始
+        CompletableFuture<PackStore.PackedEntry> second = store.append(USER_ID, "12345".getBytes()).toFuture();
+        assertThat(first.join()).isEqualTo(new PackStore.PackedEntry(first.join().storageKey(), 0, 8));
+        assertThat(second).isNotDone();
+        CompletableFuture<PackStore.PackedEntry> third = store.append(USER_ID, "67890".getBytes()).toFuture();
+
+        String key = second.join().storageKey();
+        assertThat(key).isNotEqualTo(first.join().storageKey());
+        assertThat(second.join()).isEqualTo(new PackStore.PackedEntry(key, 0, 5));
+        assertThat(third.join()).isEqualTo(new PackStore.PackedEntry(key, 5, 5));
+        assertThat(writtenKeys).containsExactly(first.join().storageKey(), key);
+        assertThat(writtenContents).containsExactly("abcdefgh", "1234567890");
+    }
+
+    private PackStore store() {
+        FileTransferConfig transferConfig = new FileTransferConfig();
+        FileTransferConfig.PackConfig cfg = transferConfig.getPackConfig();
+        cfg.setEnabled(true);
+        cfg.setTargetPackSizeBytes(10);
+        cfg.setFlushDelayMillis(60_000); // 只由封存触发写入
+        return new PackStore(transferConfig, new MinioProperties(), minioAsyncClient);
+    }
+}
@@ -0,0 +1,100 @@
+package org.cloud.storage.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.exception.MultipartUploadException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartSpoolTest {
+    @TempDir
+    Path tempDir;
+
+    private UploadMemoryBudget budget;
+
+    @BeforeEach
+    void setUp() {
+        FileTransferConfig transferConfig = new FileTransferConfig();
+        transferConfig.getUploadMemoryConfig().setCapacityBytes(1024);
+        budget = new UploadMemoryBudget(transferConfig, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void smallPartStaysInMemory() throws IOException {
+        try (PartSpool spool = new PartSpool(tempDir, 4096, 512, budget)) {
+            spool.write(buffer("hello "));
+            spool.write(buffer("world"));
+
+            assertThat(spool.isSpilled()).isFalse();
+            assertThat(spool.size()).isEqualTo(11);
+            assertThat(budget.used()).isEqualTo(11);
+            assertThat(new String(spool.toByteArray())).isEqualTo("hello world");
+            assertThat(budget.used()).isEqualTo(11); // 上传期间保留额度
+        }
+
+        assertThat(budget.used()).isZero();
+    }
+
+    @Test
+    void spillsToFileAboveThreshold() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (PartSpool spool = new PartSpool(tempDir, 4096, 100, budget)) {
+            for (int i = 0; i < 10; i++) {
+                String chunk = "chunk-" + i + "-0123456789;";
+                expected.writeBytes(chunk.getBytes());
+                spool.write(buffer(chunk));
+            }
+
+            assertThat(spool.isSpilled()).isTrue();
+            assertThat(budget.used()).isZero(); // 落盘后归还内存额度
+            try (RandomAccessFile file = spool.openFile()) {
+                byte[] bytes = new byte[(int) file.length()];
+                file.readFully(bytes);
+                assertThat(bytes).isEqualTo(expected.toByteArray());
+            }
+        }
+
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void spillsWhenMemoryBudgetIsExhausted() {
+        assertThat(budget.tryAcquire(1000)).isTrue();
+
+        try (PartSpool spool = new PartSpool(tempDir, 4096, 512, budget)) {
+            spool.write(buffer("x".repeat(100)));
+
+            assertThat(spool.isSpilled()).isTrue();
+        }
+        assertThat(budget.used()).isEqualTo(1000);
+    }
+
+    @Test
+    void rejectsPartLargerThanMaximum() {
+        try (PartSpool spool = new PartSpool(tempDir, 10, 512, budget)) {
+            spool.write(buffer("12345"));
+
+            assertThatThrownBy(() -> spool.write(buffer("678901")))
+                    .isInstanceOf(MultipartUploadException.class);
+        }
+        assertThat(budget.used()).isZero();
+    }
+
+    private static DataBuffer buffer(String content) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes());
+    }
+}
@@ -0,0 +1,273 @@
+package org.cloud.storage.service.impl;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.netty.buffer.Unpooled;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 慢速下载的组件级对比：N 个并发的慢速下游分别经输入流（async-read-enabled=false）和 ObjectStreamReader 读取对象 <br/>
+ * 用本地 HTTP 服务模拟 MinIO；下游请求数据的线程模拟 Netty 事件循环，与生产环境一样由它驱动读取。
+ * 记录总吞吐量、阻塞在套接字读取上的线程数、存活线程数和事件循环的调度延迟 <br/>
+ * 耗时较长，只在指定 -Dbenchmark=true 时运行，结果见 jmeter/reports/slow_consumer_download.md
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SlowConsumerDownloadBenchmarkTest {
+    private static final int CONSUMERS = Integer.getInteger("benchmark.consumers", 100);
+    private static final int OBJECT_SIZE = Integer.getInteger("benchmark.objectBytes", 4 * 1024 * 1024);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int EVENT_LOOP_THREADS = LoopResources.DEFAULT_IO_WORKER_COUNT;
+    private static final Duration PROBE_INTERVAL = Duration.ofMillis(10);
+
+    private LoopResources serverLoops;
+    private DisposableServer server;
+    private ThreadPoolTaskExecutor taskExecutor;
+    private Scheduler eventLoop;
+    private volatile Duration upstreamChunkDelay = Duration.ZERO;
+
+    @BeforeEach
+    void setUp() {
+        serverLoops = LoopResources.create("minio-sim", 2, true); // 模拟的 MinIO 不占用被测的事件循环
+        server = HttpServer.create()
+                .runOn(serverLoops)
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> {
+                    int chunks = OBJECT_SIZE / CHUNK_SIZE;
+                    Flux<Long> ticks = upstreamChunkDelay.isZero()
+                            ? Flux.range(0, chunks).map(Integer::longValue)
+                            : Flux.interval(upstreamChunkDelay).take(chunks);
+                    return response.status(206)
+                            .header("Content-Length", String.valueOf(OBJECT_SIZE))
+                            .send(ticks.map(i -> Unpooled.wrappedBuffer(new byte[CHUNK_SIZE])));
+                })
+                .bindNow();
+
+        taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.initialize();
+        eventLoop = Schedulers.newParallel("event-loop", EVENT_LOOP_THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+        serverLoops.dispose();
+        taskExecutor.shutdown();
+        eventLoop.dispose();
+    }
+
+    @Test
+    void slowConsumersFastUpstream() {
+        long consumerRate = Long.getLong("benchmark.consumerBytesPerSecond", 1024 * 1024);
+        run("slow consumers, fast upstream", consumerRate);
+    }
+
+    @Test
+    void slowUpstream() {
+        // 每 64 KB 间隔 50 ms，约 1.25 MB/s，模拟繁忙或跨机房的 MinIO
+        upstreamChunkDelay = Duration.ofMillis(Long.getLong("benchmark.upstreamChunkDelayMillis", 50));
+        long consumerRate = Long.getLong("benchmark.consumerBytesPerSecond", 4 * 1024 * 1024);
+        run("slow upstream", consumerRate);
+    }
+
+    private void run(String scenario, long consumerRate) {
+        MinioClient minioClient = MinioClient.builder()
+                .endpoint("http://127.0.0.1:" + server.port())
+                .region("us-east-1") // 签名时不查询存储桶区域
+                .credentials("minioadmin", "minioadmin")
+                .build();
+        FileTransferConfig transferConfig = new FileTransferConfig();
+        ObjectStreamReader objectStreamReader = new ObjectStreamReader(transferConfig, minioClient, taskExecutor, WebClient.builder());
+        int bufferSize = transferConfig.getDownloadConfig().getStreamBufferSizeBytes();
+
+        Supplier<Flux<DataBuffer>> blocking = () -> DataBufferUtils.readInputStream(
+                () -> minioClient.getObject(GetObjectArgs.builder()
+                        .bucket("bucket")
+                        .object("object")
+                        .offset(0L)
+                        .length((long) OBJECT_SIZE)
+                        .build()),
+                new DefaultDataBufferFactory(),
+                bufferSize);
+        Supplier<Flux<DataBuffer>> async = () -> objectStreamReader.read("bucket", "object", 0, OBJECT_SIZE);
+
+        measure("warm-up", blocking, Math.min(CONSUMERS, 8), 64L * 1024 * 1024);
+        measure("warm-up", async, Math.min(CONSUMERS, 8), 64L * 1024 * 1024);
+
+        Result blockingResult = measure("input stream", blocking, CONSUMERS, consumerRate);
+        Result asyncResult = measure("ObjectStreamReader", async, CONSUMERS, consumerRate);
+
+        System.out.printf("%n[benchmark] %s: consumers=%d, object=%d KB, consumer rate=%d KB/s, upstream chunk delay=%d ms, event loop threads=%d, cpus=%d%n",
+                scenario, CONSUMERS, OBJECT_SIZE / 1024, consumerRate / 1024, upstreamChunkDelay.toMillis(),
+                EVENT_LOOP_THREADS, Runtime.getRuntime().availableProcessors());
+        System.out.println("| path | wall (s) | throughput (MB/s) | mean download (s) | threads in socket read (avg / max) | live threads (max) | event loop lag p99 / max (ms) |");
+        System.out.println("| --- | --- | --- | --- | --- | --- | --- |");
+        System.out.println(blockingResult.row());
+        System.out.println(asyncResult.row());
+
+        assertThat(blockingResult.bytes).isEqualTo((long) CONSUMERS * OBJECT_SIZE);
+        assertThat(asyncResult.bytes).isEqualTo((long) CONSUMERS * OBJECT_SIZE);
+    }
+
+    /**
+     * 同时开始 consumers 个下载，每个下游按 consumerRate 消费，数据块之间的等待在事件循环上调度，
+     * 因此向上游请求下一块的也是事件循环线程
+     */
+    private Result measure(String path, Supplier<Flux<DataBuffer>> source, int consumers, long consumerRate) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        AtomicLong received = new AtomicLong();
+        AtomicLong downloadMillis = new AtomicLong();
+        ThreadSampler sampler = new ThreadSampler(threads);
+        LagProbe probe = new LagProbe(eventLoop);
+
+        long startTime = System.currentTimeMillis();
+        sampler.start();
+        probe.start();
+        Flux.range(0, consumers)
+                .flatMap(i -> Mono.defer(() -> {
+                    long downloadStart = System.currentTimeMillis();
+                    return source.get()
+                            .concatMap(buffer -> {
+                                int n = buffer.readableByteCount();
+                                received.addAndGet(n);
+                                DataBufferUtils.release(buffer);
+                                return Mono.delay(Duration.ofNanos(n * 1_000_000_000L / consumerRate), eventLoop);
+                            }, 1)
+                            .then(Mono.fromRunnable(() -> downloadMillis.addAndGet(System.currentTimeMillis() - downloadStart)));
+                }).subscribeOn(eventLoop), consumers)
+                .blockLast(Duration.ofMinutes(10));
+        long wallMillis = System.currentTimeMillis() - startTime;
+        probe.stop();
+        sampler.stop();
+
+        return new Result(path, wallMillis, received.get(), downloadMillis.get() / consumers,
+                sampler.average(), sampler.max(), threads.getPeakThreadCount(), probe.percentile(0.99), probe.percentile(1.0));
+    }
+
+    private record Result(String path, long wallMillis, long bytes, long meanDownloadMillis,
+                          double avgReading, int maxReading, int peakThreads, long lagP99Millis, long lagMaxMillis) {
+        String row() {
+            return String.format("| %s | %.1f | %.1f | %.1f | %.1f / %d | %d | %d / %d |",
+                    path, wallMillis / 1000.0, bytes / 1024.0 / 1024 / (wallMillis / 1000.0), meanDownloadMillis / 1000.0,
+                    avgReading, maxReading, peakThreads, lagP99Millis, lagMaxMillis);
+        }
+    }
+
+    /**
+     * 每 50 ms 统计一次阻塞在套接字读取上的线程
+     */
+    private static final class ThreadSampler {
+        private final ThreadMXBean threads;
+        private final ConcurrentLinkedQueue<Integer> samples = new ConcurrentLinkedQueue<>();
+        private volatile boolean running;
+        private Thread thread;
+
+        private ThreadSampler(ThreadMXBean threads) {
+            this.threads = threads;
+        }
+
+        void start() {
+            running = true;
+            thread = new Thread(() -> {
+                while (running) {
+                    samples.add((int) Arrays.stream(threads.dumpAllThreads(false, false, 8))
+                            .filter(ThreadSampler::inSocketRead)
+                            .count());
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "thread-sampler");
+            thread.start();
+        }
+
+        void stop() {
+            running = false;
+            thread.interrupt();
+        }
+
+        double average() {
+            return samples.stream().mapToInt(Integer::intValue).average().orElse(0);
+        }
+
+        int max() {
+            return samples.stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+
+        private static boolean inSocketRead(ThreadInfo info) {
+            return Arrays.stream(info.getStackTrace()).anyMatch(frame ->
+                    frame.getClassName().equals("sun.nio.ch.NioSocketImpl") && frame.getMethodName().equals("read"));
+        }
+    }
+
+    /**
+     * 周期性地在事件循环上调度空任务，记录实际执行时间比预期晚了多少
+     */
+    private static final class LagProbe {
+        private final Scheduler eventLoop;
+        private final List<Long> lags = new CopyOnWriteArrayList<>();
+        private final AtomicInteger generation = new AtomicInteger();
+
+        private LagProbe(Scheduler eventLoop) {
+            this.eventLoop = eventLoop;
+        }
+
+        void start() {
+            int current = generation.incrementAndGet();
+            schedule(current);
+        }
+
+        void stop() {
+            generation.incrementAndGet();
+        }
+
+        private void schedule(int current) {
+            long expected = System.nanoTime() + PROBE_INTERVAL.toNanos();
+            eventLoop.schedule(() -> {
+                lags.add((System.nanoTime() - expected) / 1_000_000);
+                if (generation.get() == current) {
+                    schedule(current);
+                }
+            }, PROBE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        long percentile(double p) {
+            long[] sorted = lags.stream().mapToLong(Long::longValue).sorted().toArray();
+            return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+        }
+    }
+}
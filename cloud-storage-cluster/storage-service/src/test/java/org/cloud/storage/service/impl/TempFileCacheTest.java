@@ -0,0 +1,129 @@
+package org.cloud.storage.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TempFileCacheTest {
+    @TempDir
+    Path cacheDir;
+
+    private FileTransferConfig transferConfig;
+    private TempFileCache cache;
+
+    @BeforeEach
+    void setUp() {
+        transferConfig = new FileTransferConfig();
+        transferConfig.getDownloadConfig().setZipCacheDir(cacheDir.toString());
+        transferConfig.getDownloadConfig().setZipCacheCapacityBytes(10);
+        cache = new TempFileCache(transferConfig, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void unusableCacheDirFailsFast() throws IOException {
+        Path file = Files.writeString(cacheDir.resolve("not-a-dir"), "x");
+        transferConfig.getDownloadConfig().setZipCacheDir(file.resolve("zip").toString());
+
+        assertThatThrownBy(() -> new TempFileCache(transferConfig, new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void missWithoutFillIsEmpty() {
+        assertThat(cache.getOrAwaitFill("a").blockOptional()).isEmpty();
+    }
+
+    @Test
+    void concurrentRequestWaitsForFill() throws IOException {
+        TempFileCache.ArchiveFill fill = cache.beginFill("a");
+        assertThat(fill).isNotNull();
+        assertThat(cache.beginFill("a")).isNull(); // 同一归档只写入一次
+
+        CompletableFuture<TempFileCache.CachedArchive> waiter = cache.getOrAwaitFill("a").toFuture();
+        fill.write(DefaultDataBufferFactory.sharedInstance.wrap("hello ".getBytes())).block();
+        fill.write(DefaultDataBufferFactory.sharedInstance.wrap("zip".getBytes())).block();
+        assertThat(waiter).isNotDone();
+
+        fill.complete().block();
+
+        TempFileCache.CachedArchive archive = waiter.join();
+        assertThat(archive.size()).isEqualTo(9);
+        assertThat(Files.readString(archive.path())).isEqualTo("hello zip");
+        assertThat(cache.getOrAwaitFill("a").block(Duration.ofSeconds(1))).isNotNull();
+    }
+
+    @Test
+    void abortedFillReleasesWaitersAndKey() {
+        TempFileCache.ArchiveFill fill = cache.beginFill("a");
+        CompletableFuture<TempFileCache.CachedArchive> waiter = cache.getOrAwaitFill("a").toFuture();
+
+        fill.write(DefaultDataBufferFactory.sharedInstance.wrap("partial".getBytes())).block();
+        fill.abort();
+
+        assertThat(waiter.join()).isNull(); // 等待的请求自行生成
+        TempFileCache.ArchiveFill retry = cache.beginFill("a");
+        assertThat(retry).isNotNull();
+        retry.abort();
+    }
+
+    @Test
+    void recentlyReadArchiveStaysCountedUntilDeleted() {
+        Path first = fill("a", "12345678").path();
+        fill("b", "abcdefgh");
+
+        assertThat(cache.getOrAwaitFill("a").blockOptional()).isEmpty();
+        assertThat(first).exists(); // 刚被读取的归档在宽限期内保留
+        assertThat(cache.usedBytes()).isEqualTo(16);
+
+        Path third = fill("c", "ABCDEFGH").path(); // 等待删除的文件不会导致继续淘汰未过期的归档
+        assertThat(cache.getOrAwaitFill("b").blockOptional()).isEmpty();
+        assertThat(cache.getOrAwaitFill("c").blockOptional()).get().extracting(TempFileCache.CachedArchive::path).isEqualTo(third);
+        assertThat(cache.usedBytes()).isEqualTo(24);
+    }
+
+    @Test
+    void idleArchiveIsDeletedWhenEvicted() throws IOException {
+        Path idle = cacheDir.resolve("idle.1.zip");
+        Files.writeString(idle, "12345678");
+        Files.setLastModifiedTime(idle, FileTime.from(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1), TimeUnit.MILLISECONDS));
+        cache = new TempFileCache(transferConfig, new SimpleMeterRegistry());
+        assertThat(cache.usedBytes()).isEqualTo(8);
+
+        fill("b", "abcdefgh");
+
+        assertThat(idle).doesNotExist();
+        assertThat(cache.usedBytes()).isEqualTo(8);
+    }
+
+    @Test
+    void rebuiltArchiveDoesNotReuseEvictedFile() {
+        Path first = fill("a", "1234").path();
+        Path second = fill("a", "5678").path();
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(cache.usedBytes()).isEqualTo(8); // 旧文件在宽限期内仍占用空间
+        cache.cleanup();
+        assertThat(second).hasContent("5678");
+    }
+
+    private TempFileCache.CachedArchive fill(String key, String content) {
+        TempFileCache.ArchiveFill fill = cache.beginFill(key);
+        fill.write(DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes())).block();
+        fill.complete().block();
+        return cache.getOrAwaitFill(key).block();
+    }
+}
@@ -0,0 +1,79 @@
+package org.cloud.storage.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.cloud.storage.config.transfer.FileTransferConfig;
+import org.cloud.storage.exception.UploadOverloadedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadMemoryBudgetTest {
+    private UploadMemoryBudget budget;
+
+    @BeforeEach
+    void setUp() {
+        FileTransferConfig transferConfig = new FileTransferConfig();
+        transferConfig.getUploadMemoryConfig().setCapacityBytes(100);
+        transferConfig.getUploadMemoryConfig().setMaxWaitMillis(500);
+        budget = new UploadMemoryBudget(transferConfig, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void tryAcquireRespectsCapacity() {
+        assertThat(budget.tryAcquire(60)).isTrue();
+        assertThat(budget.tryAcquire(50)).isFalse();
+        assertThat(budget.tryAcquire(40)).isTrue();
+
+        budget.release(100);
+        assertThat(budget.used()).isZero();
+    }
+
+    @Test
+    void reserveReleasesAfterWork() {
+        StepVerifier.create(budget.reserve(80, () -> Mono.fromSupplier(budget::used)))
+                .expectNext(80L)
+                .verifyComplete();
+
+        assertThat(budget.used()).isZero();
+    }
+
+    @Test
+    void waiterIsAdmittedWhenBudgetIsReleased() {
+        Sinks.Empty<Void> firstDone = Sinks.empty();
+        budget.reserve(70, firstDone::asMono).subscribe();
+        assertThat(budget.used()).isEqualTo(70);
+
+        StepVerifier.create(budget.reserve(50, () -> Mono.just("admitted")))
+                .then(() -> assertThat(budget.tryAcquire(10)).isFalse()) // 有上传排队时不插队
+                .then(firstDone::tryEmitEmpty)
+                .expectNext("admitted")
+                .verifyComplete();
+
+        assertThat(budget.used()).isZero();
+    }
+
+    @Test
+    void waiterTimesOutWhenBudgetStaysExhausted() {
+        assertThat(budget.tryAcquire(100)).isTrue();
+
+        StepVerifier.create(budget.reserve(10, () -> Mono.just("never")))
+                .expectError(UploadOverloadedException.class)
+                .verify(Duration.ofSeconds(5));
+
+        budget.release(100);
+        assertThat(budget.used()).isZero();
+    }
+
+    @Test
+    void requestLargerThanCapacityFailsImmediately() {
+        StepVerifier.create(budget.reserve(101, () -> Mono.just("never")))
+                .expectError(UploadOverloadedException.class)
+                .verify(Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,62 @@
+package org.cloud.storage.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentHasherTest {
+    @Test
+    void combinedPartChecksumsMatchWholeStream() {
+        Random random = new Random(3);
+        byte[] content = new byte[5 * 1024 * 1024 + 123];
+        random.nextBytes(content);
+        int[] partSizes = {1024 * 1024, 3 * 1024 * 1024, 1, 1024 * 1024 + 122};
+
+        long combined = 0;
+        int offset = 0;
+        for (int partSize : partSizes) {
+            long partCrc = crc32c(content, offset, partSize);
+            combined = offset == 0 ? partCrc : ContentHasher.combineCrc32c(combined, partCrc, partSize);
+            offset += partSize;
+        }
+
+        assertThat(offset).isEqualTo(content.length);
+        assertThat(combined).isEqualTo(crc32c(content, 0, content.length));
+    }
+
+    @Test
+    void combiningEmptyPartKeepsChecksum() {
+        byte[] content = "abc".getBytes();
+        long crc = crc32c(content, 0, content.length);
+
+        assertThat(ContentHasher.combineCrc32c(crc, crc32c(new byte[0], 0, 0), 0)).isEqualTo(crc);
+    }
+
+    @Test
+    void hashesMatchJdkDigests() throws Exception {
+        byte[] content = new byte[100_000];
+        new Random(5).nextBytes(content);
+
+        ContentHasher hasher = new ContentHasher();
+        hasher.update(DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(content, 0, 40_000)));
+        hasher.update(content, 40_000, 60_000);
+
+        assertThat(hasher.size()).isEqualTo(content.length);
+        assertThat(hasher.crc32c()).isEqualTo(crc32c(content, 0, content.length));
+        assertThat(hasher.md5Hex()).isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content)));
+        assertThat(ContentHasher.crc32cHex(0xABL)).isEqualTo("000000ab");
+    }
+
+    private static long crc32c(byte[] content, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(content, offset, length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,54 @@
+package org.cloud.storage.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrequencySketchTest {
+    @Test
+    void countsAccessesUpToMaximum() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+
+        assertThat(sketch.frequency("hot")).isZero();
+        for (int i = 1; i <= 20; i++) {
+            sketch.increment("hot");
+            assertThat(sketch.frequency("hot")).isEqualTo(Math.min(i, 15));
+        }
+    }
+
+    @Test
+    void frequentKeysRankAboveRareKeys() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("hot");
+        }
+        for (int i = 0; i < 500; i++) {
+            sketch.increment("cold-" + i);
+        }
+
+        assertThat(sketch.frequency("hot")).isGreaterThanOrEqualTo(10);
+        int overestimated = 0;
+        for (int i = 0; i < 500; i++) {
+            if (sketch.frequency("cold-" + i) >= 10) {
+                overestimated++;
+            }
+        }
+        assertThat(overestimated).isZero();
+    }
+
+    @Test
+    void countsAreHalvedAfterSampleSize() {
+        FrequencySketch sketch = new FrequencySketch(16); // 每行 16 个计数器，采样大小 160
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("hot");
+        }
+
+        int additions = 0;
+        while (sketch.frequency("hot") == 15 && additions < 1000) {
+            sketch.increment(additions++);
+        }
+
+        assertThat(additions).isLessThanOrEqualTo(160);
+        assertThat(sketch.frequency("hot")).isEqualTo(7);
+    }
+}
@@ -0,0 +1,87 @@
+package org.cloud.storage.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GzipCodecTest {
+    @Test
+    void compressedStreamDecompressesWithJdkReader() throws IOException {
+        byte[] text = "{\"id\":1,\"name\":\"cloud storage\"}\n".repeat(50_000).getBytes();
+
+        byte[] compressed = join(GzipCodec.compress(chunks(text, 16 * 1024), 6));
+
+        assertThat(compressed.length).isLessThan(text.length / 10);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(in.readAllBytes()).isEqualTo(text);
+        }
+    }
+
+    @Test
+    void decompressReadsCompressedStream() throws IOException {
+        byte[] random = new byte[300 * 1024];
+        new Random(7).nextBytes(random);
+
+        byte[] compressed = join(GzipCodec.compress(chunks(random, 8 * 1024), 1));
+
+        try (InputStream in = GzipCodec.decompress(new ByteArrayInputStream(compressed))) {
+            assertThat(in.readAllBytes()).isEqualTo(random);
+        }
+    }
+
+    @Test
+    void emptyContentProducesValidGzip() throws IOException {
+        byte[] compressed = join(GzipCodec.compress(chunks(new byte[0], 1024), 6));
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(in.readAllBytes()).isEmpty();
+        }
+    }
+
+    @Test
+    void incompressibleContentStaysWithinBound() {
+        Random random = new Random(11);
+        for (int size : new int[]{0, 1, 100, 16 * 1024, 1024 * 1024}) {
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+
+            byte[] compressed = join(GzipCodec.compress(chunks(content, 4096), 9));
+
+            assertThat((long) compressed.length).as("size=%d", size).isLessThanOrEqualTo(GzipCodec.maxCompressedSize(size));
+        }
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] content, int chunkSize) {
+        return Flux.range(0, (content.length + chunkSize - 1) / chunkSize)
+                .map(i -> {
+                    int from = i * chunkSize;
+                    int to = Math.min(content.length, from + chunkSize);
+                    byte[] chunk = new byte[to - from];
+                    System.arraycopy(content, from, chunk, 0, chunk.length);
+                    return DefaultDataBufferFactory.sharedInstance.wrap(chunk);
+                });
+    }
+
+    private static byte[] join(Flux<DataBuffer> content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        content.doOnNext(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    out.writeBytes(bytes);
+                    DataBufferUtils.release(buffer);
+                })
+                .blockLast();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,214 @@
+package org.cloud.storage.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ZipStreamWriterTest {
+    private static final int READ_AHEAD_BYTES = 64 * 1024;
+    private static final long MODIFIED_AT = 1_700_000_000_000L;
+
+    @Test
+    void streamReaderReadsEveryEntry() throws IOException {
+        Map<String, byte[]> files = sampleFiles();
+
+        byte[] zip = write(files, 4);
+
+        Map<String, byte[]> read = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                read.put(entry.getName(), in.readAllBytes());
+            }
+        }
+
+        assertThat(read.keySet()).containsExactlyElementsOf(files.keySet());
+        files.forEach((name, content) -> assertThat(read.get(name)).as(name).isEqualTo(content));
+    }
+
+    @Test
+    void centralDirectoryMatchesEntries() throws IOException {
+        Map<String, byte[]> files = sampleFiles();
+        Path path = Files.createTempFile("zip-stream-writer", ".zip");
+
+        try {
+            Files.write(path, write(files, 1));
+            try (ZipFile zip = new ZipFile(path.toFile())) {
+                assertThat(Collections.list(zip.entries())).hasSize(files.size());
+                for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                    ZipEntry entry = zip.getEntry(file.getKey());
+                    CRC32 crc = new CRC32();
+                    crc.update(file.getValue());
+
+                    assertThat(entry.getSize()).isEqualTo(file.getValue().length);
+                    assertThat(entry.getCrc()).isEqualTo(crc.getValue());
+                    // 只有整体预读的存储条目使用 STORED，更大的存储条目用不压缩的 deflate 块
+                    boolean stored = isStored(file.getKey()) && file.getValue().length <= READ_AHEAD_BYTES;
+                    assertThat(entry.getMethod()).as(file.getKey()).isEqualTo(stored ? ZipEntry.STORED : ZipEntry.DEFLATED);
+                    if (isStored(file.getKey())) {
+                        assertThat(entry.getCompressedSize()).isLessThan(file.getValue().length + 1024L);
+                    }
+                    try (var in = zip.getInputStream(entry)) {
+                        assertThat(in.readAllBytes()).isEqualTo(file.getValue());
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void duplicateNamesAreNumbered() throws IOException {
+        List<ZipStreamWriter.Entry> entries = List.of(
+                entry("a.txt", "first".getBytes(), false),
+                entry("a.txt", "second".getBytes(), false),
+                entry("a.txt", "third".getBytes(), true));
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(join(ZipStreamWriter.write(entries, options(2)))))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+
+        assertThat(names).containsExactly("a.txt", "a (1).txt", "a (2).txt");
+    }
+
+    @Test
+    void largeEntriesAreOpenedWhenTheyReachTheHead() throws IOException {
+        byte[] large = new byte[READ_AHEAD_BYTES * 2];
+        new Random(7).nextBytes(large);
+        Sinks.Many<DataBuffer> first = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean secondOpened = new AtomicBoolean();
+        AtomicBoolean smallOpened = new AtomicBoolean();
+
+        List<ZipStreamWriter.Entry> entries = List.of(
+                new ZipStreamWriter.Entry("first.bin", large.length, MODIFIED_AT, false, first::asFlux),
+                new ZipStreamWriter.Entry("second.bin", large.length, MODIFIED_AT, false, () -> {
+                    secondOpened.set(true);
+                    return chunks(large, 8 * 1024);
+                }),
+                new ZipStreamWriter.Entry("small.txt", 5, MODIFIED_AT, false, () -> {
+                    smallOpened.set(true);
+                    return chunks("small".getBytes(), 8 * 1024);
+                }));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        var done = ZipStreamWriter.write(entries, options(3))
+                .doOnNext(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    out.writeBytes(bytes);
+                    DataBufferUtils.release(buffer);
+                })
+                .then()
+                .toFuture();
+
+        assertThat(smallOpened).isTrue(); // 小条目照常预读
+        assertThat(secondOpened).isFalse(); // 大条目等前面的条目写完才打开
+
+        first.tryEmitNext(DefaultDataBufferFactory.sharedInstance.wrap(large));
+        first.tryEmitComplete();
+        done.orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertThat(secondOpened).isTrue();
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+                in.readAllBytes();
+            }
+        }
+        assertThat(names).containsExactly("first.bin", "second.bin", "small.txt");
+    }
+
+    /**
+     * 覆盖空条目、整体预读的小条目、边读边写的大条目，以及存储和压缩两种方式
+     */
+    private static Map<String, byte[]> sampleFiles() {
+        Random random = new Random(42);
+        byte[] photo = new byte[READ_AHEAD_BYTES * 5 + 17];
+        random.nextBytes(photo);
+        byte[] icon = new byte[READ_AHEAD_BYTES / 4];
+        random.nextBytes(icon);
+        byte[] log = "2024-01-01 INFO request handled\n".repeat(20_000).getBytes();
+
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("empty.txt", new byte[0]);
+        files.put("readme.txt", "hello zip".getBytes());
+        files.put("photo.jpg", photo);
+        files.put("icon.png", icon);
+        files.put("logs/app.log", log);
+        files.put("目录/中文.txt", "中文内容".getBytes());
+        return files;
+    }
+
+    private static byte[] write(Map<String, byte[]> files, int readAheadEntries) {
+        List<ZipStreamWriter.Entry> entries = files.entrySet().stream()
+                .map(file -> entry(file.getKey(), file.getValue(), isStored(file.getKey())))
+                .toList();
+        return join(ZipStreamWriter.write(entries, options(readAheadEntries)));
+    }
+
+    private static boolean isStored(String name) {
+        return name.endsWith(".jpg") || name.endsWith(".png");
+    }
+
+    private static ZipStreamWriter.Entry entry(String name, byte[] content, boolean stored) {
+        return new ZipStreamWriter.Entry(name, content.length, MODIFIED_AT, stored, () -> chunks(content, 8 * 1024));
+    }
+
+    private static ZipStreamWriter.Options options(int readAheadEntries) {
+        return new ZipStreamWriter.Options(6, readAheadEntries, READ_AHEAD_BYTES, Schedulers.boundedElastic());
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] content, int chunkSize) {
+        return Flux.range(0, (content.length + chunkSize - 1) / chunkSize)
+                .map(i -> {
+                    int from = i * chunkSize;
+                    int to = Math.min(content.length, from + chunkSize);
+                    byte[] chunk = new byte[to - from];
+                    System.arraycopy(content, from, chunk, 0, chunk.length);
+                    return DefaultDataBufferFactory.sharedInstance.wrap(chunk);
+                });
+    }
+
+    private static byte[] join(Flux<DataBuffer> content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        content.doOnNext(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    out.writeBytes(bytes);
+                    DataBufferUtils.release(buffer);
+                })
+                .blockLast();
+        return out.toByteArray();
+    }
+}
@@ -23,6 +23,11 @@ public class UserRpcServiceImpl implements UserRpcService {
        return userRepository.getUsernameById(UUID.fromString(userId));
     }
 
+    @Override
+    public Long getStorageCapacity(String userId) {
+        return userRepository.getStorageCapacityById(UUID.fromString(userId));
+    }
+
     @Resource
     private UserRepository userRepository;
 }
@@ -81,6 +81,13 @@ public class UserRepository extends AbstractJavaRepository<User, UUID> {
                 .fetchOneOrNull();
     }
 
+    public Long getStorageCapacityById(UUID id) {
+        return sql.createQuery(table)
+                .where(table.id().eq(id))
+                .select(table.storageCapacity())
+                .fetchOneOrNull();
+    }
+
     public List<UserSearchView> getUserIdsByName(String key) {
         return sql.createQuery(table)
                 .where(table.username().ilike("%" + key + "%"))